@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.TransformerEngine;
+import org.eclipse.transformer.TransformerEngine.Result;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import transformer.benchmark.ArchiveGenerator.Shape;
+import transformer.test.util.CorpusGenerator.Container;
+
+/**
+ * End to end transformation of jar, war, and ear archives.
+ *
+ * Each operation transforms one generated archive, using the same action tree
+ * as the command line transformer.  The archive is selected by its extension:
+ * Jars, wars, and ears are transformed by the jar, war, and ear actions.
+ *
+ * The score is the wall time of transforming the archive.  The 'inputMBPerSecond'
+ * counter is the rate at which archive bytes are transformed.  The 'peakHeapBytes'
+ * counter is the sum of the peak usages of the heap memory pools during the
+ * iteration.  Run with the 'gc' profiler to obtain the allocation rate and the
+ * allocation of each archive.
+ *
+ * See {@link ArchiveGenerator} for the generated archive shapes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class ArchiveBenchmark {
+	@Param({ "JAR", "WAR", "EAR" })
+	public Container container;
+
+	@Param({ "SMALL_CLASSES", "HUGE_CLASSES", "DEEP_NESTING", "BINARY" })
+	public Shape shape;
+
+	private String archiveName;
+	private byte[] archiveBytes;
+
+	private TransformerEngine engine;
+	private ByteArrayOutputStream outputBytes;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, TransformException {
+		archiveName = "app" + container.getExtension();
+		archiveBytes = new ArchiveGenerator().create(container, shape); // throws IOException
+
+		engine = new TransformerEngine( BenchmarkSupport.getStandardRenames() ); // throws IOException
+		outputBytes = new ByteArrayOutputStream(archiveBytes.length * 2);
+
+		// Verify the archive is transformed: Classes of each shape reference
+		// javax packages.
+
+		Result result = transform(); // throws TransformException
+		if ( !result.hasChanges ) {
+			throw new IllegalStateException("Archive [ " + archiveName + " ] [ " + shape + " ] was not changed");
+		}
+	}
+
+	protected Result transform() throws TransformException {
+		outputBytes.reset();
+		return engine.transform( archiveName, new ByteArrayInputStream(archiveBytes), outputBytes );
+		// throws TransformException
+	}
+
+	/**
+	 * Throughput and memory counters.  The counters are computed for each
+	 * iteration, and are reported as computed.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Counters {
+		public double inputMBPerSecond;
+		public long peakHeapBytes;
+
+		private long inputBytes;
+		private long elapsedNanos;
+
+		private List<MemoryPoolMXBean> heapPools;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			if ( heapPools == null ) {
+				heapPools = new ArrayList<MemoryPoolMXBean>();
+				for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+					if ( pool.getType() == MemoryType.HEAP ) {
+						heapPools.add(pool);
+					}
+				}
+			}
+			for ( MemoryPoolMXBean pool : heapPools ) {
+				pool.resetPeakUsage();
+			}
+			peakHeapBytes = 0L;
+
+			inputMBPerSecond = 0.0;
+			inputBytes = 0L;
+			elapsedNanos = 0L;
+		}
+
+		public void update(long archiveBytes, long archiveNanos) {
+			inputBytes += archiveBytes;
+			elapsedNanos += archiveNanos;
+			inputMBPerSecond = ( ((double) inputBytes) / (1024.0 * 1024.0) ) / ( ((double) elapsedNanos) / 1.0e9 );
+
+			long peak = 0L;
+			for ( MemoryPoolMXBean pool : heapPools ) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+			if ( peak > peakHeapBytes ) {
+				peakHeapBytes = peak;
+			}
+		}
+	}
+
+	@Benchmark
+	public int transform(Counters counters) throws TransformException {
+		long startNanos = System.nanoTime();
+		transform(); // throws TransformException
+		counters.update( archiveBytes.length, System.nanoTime() - startNanos );
+		return outputBytes.size();
+	}
+}
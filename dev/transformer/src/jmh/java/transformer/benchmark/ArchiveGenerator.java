@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.benchmark;
+
+import java.io.IOException;
+
+import transformer.test.util.CorpusGenerator;
+import transformer.test.util.CorpusGenerator.Container;
+
+/**
+ * Generator of the archives of the archive benchmarks.
+ *
+ * Archives are generated in memory by the corpus generator, using settings
+ * which are selected by the shape of the archive.  Archives are generated the
+ * same way each time.
+ */
+public class ArchiveGenerator {
+	/**
+	 * Shapes of generated archives.
+	 */
+	public static enum Shape {
+		/** Many small classes. */
+		SMALL_CLASSES,
+		/** Few huge classes. */
+		HUGE_CLASSES,
+		/** Many nested archives, each of which has some classes. */
+		DEEP_NESTING,
+		/** Mostly binary content, with few classes. */
+		BINARY
+	}
+
+	/**
+	 * Create a corpus generator for an archive shape.
+	 *
+	 * @param container The type of the archive.
+	 * @param shape The shape of the archive.
+	 *
+	 * @return A generator of archives which have the shape.
+	 */
+	public static CorpusGenerator createGenerator(Container container, Shape shape) {
+		CorpusGenerator generator = new CorpusGenerator().container(container);
+		switch ( shape ) {
+			case SMALL_CLASSES:
+				return generator.libraries(2).entries(3000).classRatio(1.0).classMembers(8);
+			case HUGE_CLASSES:
+				return generator.libraries(2).entries(12).classRatio(1.0).hugeClassRatio(1.0).hugeClassMembers(2000);
+			case DEEP_NESTING:
+				return generator.modules(5).libraries(20).entries(4000).classRatio(0.9).classMembers(16);
+			case BINARY:
+				return generator.libraries(2).entries(240).classRatio(0.1).binaryRatio(0.9).classMembers(16);
+			default:
+				throw new IllegalArgumentException("Unknown shape [ " + shape + " ]");
+		}
+	}
+
+	/**
+	 * Generate an archive.
+	 *
+	 * @param container The type of the archive.
+	 * @param shape The shape of the archive.
+	 *
+	 * @return The bytes of the archive.
+	 *
+	 * @throws IOException Thrown if the archive could not be generated.
+	 */
+	public byte[] create(Container container, Shape shape) throws IOException {
+		return createGenerator(container, shape).generate(); // throws IOException
+	}
+}
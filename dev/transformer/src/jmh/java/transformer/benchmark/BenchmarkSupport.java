@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.transformer.TransformProperties;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+
+import aQute.lib.utf8properties.UTF8Properties;
+
+/**
+ * Common setup of transformer benchmarks.
+ *
+ * Benchmarks use the default rename rules of the command line transformer, and
+ * run without logging.
+ */
+public class BenchmarkSupport {
+	/** Corpus of classes which reference javax packages which are renamed. */
+	public static final String JAVAX_CORPUS = "javax";
+
+	/** Corpus of classes which do not reference any renamed packages. */
+	public static final String PLAIN_CORPUS = "plain";
+
+	// The javax corpus is read from the JSP API, which uses 'javax.servlet.jsp'
+	// in the 2.3 release.  The plain corpus is read from commons-cli.
+
+	public static final String JAVAX_CORPUS_CLASS = "javax.servlet.jsp.JspContext";
+	public static final String PLAIN_CORPUS_CLASS = "org.apache.commons.cli.Options";
+
+	public static LoggerImpl createLogger() {
+		return LoggerImpl.createStandardLogger();
+	}
+
+	public static Map<String, String> getStandardRenames() throws IOException {
+		UTF8Properties renameProperties = new UTF8Properties();
+		try ( InputStream renamesStream = Transformer.class.getResourceAsStream(Transformer.DEFAULT_RENAMES_REFERENCE) ) {
+			if ( renamesStream == null ) {
+				throw new IOException("Renames not found [ " + Transformer.DEFAULT_RENAMES_REFERENCE + " ]");
+			}
+			renameProperties.load(renamesStream); // throws IOException
+		}
+		return TransformProperties.getPackageRenames(renameProperties);
+	}
+
+	public static InputBufferImpl createBuffer() {
+		return new InputBufferImpl();
+	}
+
+	public static SelectionRuleImpl createSelectionRule(LoggerImpl logger) {
+		return new SelectionRuleImpl( logger, Collections.emptySet(), Collections.emptySet() );
+	}
+
+	public static SignatureRuleImpl createSignatureRule(LoggerImpl logger) throws IOException {
+		return createSignatureRule( logger, getStandardRenames() );
+		// 'getStandardRenames' throws IOException
+	}
+
+	public static SignatureRuleImpl createSignatureRule(LoggerImpl logger, Map<String, String> renames) {
+		return new SignatureRuleImpl( logger, renames, null, null, null );
+	}
+
+	//
+
+	/**
+	 * Locate a corpus.  The corpus is either of the named corpora,
+	 * {@link #JAVAX_CORPUS} or {@link #PLAIN_CORPUS}, or is the path of
+	 * an archive or of a directory.
+	 *
+	 * @param corpus The name or path of the corpus.
+	 *
+	 * @return The archive or directory of the corpus.
+	 *
+	 * @throws IOException Thrown if the corpus could not be located.
+	 */
+	public static File locateCorpus(String corpus) throws IOException {
+		String corpusClass;
+		if ( corpus.equals(JAVAX_CORPUS) ) {
+			corpusClass = JAVAX_CORPUS_CLASS;
+		} else if ( corpus.equals(PLAIN_CORPUS) ) {
+			corpusClass = PLAIN_CORPUS_CLASS;
+		} else {
+			File corpusFile = new File(corpus);
+			if ( !corpusFile.exists() ) {
+				throw new IOException("Corpus not found [ " + corpusFile.getAbsolutePath() + " ]");
+			}
+			return corpusFile;
+		}
+
+		try {
+			Class<?> useClass = Class.forName(corpusClass, false, BenchmarkSupport.class.getClassLoader());
+			return new File( useClass.getProtectionDomain().getCodeSource().getLocation().toURI() );
+		} catch ( ClassNotFoundException | URISyntaxException e ) {
+			throw new IOException("Corpus [ " + corpus + " ] not located using [ " + corpusClass + " ]", e);
+		}
+	}
+
+	/**
+	 * Read the resources of a corpus which have a specified extension.
+	 *
+	 * @param corpus The name or path of the corpus.  See {@link #locateCorpus(String)}.
+	 * @param extension The extension of the resources which are to be read.
+	 *
+	 * @return The resources, in name order.
+	 *
+	 * @throws IOException Thrown if the corpus could not be read, or has no
+	 *     resources with the extension.
+	 */
+	public static List<ByteData> readCorpus(String corpus, String extension) throws IOException {
+		File corpusFile = locateCorpus(corpus); // throws IOException
+
+		List<ByteData> resources = new ArrayList<ByteData>();
+
+		if ( corpusFile.isDirectory() ) {
+			Path corpusPath = corpusFile.toPath();
+			List<Path> paths;
+			try ( Stream<Path> walk = Files.walk(corpusPath) ) { // throws IOException
+				paths = walk
+					.filter( (Path path) -> path.toString().endsWith(extension) )
+					.sorted()
+					.collect( Collectors.toList() );
+			}
+			for ( Path path : paths ) {
+				String name = corpusPath.relativize(path).toString().replace(File.separatorChar, '/');
+				byte[] bytes = Files.readAllBytes(path); // throws IOException
+				resources.add( new ByteData(name, bytes, 0, bytes.length) );
+			}
+
+		} else {
+			try ( ZipFile zipFile = new ZipFile(corpusFile) ) { // throws IOException
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+				while ( entries.hasMoreElements() ) {
+					ZipEntry entry = entries.nextElement();
+					String name = entry.getName();
+					if ( !name.endsWith(extension) ) {
+						continue;
+					}
+					try ( InputStream entryStream = zipFile.getInputStream(entry) ) { // throws IOException
+						resources.add( FileUtils.read(name, entryStream) ); // throws IOException
+					}
+				}
+			}
+			resources.sort( (ByteData d1, ByteData d2) -> d1.name.compareTo(d2.name) );
+		}
+
+		if ( resources.isEmpty() ) {
+			throw new IOException("Corpus [ " + corpusFile.getAbsolutePath() + " ] has no [ " + extension + " ] resources");
+		}
+		return resources;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of class transformation.
+ *
+ * Each operation transforms one class of the corpus, cycling through the corpus
+ * in name order.  Operations per second are classes per second.  The 'inputBytes'
+ * and 'outputBytes' counters are bytes per second.  Run with the 'gc' profiler
+ * to obtain the allocation per class, 'gc.alloc.rate.norm'.
+ *
+ * The corpus is either of the named corpora, 'javax', which has classes which
+ * are changed by the default rules, and 'plain', which has classes which are not
+ * changed, or is the path of an archive or directory of classes, for example,
+ * '-p corpus=/path/to/app.jar'.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassActionBenchmark {
+	@Param({ BenchmarkSupport.JAVAX_CORPUS, BenchmarkSupport.PLAIN_CORPUS })
+	public String corpus;
+
+	private ByteData[] classes;
+	private int nextClass;
+
+	private ClassActionImpl classAction;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		LoggerImpl logger = BenchmarkSupport.createLogger();
+		classAction = new ClassActionImpl(
+			logger,
+			BenchmarkSupport.createBuffer(),
+			BenchmarkSupport.createSelectionRule(logger),
+			BenchmarkSupport.createSignatureRule(logger) );
+		// 'createSignatureRule' throws IOException
+
+		List<ByteData> corpusClasses =
+			BenchmarkSupport.readCorpus( corpus, classAction.getAcceptExtension() ); // throws IOException
+		classes = corpusClasses.toArray( new ByteData[corpusClasses.size()] );
+		nextClass = 0;
+	}
+
+	/** Byte counters, which are reported as rates. */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class ByteCounters {
+		public long inputBytes;
+		public long outputBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			inputBytes = 0L;
+			outputBytes = 0L;
+		}
+	}
+
+	@Benchmark
+	public ByteData apply(ByteCounters counters) throws TransformException {
+		ByteData inputData = classes[nextClass];
+		if ( ++nextClass == classes.length ) {
+			nextClass = 0;
+		}
+
+		ByteData outputData = classAction.apply(inputData.name, inputData.data, inputData.length);
+		// throws TransformException
+
+		counters.inputBytes += inputData.length;
+		counters.outputBytes += ( (outputData == null) ? inputData.length : outputData.length );
+
+		return outputData;
+	}
+}
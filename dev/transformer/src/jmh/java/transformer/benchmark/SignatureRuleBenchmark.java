@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time of the signature rule operations.
+ *
+ * Each invocation processes {@link #INPUT_COUNT} inputs, half of which reference
+ * renamed 'javax' packages.  Scores are the average time of one input.
+ *
+ * The rename table has the default renames, plus, when more renames are
+ * requested, renames of other 'javax' packages which do not occur in the inputs.
+ * This measures how the operations scale as rename tables grow.  The default
+ * rules have 12 renames.
+ *
+ * The binary type, descriptor, and signature operations are cached.  These are
+ * measured with a 'cold' cache, which is cleared before each invocation, and with
+ * a 'warm' cache, which retains the transformed inputs.  Package replacement is
+ * not cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureRuleBenchmark {
+	public static final int INPUT_COUNT = 256;
+
+	/** Packages which are not renamed. */
+	public static final String[] UNCHANGED_PACKAGES = {
+		"java.lang", "java.util", "java.util.concurrent", "java.io",
+		"org.example.app", "org.example.app.service", "com.acme.web"
+	};
+
+	/** Signature rule and inputs of the operations. */
+	@State(Scope.Thread)
+	public static class Rules {
+		/** Count of rename rules. */
+		@Param({ "12", "100", "500" })
+		public int renames;
+
+		public SignatureRuleImpl signatureRule;
+
+		public String[] texts;
+		public String[] binaryTypes;
+		public String[] descriptors;
+		public String[] signatures;
+		public SignatureType[] signatureTypes;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			Map<String, String> standardRenames = BenchmarkSupport.getStandardRenames(); // throws IOException
+
+			List<String> renamedPackages = new ArrayList<String>();
+			for ( String packageName : new TreeMap<String, String>(standardRenames).keySet() ) {
+				if ( packageName.startsWith("javax.") ) {
+					renamedPackages.add(packageName);
+				}
+			}
+
+			Map<String, String> useRenames = new TreeMap<String, String>(standardRenames);
+			for ( int renameNo = 0; useRenames.size() < renames; renameNo++ ) {
+				useRenames.put("javax.spec" + renameNo + ".api", "jakarta.spec" + renameNo + ".api");
+			}
+
+			signatureRule = BenchmarkSupport.createSignatureRule( BenchmarkSupport.createLogger(), useRenames );
+
+			texts = new String[INPUT_COUNT];
+			binaryTypes = new String[INPUT_COUNT];
+			descriptors = new String[INPUT_COUNT];
+			signatures = new String[INPUT_COUNT];
+			signatureTypes = new SignatureType[INPUT_COUNT];
+
+			SignatureType[] allTypes = SignatureType.values();
+
+			for ( int inputNo = 0; inputNo < INPUT_COUNT; inputNo++ ) {
+				// Even inputs reference a renamed package.  Odd inputs do not.
+				String packageName;
+				if ( (inputNo % 2) == 0 ) {
+					packageName = renamedPackages.get( (inputNo / 2) % renamedPackages.size() );
+				} else {
+					packageName = UNCHANGED_PACKAGES[ (inputNo / 2) % UNCHANGED_PACKAGES.length ];
+				}
+				String otherPackage = UNCHANGED_PACKAGES[ inputNo % UNCHANGED_PACKAGES.length ];
+
+				String typeName = packageName + ".Type" + inputNo;
+				String otherName = otherPackage + ".Other" + inputNo;
+
+				String binaryType = typeName.replace('.', '/');
+				String otherBinaryType = otherName.replace('.', '/');
+
+				texts[inputNo] = "Uses " + typeName + " and " + otherName + " through java.util.List";
+				binaryTypes[inputNo] = binaryType;
+				descriptors[inputNo] = "(L" + binaryType + ";I[Ljava/lang/String;)L" + otherBinaryType + ";";
+
+				SignatureType signatureType = allTypes[ inputNo % allTypes.length ];
+				signatureTypes[inputNo] = signatureType;
+				if ( signatureType == SignatureType.CLASS ) {
+					signatures[inputNo] =
+						"<T:Ljava/lang/Object;>L" + otherBinaryType + ";Ljava/util/List<L" + binaryType + ";>;";
+				} else if ( signatureType == SignatureType.FIELD ) {
+					signatures[inputNo] =
+						"Ljava/util/Map<Ljava/lang/String;L" + binaryType + ";>;";
+				} else {
+					signatures[inputNo] =
+						"<T:Ljava/lang/Object;>(Ljava/util/List<L" + binaryType + ";>;TT;)L" + otherBinaryType + ";";
+				}
+			}
+		}
+	}
+
+	/** Signature rule and inputs of the cached operations. */
+	@State(Scope.Thread)
+	public static class CachedRules extends Rules {
+		@Param({ "cold", "warm" })
+		public String cache;
+
+		@Setup(Level.Invocation)
+		public void clearCaches() {
+			if ( cache.equals("cold") ) {
+				signatureRule.clearCaches();
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUT_COUNT)
+	public void replacePackages(Rules rules, Blackhole blackhole) {
+		SignatureRuleImpl signatureRule = rules.signatureRule;
+		for ( String text : rules.texts ) {
+			blackhole.consume( signatureRule.replacePackages(text) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUT_COUNT)
+	public void transformBinaryType(CachedRules rules, Blackhole blackhole) {
+		SignatureRuleImpl signatureRule = rules.signatureRule;
+		for ( String binaryType : rules.binaryTypes ) {
+			blackhole.consume( signatureRule.transformBinaryType(binaryType) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUT_COUNT)
+	public void transformDescriptor(CachedRules rules, Blackhole blackhole) {
+		SignatureRuleImpl signatureRule = rules.signatureRule;
+		for ( String descriptor : rules.descriptors ) {
+			blackhole.consume( signatureRule.transformDescriptor(descriptor) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUT_COUNT)
+	public void transformSignature(CachedRules rules, Blackhole blackhole) {
+		SignatureRuleImpl signatureRule = rules.signatureRule;
+		String[] signatures = rules.signatures;
+		SignatureType[] signatureTypes = rules.signatureTypes;
+		for ( int inputNo = 0; inputNo < INPUT_COUNT; inputNo++ ) {
+			blackhole.consume( signatureRule.transform(signatures[inputNo], signatureTypes[inputNo]) );
+		}
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.impl.BundleDataImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+
+/**
+ * Transformation rules in a compact binary form.
+ *
+ * Compiled rules are written from rules which were loaded from properties
+ * files, and are read using a single mapped read of the compiled rules file.
+ * Package renames are stored in both their '.' and '/' forms, so that
+ * signature rules may be created without converting the renames.
+ *
+ * The compiled rules file is a header, followed by sections for each type of
+ * rule, in a fixed order.  Each section is a count followed by that many rules.
+ * Strings are stored as a length followed by UTF-8 bytes.  A null string is
+ * stored as a length of -1.
+ */
+public class CompiledRules {
+	/** Magic number which starts a compiled rules file: "TRCR". */
+	public static final int MAGIC = 0x54524352;
+	public static final int VERSION = 1;
+
+	public CompiledRules(
+		Set<String> includes, Set<String> excludes,
+		Map<String, String> renames, Map<String, String> binaryRenames,
+		Map<String, String> versions,
+		Map<String, BundleData> bundleUpdates,
+		Map<String, String> directStrings,
+		Set<String> textExtensions) {
+
+		this.includes = includes;
+		this.excludes = excludes;
+		this.renames = renames;
+		this.binaryRenames = binaryRenames;
+		this.versions = versions;
+		this.bundleUpdates = bundleUpdates;
+		this.directStrings = directStrings;
+		this.textExtensions = textExtensions;
+	}
+
+	public CompiledRules(
+		Set<String> includes, Set<String> excludes,
+		Map<String, String> renames,
+		Map<String, String> versions,
+		Map<String, BundleData> bundleUpdates,
+		Map<String, String> directStrings,
+		Set<String> textExtensions) {
+
+		this( nonNull(includes), nonNull(excludes),
+			  nonNull(renames), SignatureRuleImpl.toBinaryRenames( nonNull(renames) ),
+			  nonNull(versions), nonNull(bundleUpdates), nonNull(directStrings),
+			  nonNull(textExtensions) );
+	}
+
+	private static Set<String> nonNull(Set<String> rules) {
+		return ( (rules == null) ? Collections.emptySet() : rules );
+	}
+
+	private static <V> Map<String, V> nonNull(Map<String, V> rules) {
+		return ( (rules == null) ? Collections.emptyMap() : rules );
+	}
+
+	//
+
+	public final Set<String> includes;
+	public final Set<String> excludes;
+	public final Map<String, String> renames;
+	public final Map<String, String> binaryRenames;
+	public final Map<String, String> versions;
+	public final Map<String, BundleData> bundleUpdates;
+	public final Map<String, String> directStrings;
+	public final Set<String> textExtensions;
+
+	//
+
+	/**
+	 * Write these rules to a compiled rules file.  The file is written to
+	 * a temporary file which is then moved into place.
+	 *
+	 * @param rulesFile The file which is to be written.
+	 *
+	 * @throws IOException Thrown if the file could not be written.
+	 */
+	public void write(File rulesFile) throws IOException {
+		Path rulesPath = rulesFile.getAbsoluteFile().toPath();
+		Path parentPath = rulesPath.getParent();
+		Files.createDirectories(parentPath); // throws IOException
+
+		Path tempPath = Files.createTempFile(parentPath, rulesFile.getName(), ".tmp"); // throws IOException
+		try {
+			try ( OutputStream outputStream = Files.newOutputStream(tempPath) ) { // throws IOException
+				write(outputStream); // throws IOException
+			}
+			try {
+				Files.move(tempPath, rulesPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move(tempPath, rulesPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	public void write(OutputStream outputStream) throws IOException {
+		DataOutputStream output = new DataOutputStream( new BufferedOutputStream(outputStream) );
+
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+
+		writeSet(output, includes);
+		writeSet(output, excludes);
+
+		output.writeInt( renames.size() );
+		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
+			String initialName = renameEntry.getKey();
+			String finalName = renameEntry.getValue();
+			writeString(output, initialName);
+			writeString(output, finalName);
+			writeString(output, initialName.replace('.', '/'));
+			writeString(output, binaryRenames.get( initialName.replace('.', '/') ));
+		}
+
+		writeMap(output, versions);
+
+		output.writeInt( bundleUpdates.size() );
+		for ( Map.Entry<String, BundleData> updateEntry : bundleUpdates.entrySet() ) {
+			BundleData updateData = updateEntry.getValue();
+			writeString(output, updateEntry.getKey());
+			writeString(output, updateData.getSymbolicName());
+			writeString(output, updateData.getVersion());
+			output.writeBoolean( updateData.getAddName() );
+			writeString(output, updateData.getName());
+			output.writeBoolean( updateData.getAddDescription() );
+			writeString(output, updateData.getDescription());
+		}
+
+		writeMap(output, directStrings);
+		writeSet(output, textExtensions);
+
+		output.flush();
+	}
+
+	private static void writeString(DataOutputStream output, String text) throws IOException {
+		if ( text == null ) {
+			output.writeInt(-1);
+		} else {
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private static void writeSet(DataOutputStream output, Set<String> rules) throws IOException {
+		output.writeInt( rules.size() );
+		for ( String rule : rules ) {
+			writeString(output, rule);
+		}
+	}
+
+	private static void writeMap(DataOutputStream output, Map<String, String> rules) throws IOException {
+		output.writeInt( rules.size() );
+		for ( Map.Entry<String, String> ruleEntry : rules.entrySet() ) {
+			writeString(output, ruleEntry.getKey());
+			writeString(output, ruleEntry.getValue());
+		}
+	}
+
+	//
+
+	/**
+	 * Read a compiled rules file.
+	 *
+	 * @param rulesFile The compiled rules file.
+	 *
+	 * @return The rules which were read.
+	 *
+	 * @throws IOException Thrown if the file could not be read, or if the file
+	 *     is not a compiled rules file.
+	 */
+	public static CompiledRules read(File rulesFile) throws IOException {
+		MappedByteBuffer buffer;
+		try ( FileChannel channel = FileChannel.open(rulesFile.toPath(), StandardOpenOption.READ) ) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()); // throws IOException
+		}
+
+		try {
+			return readRules(buffer);
+		} catch ( BufferUnderflowException | IllegalArgumentException e ) {
+			throw new IOException("Corrupt compiled rules [ " + rulesFile + " ]", e);
+		}
+	}
+
+	/**
+	 * Read compiled rules from a buffer.
+	 *
+	 * @param buffer A buffer containing compiled rules.
+	 *
+	 * @return The rules which were read.
+	 *
+	 * @throws IOException Thrown if the buffer does not contain compiled rules.
+	 */
+	public static CompiledRules read(ByteBuffer buffer) throws IOException {
+		try {
+			return readRules(buffer);
+		} catch ( BufferUnderflowException | IllegalArgumentException e ) {
+			throw new IOException("Corrupt compiled rules", e);
+		}
+	}
+
+	// Every string is written with a four byte length.  The smallest entries
+	// are used to check counts against the bytes which remain, so that a corrupt
+	// count cannot cause a huge allocation.
+
+	private static final int MIN_SET_ENTRY = 4;
+	private static final int MIN_MAP_ENTRY = 4 + 4;
+	private static final int MIN_RENAME_ENTRY = 2 * MIN_MAP_ENTRY;
+	private static final int MIN_UPDATE_ENTRY = (5 * 4) + 2;
+
+	private static CompiledRules readRules(ByteBuffer buffer) throws IOException {
+		int magic = buffer.getInt();
+		if ( magic != MAGIC ) {
+			throw new IOException("Not compiled rules: Magic [ " + Integer.toHexString(magic) + " ]");
+		}
+		int rulesVersion = buffer.getInt();
+		if ( rulesVersion != VERSION ) {
+			throw new IOException("Unsupported compiled rules version [ " + rulesVersion + " ]");
+		}
+
+		Set<String> includes = readSet(buffer);
+		Set<String> excludes = readSet(buffer);
+
+		int renameCount = readCount(buffer, MIN_RENAME_ENTRY);
+		Map<String, String> renames = new HashMap<String, String>(renameCount);
+		Map<String, String> binaryRenames = new HashMap<String, String>(renameCount);
+		for ( int renameNo = 0; renameNo < renameCount; renameNo++ ) {
+			renames.put( readString(buffer), readString(buffer) );
+			binaryRenames.put( readString(buffer), readString(buffer) );
+		}
+
+		Map<String, String> versions = readMap(buffer);
+
+		int updateCount = readCount(buffer, MIN_UPDATE_ENTRY);
+		Map<String, BundleData> bundleUpdates = new HashMap<String, BundleData>(updateCount);
+		for ( int updateNo = 0; updateNo < updateCount; updateNo++ ) {
+			String key = readString(buffer);
+			String symbolicName = readString(buffer);
+			String bundleVersion = readString(buffer);
+			boolean addName = ( buffer.get() != 0 );
+			String name = readString(buffer);
+			boolean addDescription = ( buffer.get() != 0 );
+			String description = readString(buffer);
+			bundleUpdates.put( key,
+				new BundleDataImpl(symbolicName, bundleVersion, addName, name, addDescription, description) );
+		}
+
+		Map<String, String> directStrings = readMap(buffer);
+		Set<String> textExtensions = readSet(buffer);
+
+		return new CompiledRules(
+			includes, excludes,
+			renames, binaryRenames,
+			versions, bundleUpdates, directStrings,
+			textExtensions);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if ( length == -1 ) {
+			return null;
+		} else if ( (length < 0) || (length > buffer.remaining()) ) {
+			throw new IllegalArgumentException("Incorrect string length [ " + length + " ]");
+		}
+
+		String text;
+		if ( buffer.hasArray() ) {
+			text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			// Position through Buffer: ByteBuffer.position(int) is only
+			// available since Java 9.
+			((Buffer) buffer).position( buffer.position() + length );
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			text = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return text;
+	}
+
+	private static int readCount(ByteBuffer buffer, int minEntryLength) {
+		int count = buffer.getInt();
+		if ( (count < 0) || (count > (buffer.remaining() / minEntryLength)) ) {
+			throw new IllegalArgumentException("Incorrect count [ " + count + " ]");
+		}
+		return count;
+	}
+
+	private static Set<String> readSet(ByteBuffer buffer) {
+		int count = readCount(buffer, MIN_SET_ENTRY);
+		Set<String> rules = new HashSet<String>(count);
+		for ( int ruleNo = 0; ruleNo < count; ruleNo++ ) {
+			rules.add( readString(buffer) );
+		}
+		return rules;
+	}
+
+	private static Map<String, String> readMap(ByteBuffer buffer) {
+		int count = readCount(buffer, MIN_MAP_ENTRY);
+		Map<String, String> rules = new HashMap<String, String>(count);
+		for ( int ruleNo = 0; ruleNo < count; ruleNo++ ) {
+			rules.put( readString(buffer), readString(buffer) );
+		}
+		return rules;
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Continuous transformation of a directory.
+ *
+ * The watcher uses a {@link WatchService} to receive changes to the input
+ * directory tree, and applies the directory action to the changed files.
+ * The transformation rules and actions remain loaded between changes.
+ *
+ * Changes are collected until no change has been received for the settle
+ * time, which groups the many events generated by a single compile or copy.
+ */
+public class DirectoryWatcher {
+	/** Default time to wait for additional changes before transforming. */
+	public static final long DEFAULT_SETTLE_MILLIS = 20L;
+
+	public DirectoryWatcher(
+		LoggerImpl logger,
+		DirectoryActionImpl directoryAction,
+		File inputRoot, File outputRoot) {
+
+		this.logger = logger;
+		this.directoryAction = directoryAction;
+
+		this.inputRoot = inputRoot.getAbsoluteFile();
+		this.inputRootPath = this.inputRoot.toPath();
+		this.outputRoot = outputRoot.getAbsoluteFile();
+
+		this.settleMillis = DEFAULT_SETTLE_MILLIS;
+
+		this.watchedDirs = new HashMap<WatchKey, Path>();
+	}
+
+	//
+
+	private final LoggerImpl logger;
+
+	public LoggerImpl getLogger() {
+		return logger;
+	}
+
+	public void log(String text, Object... parms) {
+		getLogger().log(text, parms);
+	}
+
+	public void verbose(String text, Object... parms) {
+		getLogger().verbose(text, parms);
+	}
+
+	public void error(String message, Throwable th, Object... parms) {
+		getLogger().error(message, th, parms);
+	}
+
+	//
+
+	private final DirectoryActionImpl directoryAction;
+
+	public DirectoryActionImpl getDirectoryAction() {
+		return directoryAction;
+	}
+
+	private final File inputRoot;
+	private final Path inputRootPath;
+	private final File outputRoot;
+
+	public File getInputRoot() {
+		return inputRoot;
+	}
+
+	public File getOutputRoot() {
+		return outputRoot;
+	}
+
+	private long settleMillis;
+
+	public long getSettleMillis() {
+		return settleMillis;
+	}
+
+	public void setSettleMillis(long settleMillis) {
+		this.settleMillis = settleMillis;
+	}
+
+	//
+
+	private volatile WatchService watchService;
+	private final Map<WatchKey, Path> watchedDirs;
+
+	/**
+	 * Register a directory and all of its sub-directories.
+	 *
+	 * @param dir The directory which is to be registered.
+	 *
+	 * @throws IOException Thrown if the directory could not be registered.
+	 */
+	protected void register(Path dir) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path visitDir, BasicFileAttributes attrs) throws IOException {
+				WatchKey key = visitDir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+				watchedDirs.put(key, visitDir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	protected String relativize(Path path) {
+		return FileUtils.normalize( inputRootPath.relativize(path).toString() );
+	}
+
+	/**
+	 * Start watching the input directory.  Changes which occur after this call
+	 * are reported by {@link #watch()}.
+	 *
+	 * The output directory must not be within the input directory: Writes to
+	 * the output would be received as changes to the input.
+	 *
+	 * @throws IOException Thrown if the watch could not be started, or if the
+	 *     output directory is within the input directory.
+	 */
+	public void start() throws IOException {
+		if ( FileUtils.isWithin(inputRoot, outputRoot) ) { // throws IOException
+			throw new IOException("Output [ " + outputRoot + " ] is within watched input [ " + inputRoot + " ]");
+		}
+
+		watchService = FileSystems.getDefault().newWatchService();
+		register(inputRootPath);
+		log("Watching [ %s ] [ %s ] directories\n", inputRoot, watchedDirs.size());
+	}
+
+	/**
+	 * Stop watching.  Causes {@link #watch()} to return.
+	 */
+	public void stop() {
+		WatchService useWatchService = watchService;
+		if ( useWatchService != null ) {
+			try {
+				useWatchService.close();
+			} catch ( IOException e ) {
+				error("Failed to close watch of [ %s ]\n", e, inputRoot);
+			}
+		}
+	}
+
+	/**
+	 * Transform changes to the input directory until the watch is stopped
+	 * or the thread is interrupted.  A failure to transform changes is logged,
+	 * and does not stop the watch.
+	 */
+	public void watch() {
+		try {
+			while ( true ) {
+				Set<String> changedPaths = new LinkedHashSet<String>();
+				Set<String> removedPaths = new LinkedHashSet<String>();
+
+				WatchKey key = watchService.take();
+				long startNanos = System.nanoTime();
+
+				boolean overflow = false;
+				while ( key != null ) {
+					overflow |= collect(key, changedPaths, removedPaths);
+					key = watchService.poll(settleMillis, TimeUnit.MILLISECONDS);
+				}
+
+				if ( overflow ) {
+					log("Lost changes: Transforming all of [ %s ]\n", inputRoot);
+					changedPaths.clear();
+					removedPaths.clear();
+					changedPaths.add("");
+				}
+
+				apply(changedPaths, removedPaths, startNanos);
+			}
+
+		} catch ( ClosedWatchServiceException e ) {
+			log("Stopped watching [ %s ]\n", inputRoot);
+
+		} catch ( InterruptedException e ) {
+			log("Interrupted watching [ %s ]\n", inputRoot);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Collect the events of a watch key.  Register new directories.
+	 *
+	 * @param key The key which is to be processed.
+	 * @param changedPaths Storage for paths of created and modified files.
+	 * @param removedPaths Storage for paths of removed files.
+	 *
+	 * @return True if events were lost.
+	 */
+	protected boolean collect(WatchKey key, Set<String> changedPaths, Set<String> removedPaths) {
+		boolean overflow = false;
+
+		Path dir = watchedDirs.get(key);
+
+		for ( WatchEvent<?> event : key.pollEvents() ) {
+			WatchEvent.Kind<?> kind = event.kind();
+			if ( kind == OVERFLOW ) {
+				overflow = true;
+				continue;
+			} else if ( dir == null ) {
+				continue;
+			}
+
+			Path path = dir.resolve( (Path) event.context() );
+			String relativePath = relativize(path);
+
+			if ( kind == ENTRY_DELETE ) {
+				changedPaths.remove(relativePath);
+				removedPaths.add(relativePath);
+
+			} else {
+				removedPaths.remove(relativePath);
+
+				if ( (kind == ENTRY_CREATE) && Files.isDirectory(path) ) {
+					try {
+						register(path);
+					} catch ( IOException e ) {
+						error("Failed to watch [ %s ]\n", e, path);
+					}
+				} else if ( Files.isDirectory(path) ) {
+					continue; // Directory modifications are reported for their files.
+				}
+				changedPaths.add(relativePath);
+			}
+		}
+
+		if ( !key.reset() ) {
+			watchedDirs.remove(key);
+		}
+
+		return overflow;
+	}
+
+	protected void apply(Set<String> changedPaths, Set<String> removedPaths, long startNanos) {
+		if ( changedPaths.isEmpty() && removedPaths.isEmpty() ) {
+			return;
+		}
+
+		try {
+			if ( changedPaths.contains("") ) {
+				getDirectoryAction().apply(".", inputRoot, outputRoot);
+			} else {
+				getDirectoryAction().applyChanges(inputRoot, outputRoot, changedPaths, removedPaths);
+			}
+		} catch ( TransformException e ) {
+			error("Failed to transform changes of [ %s ]\n", e, inputRoot);
+			return;
+		}
+
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startNanos );
+		log("Transformed [ %s ] changed and [ %s ] removed in [ %s ms ]\n",
+			changedPaths.size(), removedPaths.size(), elapsedMillis);
+	}
+}
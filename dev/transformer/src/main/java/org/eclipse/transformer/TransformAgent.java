@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.ParseException;
+import org.eclipse.transformer.Transformer.AppOption;
+import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.action.impl.ActionImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.TransformCache;
+
+/**
+ * Load time transformation of classes.
+ *
+ * The agent is specified using:
+ *
+ * <pre>
+ * -javaagent:transformer-agent.jar[=arg1,arg2,...]
+ * </pre>
+ *
+ * The agent requires the bnd library and commons-cli.  The agent jar, which
+ * is built by the 'agentJar' task, contains these dependencies.  The plain
+ * transformer jar does not, and cannot be used alone as an agent.
+ *
+ * The agent arguments are transformer command line arguments, separated by
+ * commas, for example, "-tr,renames.properties,-cc,/tmp/classCache".  Input
+ * and output arguments are ignored.
+ *
+ * Classes are screened before being parsed: A class which does not contain
+ * a renamed package, in dotted or in slashed form, or a direct string, is not
+ * changed.  Classes of the bootstrap class loader are never transformed.
+ * When a class cache is specified, transformed class bytes, and the keys of
+ * classes which were not changed, are stored in the cache, and are reused by
+ * later runs.
+ *
+ * Only class bytes are available to an agent.  Service loader configuration
+ * files are not transformed.
+ */
+public class TransformAgent implements ClassFileTransformer {
+	public static final String ARGS_SEPARATOR = ",";
+
+	public static void premain(String agentArgs, Instrumentation instrumentation) throws Exception {
+		install(agentArgs, instrumentation);
+	}
+
+	public static void agentmain(String agentArgs, Instrumentation instrumentation) throws Exception {
+		install(agentArgs, instrumentation);
+	}
+
+	protected static TransformAgent install(String agentArgs, Instrumentation instrumentation) throws Exception {
+		TransformAgent agent = create( parseArgs(agentArgs) );
+		instrumentation.addTransformer(agent);
+		return agent;
+	}
+
+	public static String[] parseArgs(String agentArgs) {
+		if ( (agentArgs == null) || agentArgs.trim().isEmpty() ) {
+			return new String[0];
+		}
+		String[] args = agentArgs.split(ARGS_SEPARATOR);
+		for ( int argNo = 0; argNo < args.length; argNo++ ) {
+			args[argNo] = args[argNo].trim();
+		}
+		return args;
+	}
+
+	/**
+	 * Create an agent from transformer command line arguments.
+	 *
+	 * @param args Transformer command line arguments.
+	 *
+	 * @return The new agent.
+	 *
+	 * @throws ParseException Thrown if the arguments could not be parsed.
+	 * @throws TransformException Thrown if the rules could not be loaded.
+	 */
+	public static TransformAgent create(String[] args) throws ParseException, TransformException {
+		Transformer transformer = new Transformer(System.out, System.err);
+		transformer.setArgs(args);
+		transformer.setParsedArgs(); // throws ParseException
+
+		TransformOptions options = transformer.getTransformOptions();
+		options.setLogging();
+
+		boolean loadedRules;
+		try {
+			loadedRules = options.setRules();
+		} catch ( Exception e ) {
+			throw new TransformException("Failed to load transformation rules", e);
+		}
+		if ( !loadedRules ) {
+			throw new TransformException("Transformation rules cannot be used");
+		}
+
+		TransformCache cache;
+		String cacheDirName = transformer.getOptionValue(AppOption.CLASS_CACHE);
+		if ( cacheDirName == null ) {
+			cache = null;
+		} else {
+			cache = new TransformCache( new File(cacheDirName), options.getRulesFingerprint() );
+		}
+
+		return new TransformAgent(options, cache);
+	}
+
+	public TransformAgent(TransformOptions options, TransformCache cache) {
+		this.options = options;
+		this.logger = options.getLogger();
+		this.cache = cache;
+	}
+
+	//
+
+	private final TransformOptions options;
+	private final LoggerImpl logger;
+
+	public TransformOptions getOptions() {
+		return options;
+	}
+
+	public LoggerImpl getLogger() {
+		return logger;
+	}
+
+	public void verbose(String text, Object... parms) {
+		getLogger().verbose(text, parms);
+	}
+
+	public void error(String message, Throwable th, Object... parms) {
+		getLogger().error(message, th, parms);
+	}
+
+	private final TransformCache cache;
+
+	public TransformCache getCache() {
+		return cache;
+	}
+
+	//
+
+	private final AtomicInteger screened = new AtomicInteger();
+	private final AtomicInteger transformed = new AtomicInteger();
+	private final AtomicInteger unchanged = new AtomicInteger();
+	private final AtomicInteger cached = new AtomicInteger();
+
+	/** Count of classes which were skipped by screening. */
+	public int getScreened() {
+		return screened.get();
+	}
+
+	/** Count of classes which were changed, including classes obtained from the cache. */
+	public int getTransformed() {
+		return transformed.get();
+	}
+
+	/** Count of classes which were not changed, including classes obtained from the cache. */
+	public int getUnchanged() {
+		return unchanged.get();
+	}
+
+	/** Count of classes which were obtained from the cache. */
+	public int getCached() {
+		return cached.get();
+	}
+
+	//
+
+	// Transforming a class may load classes of the transformer, which
+	// must not themselves be transformed.
+
+	private final ThreadLocal<Boolean> active = new ThreadLocal<Boolean>();
+
+	@Override
+	public byte[] transform(
+		ClassLoader loader, String className, Class<?> classBeingRedefined,
+		ProtectionDomain protectionDomain, byte[] classBytes) {
+
+		// Classes of the bootstrap loader are JDK classes, which are never
+		// transformed.
+		if ( (loader == null) || (className == null) || (active.get() != null) ) {
+			return null;
+		}
+
+		active.set(Boolean.TRUE);
+		try {
+			return transform(className, classBytes);
+		} catch ( Throwable th ) {
+			error("Failed to transform class [ %s ]\n", th, className);
+			return null;
+		} finally {
+			active.remove();
+		}
+	}
+
+	/**
+	 * Transform the bytes of a class.
+	 *
+	 * @param className The binary name of the class, using '/' separators.
+	 * @param classBytes The bytes of the class.
+	 *
+	 * @return The transformed bytes of the class.  Null if the class was not
+	 *     changed.
+	 *
+	 * @throws TransformException Thrown if the class could not be transformed.
+	 */
+	public byte[] transform(String className, byte[] classBytes) throws TransformException {
+		String resourceName = className + ".class";
+
+		ActionImpl action = options.getThreadRootAction().acceptAction(resourceName, null);
+		if ( !(action instanceof ClassActionImpl) || !action.select(resourceName) ) {
+			return null;
+		}
+		ClassActionImpl classAction = (ClassActionImpl) action;
+
+		if ( !classAction.getSignatureRule().mayReference(classBytes, 0, classBytes.length) ) {
+			screened.incrementAndGet();
+			return null;
+		}
+
+		String key;
+		if ( cache == null ) {
+			key = null;
+		} else {
+			key = cache.getKey(classBytes, 0, classBytes.length);
+			byte[] cachedBytes;
+			try {
+				cachedBytes = cache.read(key); // throws IOException
+			} catch ( IOException e ) {
+				error("Failed to read cached class [ %s ]\n", e, className);
+				cachedBytes = null;
+			}
+			if ( cachedBytes != null ) {
+				cached.incrementAndGet();
+				if ( cachedBytes == TransformCache.UNCHANGED ) {
+					unchanged.incrementAndGet();
+					return null;
+				} else {
+					transformed.incrementAndGet();
+					return cachedBytes;
+				}
+			}
+		}
+
+		ByteData outputData = classAction.apply(resourceName, classBytes, classBytes.length);
+		// throws TransformException
+
+		// A class which is renamed cannot be defined using the name which
+		// was requested by the class loader.
+
+		if ( (outputData == null) || !classAction.hasChanges() ||
+			 !className.equals( classAction.getChanges().getOutputClassName() ) ) {
+
+			unchanged.incrementAndGet();
+			if ( key != null ) {
+				try {
+					cache.writeUnchanged(key); // throws IOException
+				} catch ( IOException e ) {
+					error("Failed to cache class [ %s ]\n", e, className);
+				}
+			}
+			return null;
+		}
+
+		byte[] outputBytes;
+		if ( (outputData.offset == 0) && (outputData.length == outputData.data.length) ) {
+			outputBytes = outputData.data;
+		} else {
+			outputBytes = new byte[ outputData.length ];
+			System.arraycopy(outputData.data, outputData.offset, outputBytes, 0, outputData.length);
+		}
+
+		transformed.incrementAndGet();
+		verbose("Transformed class [ %s ]\n", className);
+
+		if ( key != null ) {
+			try {
+				cache.write(key, outputBytes, 0, outputBytes.length); // throws IOException
+			} catch ( IOException e ) {
+				error("Failed to cache class [ %s ]\n", e, className);
+			}
+		}
+
+		return outputBytes;
+	}
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.transformer.action.impl.ActionImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Class loader which transforms classes and service loader configuration
+ * files as they are loaded from the class loader URLs.
+ *
+ * The class loader is parallel capable: Each loading thread obtains its own
+ * action tree from the action supplier.  Transformed bytes are not retained
+ * by the class loader: Class bytes are discarded after the class is defined,
+ * and resource bytes are held by the URL connection which was opened to read
+ * the resource, and are discarded with that connection.
+ *
+ * Service loader configuration files are visible using their transformed
+ * names: A request for "META-INF/services/jakarta.servlet.ServletContainerInitializer"
+ * answers "META-INF/services/javax.servlet.ServletContainerInitializer" from the
+ * class loader URLs, with transformed content, and the untransformed name is
+ * not visible.
+ */
+public class TransformClassLoader extends URLClassLoader {
+	static {
+		registerAsParallelCapable();
+	}
+
+	public static final String CLASS_EXTENSION = ".class";
+
+	public TransformClassLoader(
+		URL[] urls, ClassLoader parent,
+		Supplier<? extends CompositeActionImpl> actionSupplier) {
+
+		super(urls, parent);
+
+		this.rootActions = ThreadLocal.withInitial(actionSupplier);
+	}
+
+	//
+
+	private final ThreadLocal<? extends CompositeActionImpl> rootActions;
+
+	public CompositeActionImpl getRootAction() {
+		return rootActions.get();
+	}
+
+	/**
+	 * Answer the action which transforms a resource.
+	 *
+	 * @param resourceName The name of the resource.
+	 *
+	 * @return The class or service configuration action which accepts and
+	 *     selects the resource.  Null if the resource is not transformed.
+	 */
+	public ActionImpl getAction(String resourceName) {
+		ActionImpl action = getRootAction().acceptAction(resourceName, null);
+		if ( !(action instanceof ClassActionImpl) && !(action instanceof ServiceLoaderConfigActionImpl) ) {
+			return null;
+		} else if ( !action.select(resourceName) ) {
+			return null;
+		} else {
+			return action;
+		}
+	}
+
+	//
+
+	/**
+	 * Answer the transformed bytes of a resource.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param baseURL The URL of the untransformed resource.
+	 *
+	 * @return The transformed bytes.  The untransformed bytes if the resource
+	 *     was not changed.
+	 *
+	 * @throws IOException Thrown if the resource could not be read or transformed.
+	 */
+	protected byte[] getTransformedBytes(String resourceName, URL baseURL)
+		throws IOException {
+
+		String key = baseURL.toString();
+
+		byte[] inputBytes;
+		try ( InputStream inputStream = baseURL.openStream() ) { // throws IOException
+			ByteData inputData = FileUtils.read(key, inputStream); // throws IOException
+			inputBytes = copy(inputData);
+		}
+
+		try {
+			return transform(resourceName, inputBytes); // throws TransformException
+		} catch ( TransformException e ) {
+			throw new IOException("Failed to transform [ " + key + " ]", e);
+		}
+	}
+
+	protected byte[] transform(String resourceName, byte[] inputBytes) throws TransformException {
+		ActionImpl action = getAction(resourceName);
+		if ( action == null ) {
+			return inputBytes;
+		}
+		if ( !action.getSignatureRule().mayReference(inputBytes, 0, inputBytes.length) ) {
+			return inputBytes;
+		}
+
+		ByteData outputData = action.apply(resourceName, inputBytes, inputBytes.length);
+		// throws TransformException
+		if ( (outputData == null) || !action.hasChanges() ) {
+			return inputBytes;
+		}
+
+		// A class which is renamed cannot be defined using the requested name.
+
+		if ( action instanceof ClassActionImpl ) {
+			ClassActionImpl classAction = (ClassActionImpl) action;
+			String inputClassName = resourceName.substring(0, resourceName.length() - CLASS_EXTENSION.length());
+			if ( !inputClassName.equals( classAction.getChanges().getOutputClassName() ) ) {
+				return inputBytes;
+			}
+		}
+
+		return copy(outputData);
+	}
+
+	private static byte[] copy(ByteData data) {
+		if ( (data.offset == 0) && (data.length == data.data.length) ) {
+			return data.data;
+		}
+		byte[] bytes = new byte[ data.length ];
+		System.arraycopy(data.data, data.offset, bytes, 0, data.length);
+		return bytes;
+	}
+
+	//
+
+	@Override
+	protected Class<?> findClass(String className) throws ClassNotFoundException {
+		String resourceName = className.replace('.', '/') + CLASS_EXTENSION;
+
+		URL baseURL = super.findResource(resourceName);
+		if ( baseURL == null ) {
+			throw new ClassNotFoundException(className);
+		}
+
+		byte[] classBytes;
+		try {
+			classBytes = getTransformedBytes(resourceName, baseURL); // throws IOException
+		} catch ( IOException e ) {
+			throw new ClassNotFoundException(className, e);
+		}
+
+		int lastDot = className.lastIndexOf('.');
+		if ( lastDot != -1 ) {
+			String packageName = className.substring(0, lastDot);
+			if ( getPackage(packageName) == null ) {
+				try {
+					definePackage(packageName, null, null, null, null, null, null, null);
+				} catch ( IllegalArgumentException e ) {
+					// Defined by a concurrent load.
+				}
+			}
+		}
+
+		return defineClass(className, classBytes, 0, classBytes.length, getCodeSource(resourceName, baseURL));
+	}
+
+	protected CodeSource getCodeSource(String resourceName, URL baseURL) {
+		String baseText = baseURL.toString();
+
+		String locationText;
+		if ( baseText.startsWith("jar:") && (baseText.indexOf("!/") != -1) ) {
+			locationText = baseText.substring( "jar:".length(), baseText.indexOf("!/") );
+		} else if ( baseText.endsWith(resourceName) ) {
+			locationText = baseText.substring(0, baseText.length() - resourceName.length());
+		} else {
+			locationText = baseText;
+		}
+
+		try {
+			return new CodeSource( new URL(locationText), (Certificate[]) null );
+		} catch ( MalformedURLException e ) {
+			return new CodeSource( baseURL, (Certificate[]) null );
+		}
+	}
+
+	//
+
+	// Service configuration names: The transformed name of a service configuration
+	// file is obtained by renaming the package of the service.  Lookups of a
+	// transformed name must find the resources which have the untransformed name.
+
+	private volatile Map<String, List<String>> inverseRenames;
+
+	protected Map<String, List<String>> getInverseRenames() {
+		Map<String, List<String>> useInverseRenames = inverseRenames;
+		if ( useInverseRenames == null ) {
+			useInverseRenames = new HashMap<String, List<String>>();
+			for ( Map.Entry<String, String> renameEntry : getRootAction().getSignatureRule().getPackageRenames().entrySet() ) {
+				useInverseRenames
+					.computeIfAbsent( renameEntry.getValue(), (String finalName) -> new ArrayList<String>(1) )
+					.add( renameEntry.getKey() );
+			}
+			inverseRenames = useInverseRenames;
+		}
+		return useInverseRenames;
+	}
+
+	protected static boolean isServiceConfig(String resourceName) {
+		return resourceName.startsWith(ServiceLoaderConfigActionImpl.META_INF_SERVICES);
+	}
+
+	protected static String getServicePackage(String resourceName) {
+		String serviceName = resourceName.substring( ServiceLoaderConfigActionImpl.META_INF_SERVICES.length() );
+		int lastDot = serviceName.lastIndexOf('.');
+		return ( (lastDot <= 0) ? null : serviceName.substring(0, lastDot) );
+	}
+
+	protected boolean isRenamedService(String resourceName) {
+		String packageName = getServicePackage(resourceName);
+		return ( (packageName != null) &&
+		         (getRootAction().getSignatureRule().replacePackage(packageName) != null) );
+	}
+
+	protected List<String> getUntransformedNames(String resourceName) {
+		String packageName = getServicePackage(resourceName);
+		if ( packageName == null ) {
+			return Collections.emptyList();
+		}
+		List<String> initialPackages = getInverseRenames().get(packageName);
+		if ( initialPackages == null ) {
+			return Collections.emptyList();
+		}
+
+		String className = resourceName.substring( ServiceLoaderConfigActionImpl.META_INF_SERVICES.length() + packageName.length() );
+		List<String> untransformedNames = new ArrayList<String>( initialPackages.size() );
+		for ( String initialPackage : initialPackages ) {
+			untransformedNames.add( ServiceLoaderConfigActionImpl.META_INF_SERVICES + initialPackage + className );
+		}
+		return untransformedNames;
+	}
+
+	//
+
+	@Override
+	public URL findResource(String resourceName) {
+		if ( isServiceConfig(resourceName) ) {
+			try {
+				Enumeration<URL> urls = findResources(resourceName); // throws IOException
+				return ( urls.hasMoreElements() ? urls.nextElement() : null );
+			} catch ( IOException e ) {
+				return null;
+			}
+		}
+
+		URL baseURL = super.findResource(resourceName);
+		if ( (baseURL == null) || (getAction(resourceName) == null) ) {
+			return baseURL;
+		}
+		return transform(resourceName, baseURL);
+	}
+
+	@Override
+	public Enumeration<URL> findResources(String resourceName) throws IOException {
+		if ( !isServiceConfig(resourceName) ) {
+			Enumeration<URL> baseURLs = super.findResources(resourceName); // throws IOException
+			if ( !baseURLs.hasMoreElements() || (getAction(resourceName) == null) ) {
+				return baseURLs;
+			}
+			List<URL> urls = new ArrayList<URL>();
+			while ( baseURLs.hasMoreElements() ) {
+				urls.add( transform(resourceName, baseURLs.nextElement()) );
+			}
+			return Collections.enumeration(urls);
+		}
+
+		List<URL> urls = new ArrayList<URL>();
+
+		if ( !isRenamedService(resourceName) ) {
+			addTransformed(resourceName, super.findResources(resourceName), urls); // throws IOException
+		}
+		for ( String untransformedName : getUntransformedNames(resourceName) ) {
+			addTransformed(untransformedName, super.findResources(untransformedName), urls); // throws IOException
+		}
+
+		return Collections.enumeration(urls);
+	}
+
+	protected void addTransformed(String resourceName, Enumeration<URL> baseURLs, List<URL> urls) {
+		boolean transform = ( getAction(resourceName) != null );
+		while ( baseURLs.hasMoreElements() ) {
+			URL baseURL = baseURLs.nextElement();
+			urls.add( transform ? transform(resourceName, baseURL) : baseURL );
+		}
+	}
+
+	protected URL transform(String resourceName, URL baseURL) {
+		try {
+			return new URL( null, baseURL.toString(), new TransformURLStreamHandler(resourceName, baseURL) );
+		} catch ( MalformedURLException e ) {
+			return baseURL;
+		}
+	}
+
+	//
+
+	/**
+	 * URL handler which answers transformed resource bytes.  The base URL is
+	 * used for all other connection details.
+	 */
+	protected class TransformURLStreamHandler extends URLStreamHandler {
+		private final String resourceName;
+		private final URL baseURL;
+
+		public TransformURLStreamHandler(String resourceName, URL baseURL) {
+			this.resourceName = resourceName;
+			this.baseURL = baseURL;
+		}
+
+		@Override
+		protected URLConnection openConnection(URL url) throws IOException {
+			return new TransformURLConnection(url, resourceName, baseURL.openConnection());
+			// 'openConnection' throws IOException
+		}
+	}
+
+	/**
+	 * Connection which answers transformed resource bytes.  The bytes are
+	 * transformed at most once for each connection, and are discarded with
+	 * the connection.
+	 */
+	protected class TransformURLConnection extends URLConnection {
+		private final String resourceName;
+		private final URLConnection baseConnection;
+		private byte[] transformedBytes;
+
+		public TransformURLConnection(URL url, String resourceName, URLConnection baseConnection) {
+			super(url);
+
+			this.resourceName = resourceName;
+			this.baseConnection = baseConnection;
+		}
+
+		@Override
+		public void connect() throws IOException {
+			baseConnection.connect(); // throws IOException
+			connected = true;
+		}
+
+		protected synchronized byte[] getTransformedBytes() throws IOException {
+			if ( transformedBytes == null ) {
+				transformedBytes = TransformClassLoader.this.getTransformedBytes(resourceName, baseConnection.getURL());
+				// throws IOException
+			}
+			return transformedBytes;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return new ByteArrayInputStream( getTransformedBytes() ); // throws IOException
+		}
+
+		@Override
+		public long getLastModified() {
+			return baseConnection.getLastModified();
+		}
+
+		@Override
+		public String getContentType() {
+			return baseConnection.getContentType();
+		}
+
+		@Override
+		public int getContentLength() {
+			try {
+				return getTransformedBytes().length; // throws IOException
+			} catch ( IOException e ) {
+				return -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.transformer.Transformer.BatchResult;
+import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+
+/**
+ * Resident transformer which receives transform requests on a loopback
+ * socket.  The transformation rules are loaded once, and remain loaded,
+ * together with their caches, between requests.
+ *
+ * The protocol is line based, using UTF-8 text.  Each request is a single
+ * line of tab separated fields, and receives a single line response of tab
+ * separated fields.  A connection may send any number of requests.
+ *
+ * Connections must authenticate before sending requests.  Each daemon has a
+ * random token, which is written to a token file which is readable only by
+ * the user which runs the daemon.  The first line of each connection must
+ * be an authentication request which provides the token.  A connection which
+ * does not authenticate receives "ERROR Not authenticated", and is closed.
+ *
+ * Connections which send no request for the idle timeout are closed, so that
+ * idle connections do not hold daemon threads.
+ *
+ * <pre>
+ * auth &lt;token&gt;
+ *     OK auth
+ * transform &lt;input&gt; [ &lt;output&gt; [ overwrite ] ]
+ *     OK &lt;CHANGED | UNCHANGED&gt; &lt;output&gt; &lt;action&gt; &lt;changed&gt; &lt;resources&gt; &lt;millis&gt;
+ *     FAILED &lt;input&gt; &lt;failure&gt;
+ * ping
+ *     OK pong
+ * shutdown
+ *     OK shutdown
+ * </pre>
+ *
+ * Input and output paths must be absolute: The daemon does not share the
+ * working directory of its clients.  An empty output field selects the default
+ * output name.  The changed and resources counts are -1 for simple inputs.  A request which cannot be
+ * parsed receives "ERROR &lt;message&gt;".
+ */
+public class TransformDaemon {
+	public static final String SEPARATOR = "\t";
+
+	public static final String AUTH_REQUEST = "auth";
+	public static final String TRANSFORM_REQUEST = "transform";
+	public static final String PING_REQUEST = "ping";
+	public static final String SHUTDOWN_REQUEST = "shutdown";
+
+	public static final String OVERWRITE_OPTION = "overwrite";
+
+	public static final String OK_RESPONSE = "OK";
+	public static final String FAILED_RESPONSE = "FAILED";
+	public static final String ERROR_RESPONSE = "ERROR";
+
+	public static final String CHANGED_STATUS = "CHANGED";
+	public static final String UNCHANGED_STATUS = "UNCHANGED";
+
+	public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+
+	public static final int TOKEN_LENGTH = 32;
+
+	private static final boolean OWNER_ONLY = true;
+
+	public TransformDaemon(LoggerImpl logger, TransformOptions options, int port, int threads) {
+		this.logger = logger;
+		this.options = options;
+
+		this.requestedPort = port;
+		this.threads = threads;
+
+		this.token = createToken();
+		this.idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+	}
+
+	//
+
+	private final LoggerImpl logger;
+
+	public LoggerImpl getLogger() {
+		return logger;
+	}
+
+	public void log(String text, Object... parms) {
+		getLogger().log(text, parms);
+	}
+
+	public void verbose(String text, Object... parms) {
+		getLogger().verbose(text, parms);
+	}
+
+	public void error(String message, Throwable th, Object... parms) {
+		getLogger().error(message, th, parms);
+	}
+
+	//
+
+	private final TransformOptions options;
+
+	public TransformOptions getOptions() {
+		return options;
+	}
+
+	private final int requestedPort;
+	private final int threads;
+
+	private volatile ServerSocket serverSocket;
+	private ExecutorService executor;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	//
+
+	private final String token;
+
+	protected static String createToken() {
+		byte[] tokenBytes = new byte[TOKEN_LENGTH];
+		new SecureRandom().nextBytes(tokenBytes);
+
+		StringBuilder tokenText = new StringBuilder(TOKEN_LENGTH * 2);
+		for ( byte tokenByte : tokenBytes ) {
+			tokenText.append( String.format("%02x", tokenByte & 0xFF) );
+		}
+		return tokenText.toString();
+	}
+
+	/**
+	 * Answer the token which connections must provide to authenticate.
+	 *
+	 * @return The authentication token of the daemon.
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Write the authentication token to a file.  The file is created to be
+	 * readable and writable only by its owner.  An existing file is not
+	 * replaced: The file, or a link at its location, may have been placed
+	 * by another user.
+	 *
+	 * @param tokenFile The file which is to receive the token.
+	 *
+	 * @throws IOException Thrown if the token could not be written, including
+	 *     a {@link java.nio.file.FileAlreadyExistsException} if the file exists.
+	 */
+	public void writeToken(File tokenFile) throws IOException {
+		Path tokenPath = tokenFile.toPath();
+
+		if ( tokenPath.getFileSystem().supportedFileAttributeViews().contains("posix") ) {
+			Set<PosixFilePermission> ownerOnly =
+				EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+			Files.createFile( tokenPath, PosixFilePermissions.asFileAttribute(ownerOnly) );
+			// throws IOException
+		} else {
+			Files.createFile(tokenPath); // throws IOException
+			// Remove access by all, then restore access by the owner.
+			tokenFile.setReadable(false, !OWNER_ONLY);
+			tokenFile.setWritable(false, !OWNER_ONLY);
+			tokenFile.setReadable(true, OWNER_ONLY);
+			tokenFile.setWritable(true, OWNER_ONLY);
+		}
+
+		Files.write( tokenPath, token.getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING );
+		// throws IOException
+	}
+
+	protected boolean authenticate(String request) {
+		String[] fields = request.split(SEPARATOR, -1);
+		if ( (fields.length != 2) || !fields[0].equals(AUTH_REQUEST) ) {
+			return false;
+		}
+		// Use a constant time comparison, which does not disclose how much
+		// of the token matched.
+		return MessageDigest.isEqual(
+			fields[1].getBytes(StandardCharsets.UTF_8),
+			token.getBytes(StandardCharsets.UTF_8) );
+	}
+
+	//
+
+	private volatile int idleTimeoutMillis;
+
+	public int getIdleTimeout() {
+		return idleTimeoutMillis;
+	}
+
+	/**
+	 * Set the time after which a connection which sends no request is
+	 * closed.  The default is {@link #DEFAULT_IDLE_TIMEOUT_MILLIS}.
+	 *
+	 * @param timeoutMillis The idle timeout, in milliseconds.  Zero
+	 *     disables the timeout.
+	 */
+	public void setIdleTimeout(int timeoutMillis) {
+		idleTimeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Answer the port on which the daemon is listening.
+	 *
+	 * @return The port on which the daemon is listening.  -1 if the
+	 *     daemon is not started.
+	 */
+	public int getPort() {
+		ServerSocket useServerSocket = serverSocket;
+		return ( (useServerSocket == null) ? -1 : useServerSocket.getLocalPort() );
+	}
+
+	/**
+	 * Answer the count of transform requests which have been received.
+	 *
+	 * @return The count of transform requests.
+	 */
+	public int getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Start listening for connections.  Only loopback connections are
+	 * possible.  Connections are accepted by {@link #serve()}.
+	 *
+	 * @throws IOException Thrown if the daemon port could not be bound.
+	 */
+	public void start() throws IOException {
+		ServerSocket useServerSocket = new ServerSocket();
+		try {
+			useServerSocket.bind( new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort) );
+			// throws IOException
+		} catch ( IOException e ) {
+			useServerSocket.close();
+			throw e;
+		}
+
+		AtomicInteger threadCount = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, (Runnable runnable) -> {
+			Thread thread = new Thread(runnable, "transformer-daemon-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		serverSocket = useServerSocket;
+		log("Daemon listening on [ %s ] using [ %s ] threads\n",
+			useServerSocket.getLocalSocketAddress(), threads);
+	}
+
+	/**
+	 * Stop the daemon.  Causes {@link #serve()} to return.  Requests
+	 * which are in progress are completed.
+	 */
+	public void stop() {
+		ServerSocket useServerSocket = serverSocket;
+		if ( useServerSocket != null ) {
+			try {
+				useServerSocket.close();
+			} catch ( IOException e ) {
+				error("Failed to close daemon socket [ %s ]\n", e, useServerSocket);
+			}
+		}
+	}
+
+	/**
+	 * Accept connections until the daemon is stopped.
+	 */
+	public void serve() {
+		ServerSocket useServerSocket = serverSocket;
+		try {
+			while ( true ) {
+				Socket socket = useServerSocket.accept(); // throws IOException
+				try {
+					executor.execute( () -> handle(socket) );
+				} catch ( RejectedExecutionException e ) {
+					close(socket);
+				}
+			}
+
+		} catch ( IOException e ) {
+			if ( !useServerSocket.isClosed() ) {
+				error("Daemon failure on [ %s ]\n", e, useServerSocket);
+			}
+
+		} finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1L, TimeUnit.MINUTES);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			log("Daemon stopped after [ %s ] requests\n", requests.get());
+		}
+	}
+
+	protected void close(Socket socket) {
+		try {
+			socket.close();
+		} catch ( IOException e ) {
+			// Nothing to do: The client has disconnected.
+		}
+	}
+
+	protected void handle(Socket socket) {
+		try {
+			socket.setSoTimeout(idleTimeoutMillis); // throws SocketException
+
+			BufferedReader reader = new BufferedReader(
+				new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8) );
+			PrintWriter writer = new PrintWriter(
+				new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8) );
+
+			boolean authenticated = false;
+
+			String request;
+			while ( (request = reader.readLine()) != null ) { // throws IOException
+				if ( request.isEmpty() ) {
+					continue;
+				}
+
+				String response;
+				if ( authenticated ) {
+					response = respond(request);
+				} else if ( authenticate(request) ) {
+					authenticated = true;
+					response = OK_RESPONSE + SEPARATOR + AUTH_REQUEST;
+				} else {
+					response = null;
+				}
+
+				if ( response == null ) {
+					verbose("Daemon connection not authenticated [ %s ]\n", socket);
+					writer.print(ERROR_RESPONSE + SEPARATOR + "Not authenticated");
+					writer.print('\n');
+					writer.flush();
+					break;
+				}
+
+				writer.print(response);
+				writer.print('\n');
+				writer.flush();
+			}
+
+		} catch ( SocketTimeoutException e ) {
+			verbose("Daemon connection idle [ %s ]: %s\n", socket, e);
+
+		} catch ( SocketException e ) {
+			verbose("Daemon connection closed [ %s ]: %s\n", socket, e);
+
+		} catch ( IOException e ) {
+			error("Daemon connection failure [ %s ]\n", e, socket);
+
+		} finally {
+			close(socket);
+		}
+	}
+
+	/**
+	 * Answer the response to a single request.
+	 *
+	 * @param request The request line, without its line terminator.
+	 *
+	 * @return The response line, without a line terminator.
+	 */
+	public String respond(String request) {
+		String[] fields = request.split(SEPARATOR, -1);
+		String command = fields[0];
+
+		if ( command.equals(PING_REQUEST) ) {
+			return OK_RESPONSE + SEPARATOR + "pong";
+
+		} else if ( command.equals(SHUTDOWN_REQUEST) ) {
+			stop();
+			return OK_RESPONSE + SEPARATOR + SHUTDOWN_REQUEST;
+
+		} else if ( !command.equals(TRANSFORM_REQUEST) ) {
+			return ERROR_RESPONSE + SEPARATOR + "Unknown request [ " + command + " ]";
+
+		} else if ( (fields.length < 2) || fields[1].isEmpty() ) {
+			return ERROR_RESPONSE + SEPARATOR + "No input specified";
+		}
+
+		String inputName = fields[1];
+		if ( !new File(inputName).isAbsolute() ) {
+			return ERROR_RESPONSE + SEPARATOR + "Input is not an absolute path [ " + inputName + " ]";
+		}
+
+		String outputName = ( ((fields.length < 3) || fields[2].isEmpty()) ? null : fields[2] );
+		if ( (outputName != null) && !new File(outputName).isAbsolute() ) {
+			return ERROR_RESPONSE + SEPARATOR + "Output is not an absolute path [ " + outputName + " ]";
+		}
+
+		boolean allowOverwrite = options.allowOverwrite;
+		for ( int fieldNo = 3; fieldNo < fields.length; fieldNo++ ) {
+			if ( fields[fieldNo].equals(OVERWRITE_OPTION) ) {
+				allowOverwrite = true;
+			} else {
+				return ERROR_RESPONSE + SEPARATOR + "Unknown option [ " + fields[fieldNo] + " ]";
+			}
+		}
+
+		requests.incrementAndGet();
+
+		BatchResult result = options.transformBatchInput(inputName, outputName, allowOverwrite);
+
+		verbose("Daemon transform [ %s ] -> [ %s ]: [ %s ms ] [ %s ]\n",
+			result.inputName, result.outputName, result.elapsedMillis,
+			( result.succeeded() ? "Success" : result.failure ));
+
+		if ( !result.succeeded() ) {
+			return FAILED_RESPONSE + SEPARATOR + result.inputName + SEPARATOR + asField(result.failure);
+		} else {
+			return OK_RESPONSE +
+				SEPARATOR + ( result.hasChanges ? CHANGED_STATUS : UNCHANGED_STATUS ) +
+				SEPARATOR + result.outputName +
+				SEPARATOR + result.actionName +
+				SEPARATOR + result.allChanged +
+				SEPARATOR + result.allResources +
+				SEPARATOR + result.elapsedMillis;
+		}
+	}
+
+	/**
+	 * Make text safe for use as a response field: Failure text may contain
+	 * separators or line terminators.
+	 *
+	 * @param text Text which is to be used as a field.
+	 *
+	 * @return The text with separators and line terminators replaced by spaces.
+	 */
+	protected static String asField(String text) {
+		return text.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+	}
+}
@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -135,6 +136,31 @@ public class TransformProperties {
 		return packageVersions;
 	}
 
+	/**
+	 * Obtain the extensions of text resources from text properties.
+	 *
+	 * Each key is a resource extension, optionally with a leading
+	 * wildcard, for example, "*.properties".  Extensions are answered
+	 * in lower case and without a leading wildcard.
+	 *
+	 * @param textProperties Properties containing text resource extensions.
+	 *
+	 * @return The text resource extensions.
+	 */
+	public static Set<String> getTextExtensions(UTF8Properties textProperties) {
+		Set<String> textExtensions = new HashSet<String>( textProperties.size() );
+		for ( Object textKey : textProperties.keySet() ) {
+			String extension = ((String) textKey).trim();
+			if ( !extension.isEmpty() && (extension.charAt(0) == RESOURCE_WILDCARD) ) {
+				extension = extension.substring(1);
+			}
+			if ( !extension.isEmpty() ) {
+				textExtensions.add( extension.toLowerCase() );
+			}
+		}
+		return textExtensions;
+	}
+
 	public static Map<String, BundleData> getBundleUpdates(UTF8Properties updateProperties) {
 		Map<String, BundleData> bundleUpdates = new HashMap<String, BundleData>( updateProperties.size() );
 		for ( Map.Entry<Object, Object> updateEntry : updateProperties.entrySet() ) {
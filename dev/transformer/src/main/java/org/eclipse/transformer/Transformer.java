@@ -26,10 +26,21 @@ import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -41,24 +52,21 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.Changes;
+import org.eclipse.transformer.action.ContainerChanges;
 import org.eclipse.transformer.action.impl.ActionImpl;
-import org.eclipse.transformer.action.impl.ClassActionImpl;
 import org.eclipse.transformer.action.impl.CompositeActionImpl;
 import org.eclipse.transformer.action.impl.DirectoryActionImpl;
-import org.eclipse.transformer.action.impl.EarActionImpl;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
-import org.eclipse.transformer.action.impl.JarActionImpl;
-import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.LoggerImpl;
-import org.eclipse.transformer.action.impl.ManifestActionImpl;
-import org.eclipse.transformer.action.impl.NullActionImpl;
-import org.eclipse.transformer.action.impl.RarActionImpl;
+import org.eclipse.transformer.action.impl.MetricsImpl;
 import org.eclipse.transformer.action.impl.SelectionRuleImpl;
-import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
 import org.eclipse.transformer.action.impl.SignatureRuleImpl;
-import org.eclipse.transformer.action.impl.WarActionImpl;
-import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.jfr.TransformEvents;
+import org.eclipse.transformer.report.ReportWriter;
+import org.eclipse.transformer.report.TopResources;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.RunManifest;
 
 import aQute.lib.io.IO;
 import aQute.lib.utf8properties.UTF8Properties;
@@ -196,6 +204,7 @@ public class Transformer {
     public static final String DEFAULT_RENAMES_REFERENCE = "jakarta-renames.properties";
     public static final String DEFAULT_VERSIONS_REFERENCE = "jakarta-versions.properties";
     public static final String DEFAULT_BUNDLES_REFERENCE = "jakarta-bundles.properties";
+    public static final String DEFAULT_TEXT_REFERENCE = "jakarta-text.properties";
 
     public static enum AppOption {
         USAGE  ("u", "usage",    "Display usage",
@@ -217,6 +226,12 @@ public class Transformer {
             OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
         RULES_DIRECT("td", "direct", "Transformation direct string replacements",
             OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        RULES_TEXT("tx", "text", "Transformation text resource extensions URL",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        RULES_COMPILED("tc", "compiled", "Compiled transformation rules file",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        COMPILE_RULES("cr", "compileRules", "Write the transformation rules to a compiled rules file",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
 
         INVERT("i", "invert", "Invert transformation rules",
            	!OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
@@ -225,6 +240,33 @@ public class Transformer {
             OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
         OVERWRITE("o", "overwrite", "Overwrite",
             !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        LINK("ln", "link", "Hard link copied and unchanged files of directory transforms",
+            !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        INCREMENTAL("in", "incremental", "Incremental directory transform state file",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        WATCH("w", "watch", "Watch the input directory and transform changes",
+            !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+        BATCH("b", "batch", "Transform input and output pairs",
+            !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        BATCH_FILE("bf", "batchFile", "Transform input and output pairs listed in a file",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        THREADS("th", "threads", "Count of concurrent batch or daemon transforms",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        CLASS_CACHE("cc", "classCache", "Directory which caches transformed classes for load time transformation",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        DAEMON("dm", "daemon", "Run as a daemon which receives transform requests on a loopback port",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        DAEMON_TOKEN("dt", "daemonToken", "New file which receives the daemon authentication token; defaults to a file in a new temporary directory",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        METRICS("mt", "metrics", "Display timing and throughput metrics of each type of action",
+            !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        TOP("tp", "top", "Display the specified count of slowest and of largest resources",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        EVENTS("jfr", "flightRecorder", "Emit flight recorder events for transform operations",
+            !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        REPORT("rp", "report", "Write a JSON report of the transform, or a CSV report if the file name ends with '.csv'",
+            OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
 
     	DRYRUN("d", "dryrun", "Dry run",
                 !OptionSettings.HAS_ARG, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP);
@@ -462,6 +504,34 @@ public class Transformer {
         return new TransformOptions();
     }
 
+    /**
+     * Result of transforming one input of a batch.
+     */
+    public static class BatchResult {
+    	public BatchResult(String inputName) {
+    		this.inputName = inputName;
+    	}
+
+    	public final String inputName;
+    	public String outputName;
+    	public String actionName;
+
+    	public boolean hasChanges;
+    	/** Count of resources of a container input.  -1 for a simple input. */
+    	public int allResources = -1;
+    	/** Count of changed resources of a container input.  -1 for a simple input. */
+    	public int allChanged = -1;
+
+    	public long elapsedMillis;
+
+    	/** Description of the failure of the transform.  Null if the transform succeeded. */
+    	public String failure;
+
+    	public boolean succeeded() {
+    		return ( failure == null );
+    	}
+    }
+
     public class TransformOptions {
     	public boolean isVerbose;
     	public boolean isTerse;
@@ -471,9 +541,12 @@ public class Transformer {
 
     	public boolean invert;
     	public Map<String, String> packageRenames;
+    	/** Package renames in binary form.  Set only when compiled rules are used. */
+    	public Map<String, String> binaryPackageRenames;
     	public Map<String, String> packageVersions;
     	public Map<String, BundleData> bundleUpdates;
     	public Map<String, String> directStrings;
+    	public Set<String> textExtensions;
 
     	public CompositeActionImpl rootAction;
     	public ActionImpl acceptedAction;
@@ -529,12 +602,138 @@ public class Transformer {
     		return buffer;
     	}
 
+    	/** Metrics shared by all action trees.  Null unless metrics, top resources, or a report were requested. */
+    	public MetricsImpl metrics;
+
+    	/** Tracker of the slowest and largest resources.  Null unless top resources were requested. */
+    	public TopResources topResources;
+
+    	/**
+    	 * Create the metrics, if metrics, top resources, or a report were requested.
+    	 *
+    	 * @return True or false telling if the metrics options are valid.
+    	 */
+    	protected boolean setMetrics() {
+    		String topText = getOptionValue(AppOption.TOP);
+    		int topCount;
+    		if ( topText == null ) {
+    			topCount = 0;
+    		} else {
+    			try {
+    				topCount = Integer.parseInt(topText);
+    			} catch ( NumberFormatException e ) {
+    				topCount = 0;
+    			}
+    			if ( topCount < 1 ) {
+    				error("Incorrect top resources count [ %s ]\n", topText);
+    				return false;
+    			}
+    		}
+
+    		if ( hasOption(AppOption.METRICS) || hasOption(AppOption.REPORT) || (topCount > 0) ) {
+    			info("Metrics will be recorded\n");
+    			metrics = new MetricsImpl();
+    		}
+
+    		if ( topCount > 0 ) {
+    			info("The [ %s ] slowest and largest resources will be recorded\n", topCount);
+    			topResources = new TopResources(topCount);
+    			metrics.addListener(topResources);
+    		}
+
+    		return true;
+    	}
+
+    	/**
+    	 * Enable flight recorder events, if requested.  Events are recorded
+    	 * by a flight recording, which is started separately, for example,
+    	 * using the JVM option '-XX:StartFlightRecording'.
+    	 */
+    	protected void setEvents() {
+    		if ( hasOption(AppOption.EVENTS) ) {
+    			if ( TransformEvents.enable() ) {
+    				info("Flight recorder events are enabled\n");
+    			} else {
+    				error("Flight recorder is not available: Events are not enabled\n");
+    			}
+    		}
+    	}
+
+    	public void displayMetrics(PrintStream stream) {
+    		if ( (metrics != null) && hasOption(AppOption.METRICS) ) {
+    			metrics.display(stream);
+    		}
+    		if ( topResources != null ) {
+    			topResources.display(stream);
+    		}
+    	}
+
+    	public ReportWriter report;
+
+    	/**
+    	 * Open the report, if a report was requested.  Resources are written
+    	 * to the report as they are transformed.
+    	 *
+    	 * @return True or false telling if the report was opened or was not
+    	 *     requested.  False if the report could not be opened.
+    	 */
+    	public boolean openReport() {
+    		String reportName = getOptionValue(AppOption.REPORT);
+    		if ( reportName == null ) {
+    			return true;
+    		}
+
+    		File reportFile = new File(reportName);
+    		info("Report [ %s ]\n", reportFile.getAbsolutePath());
+    		try {
+    			report = ReportWriter.open(reportFile); // throws IOException
+    		} catch ( IOException e ) {
+    			error("Failed to open report [ %s ]: %s\n", reportName, e);
+    			return false;
+    		}
+    		metrics.addListener(report);
+    		return true;
+    	}
+
+    	/**
+    	 * Complete and close the report, if one was opened.
+    	 *
+    	 * @return True or false telling if the report was written.
+    	 */
+    	public boolean closeReport() {
+    		if ( report == null ) {
+    			return true;
+    		}
+
+    		ReportWriter useReport = report;
+    		report = null;
+    		metrics.removeListener(useReport);
+
+    		try {
+    			try {
+    				useReport.complete( metrics, getSignatureRule().getCacheStats() ); // throws IOException
+    			} finally {
+    				useReport.close(); // throws IOException
+    			}
+    		} catch ( IOException e ) {
+    			error("Failed to write report: %s\n", e);
+    			return false;
+    		}
+    		return true;
+    	}
+
     	public boolean setRules() throws IOException, URISyntaxException, IllegalArgumentException {
+    		String compiledRulesName = getOptionValue(AppOption.RULES_COMPILED);
+    		if ( compiledRulesName != null ) {
+    			return setRules( CompiledRules.read( new File(compiledRulesName) ) ); // throws IOException
+    		}
+
     		UTF8Properties selectionProperties = loadProperties(AppOption.RULES_SELECTIONS);
     		UTF8Properties renameProperties = loadProperties(AppOption.RULES_RENAMES, DEFAULT_RENAMES_REFERENCE);
     		UTF8Properties versionProperties = loadProperties(AppOption.RULES_VERSIONS, DEFAULT_VERSIONS_REFERENCE);
     		UTF8Properties updateProperties = loadProperties(AppOption.RULES_BUNDLES, DEFAULT_BUNDLES_REFERENCE);
     		UTF8Properties directProperties = loadProperties(AppOption.RULES_DIRECT);
+    		UTF8Properties textProperties = loadProperties(AppOption.RULES_TEXT, DEFAULT_TEXT_REFERENCE);
 
         	invert = hasOption(AppOption.INVERT);
 
@@ -573,6 +772,12 @@ public class Transformer {
 
         	directStrings = TransformProperties.getDirectStrings(directProperties);
 
+        	if ( textProperties != null ) {
+        		textExtensions = TransformProperties.getTextExtensions(textProperties);
+        	} else {
+        		info("Text resources will not be updated\n");
+        	}
+
         	if ( packageRenames != null ) {
         	    if ( packageVersions != null ) {
         	       return validateRules(packageRenames, packageVersions);
@@ -584,6 +789,48 @@ public class Transformer {
         	}
     	}
     	
+    	/**
+    	 * Set rules from compiled rules.  Package renames are inverted if
+    	 * the invert option was specified.
+    	 *
+    	 * @param compiledRules The compiled rules.
+    	 *
+    	 * @return True or false telling if the rules are valid.
+    	 */
+    	public boolean setRules(CompiledRules compiledRules) {
+        	invert = hasOption(AppOption.INVERT);
+
+        	includes = compiledRules.includes;
+        	excludes = compiledRules.excludes;
+
+        	if ( invert ) {
+        		packageRenames = TransformProperties.invert(compiledRules.renames);
+        		binaryPackageRenames = TransformProperties.invert(compiledRules.binaryRenames);
+        	} else {
+        		packageRenames = compiledRules.renames;
+        		binaryPackageRenames = compiledRules.binaryRenames;
+        	}
+
+        	packageVersions = compiledRules.versions;
+        	bundleUpdates = compiledRules.bundleUpdates;
+        	directStrings = compiledRules.directStrings;
+        	textExtensions = compiledRules.textExtensions;
+
+        	return validateRules(packageRenames, packageVersions);
+    	}
+
+    	/**
+    	 * Answer the current rules in compiled form.
+    	 *
+    	 * @return The current rules in compiled form.
+    	 */
+    	public CompiledRules getCompiledRules() {
+    		return new CompiledRules(
+    			includes, excludes,
+    			packageRenames, packageVersions, bundleUpdates, directStrings,
+    			textExtensions );
+    	}
+
     	protected boolean validateRules(Map<String, String> renamesMap, 
     	                                Map<String, String> versionsMap) {
 
@@ -682,6 +929,67 @@ public class Transformer {
     				logStream.println( "  [ " + directEntry.getKey() + " ]: [ " + directEntry.getValue() + "]");
     			}
     		}
+
+      		logStream.println("Text extensions:");
+    		if ( (textExtensions == null) || textExtensions.isEmpty() ) {
+    			logStream.println("  [ ** NONE ** ]");
+    		} else {
+    			for ( String textExtension : textExtensions ) {
+    				logStream.println( "  [ " + textExtension + " ]");
+    			}
+    		}
+    	}
+
+    	/**
+    	 * Answer a fingerprint of the transformation rules.  The fingerprint
+    	 * is a digest of all of the rules, and changes when any rule changes.
+    	 *
+    	 * @return A fingerprint of the transformation rules.
+    	 */
+    	public String getRulesFingerprint() {
+    		StringBuilder rulesText = new StringBuilder();
+
+    		appendRules(rulesText, "includes", includes);
+    		appendRules(rulesText, "excludes", excludes);
+    		appendRules(rulesText, "renames", packageRenames);
+    		appendRules(rulesText, "versions", packageVersions);
+
+    		rulesText.append("bundles\n");
+    		if ( bundleUpdates != null ) {
+    			for ( Map.Entry<String, BundleData> updateEntry : new TreeMap<String, BundleData>(bundleUpdates).entrySet() ) {
+    				BundleData updateData = updateEntry.getValue();
+    				rulesText.append( updateEntry.getKey() ).append('\t')
+    					.append( updateData.getSymbolicName() ).append('\t')
+    					.append( updateData.getVersion() ).append('\t')
+    					.append( updateData.getAddName() ).append('\t')
+    					.append( updateData.getName() ).append('\t')
+    					.append( updateData.getAddDescription() ).append('\t')
+    					.append( updateData.getDescription() ).append('\n');
+    			}
+    		}
+
+    		appendRules(rulesText, "direct", directStrings);
+    		appendRules(rulesText, "text", textExtensions);
+
+    		return RunManifest.digest( rulesText.toString() );
+    	}
+
+    	private void appendRules(StringBuilder rulesText, String rulesName, Set<String> rules) {
+    		rulesText.append(rulesName).append('\n');
+    		if ( rules != null ) {
+    			for ( String rule : new TreeSet<String>(rules) ) {
+    				rulesText.append(rule).append('\n');
+    			}
+    		}
+    	}
+
+    	private void appendRules(StringBuilder rulesText, String rulesName, Map<String, String> rules) {
+    		rulesText.append(rulesName).append('\n');
+    		if ( rules != null ) {
+    			for ( Map.Entry<String, String> rule : new TreeMap<String, String>(rules).entrySet() ) {
+    				rulesText.append( rule.getKey() ).append('\t').append( rule.getValue() ).append('\n');
+    			}
+    		}
     	}
 
     	private SelectionRuleImpl selectionRules;
@@ -699,10 +1007,17 @@ public class Transformer {
 
     	protected SignatureRuleImpl getSignatureRule() {
     		if ( signatureRules == null ) {
-    			signatureRules =  new SignatureRuleImpl(
-        			getLogger(),
-        			packageRenames, packageVersions, bundleUpdates,
-        			directStrings);
+    			if ( binaryPackageRenames != null ) {
+    				signatureRules = new SignatureRuleImpl(
+    					getLogger(),
+    					packageRenames, binaryPackageRenames, packageVersions, bundleUpdates,
+    					directStrings);
+    			} else {
+    				signatureRules =  new SignatureRuleImpl(
+    					getLogger(),
+    					packageRenames, packageVersions, bundleUpdates,
+    					directStrings);
+    			}
     		}
     		return signatureRules;
     	}
@@ -742,6 +1057,17 @@ public class Transformer {
 //          return inputFileName.substring(0, indexOfLastSlash+1) + OUTPUT_PREFIX + inputFileName.substring(indexOfLastSlash+1);
 //      }
 
+        public String getDefaultOutputName(String useInputName) {
+        	int indexOfLastSlash = useInputName.lastIndexOf('/');
+        	if ( indexOfLastSlash == -1 ) {
+        		return OUTPUT_PREFIX + useInputName;
+        	} else {
+        		String inputPrefix = useInputName.substring( 0, indexOfLastSlash + 1 ); 
+        		String inputSuffix = useInputName.substring( indexOfLastSlash + 1 ); 
+        		return inputPrefix + OUTPUT_PREFIX + inputSuffix;
+        	}
+        }
+
         public boolean setOutput() {
         	String useOutputName = getOutputFileNameFromCommandLine();
 
@@ -751,14 +1077,7 @@ public class Transformer {
         		useOutputName = FileUtils.normalize(useOutputName);
 
         	} else {
-        		int indexOfLastSlash = inputName.lastIndexOf('/');
-        		if ( indexOfLastSlash == -1 ) {
-        			useOutputName = OUTPUT_PREFIX + inputName;
-        		} else {
-        			String inputPrefix = inputName.substring( 0, indexOfLastSlash + 1 ); 
-        			String inputSuffix = inputName.substring( indexOfLastSlash + 1 ); 
-        			useOutputName = inputPrefix + OUTPUT_PREFIX + inputSuffix;
-        		}
+        		useOutputName = getDefaultOutputName(inputName);
         	}
 
         	File useOutputFile = new File(useOutputName);
@@ -797,6 +1116,9 @@ public class Transformer {
             allowOverwrite = hasOption(AppOption.OVERWRITE);
             if ( allowOverwrite) {
             	info("Overwrite of output is enabled\n");
+            } else if ( hasOption(AppOption.INCREMENTAL) || hasOption(AppOption.WATCH) ) {
+            	allowOverwrite = true;
+            	info("Overwrite of output is enabled for incremental transform\n");
             }
 
             if ( useOutputFile.exists() ) {
@@ -823,123 +1145,295 @@ public class Transformer {
 
         public CompositeActionImpl getRootAction() {
         	if ( rootAction == null ) {
-        		CompositeActionImpl useRootAction = new CompositeActionImpl(
-                    getLogger(), getBuffer(), getSelectionRule(), getSignatureRule() );
-
-        		DirectoryActionImpl directoryAction =
-        			useRootAction.addUsing( DirectoryActionImpl::new );
-
-        		ClassActionImpl classAction =
-        			useRootAction.addUsing( ClassActionImpl::new );
-        		JavaActionImpl javaAction =
-        			useRootAction.addUsing( JavaActionImpl::new );
-        		ServiceLoaderConfigActionImpl serviceConfigAction =
-        			useRootAction.addUsing( ServiceLoaderConfigActionImpl::new );
-        		ManifestActionImpl manifestAction =
-        			useRootAction.addUsing( ManifestActionImpl::newManifestAction );
-        		ManifestActionImpl featureAction =
-        			useRootAction.addUsing( ManifestActionImpl::newFeatureAction );
-
-        		JarActionImpl jarAction =
-                	useRootAction.addUsing( JarActionImpl::new );
-        		WarActionImpl warAction =
-                	useRootAction.addUsing( WarActionImpl::new );
-        		RarActionImpl rarAction =
-                	useRootAction.addUsing( RarActionImpl::new );
-        		EarActionImpl earAction =
-                	useRootAction.addUsing( EarActionImpl::new );
-
-        		ZipActionImpl zipAction =
-        			useRootAction.addUsing( ZipActionImpl::new );
-
-        		NullActionImpl nullAction =
-        			useRootAction.addUsing( NullActionImpl::new );
-
-        		// Directory actions know about all actions except for directory actions.
-
-        		directoryAction.addAction(classAction);
-        		directoryAction.addAction(javaAction);
-        		directoryAction.addAction(serviceConfigAction);
-        		directoryAction.addAction(manifestAction);
-        		directoryAction.addAction(featureAction);
-        		directoryAction.addAction(zipAction);
-        		directoryAction.addAction(jarAction);
-        		directoryAction.addAction(warAction);
-        		directoryAction.addAction(rarAction);
-        		directoryAction.addAction(earAction);
-        		directoryAction.addAction(nullAction);
-
-        		jarAction.addAction(classAction);
-        		jarAction.addAction(javaAction);
-        		jarAction.addAction(serviceConfigAction);
-        		jarAction.addAction(manifestAction);
-        		jarAction.addAction(featureAction);
-        		jarAction.addAction(nullAction);
-
-        		warAction.addAction(classAction);
-        		warAction.addAction(javaAction);
-        		warAction.addAction(serviceConfigAction);
-        		warAction.addAction(manifestAction);
-        		warAction.addAction(featureAction);
-        		warAction.addAction(jarAction);
-        		warAction.addAction(nullAction);
-
-        		rarAction.addAction(classAction);
-        		rarAction.addAction(javaAction);
-        		rarAction.addAction(serviceConfigAction);
-        		rarAction.addAction(manifestAction);
-        		rarAction.addAction(featureAction);
-        		rarAction.addAction(jarAction);
-        		rarAction.addAction(nullAction);
-
-        		earAction.addAction(manifestAction);
-        		earAction.addAction(jarAction);
-        		earAction.addAction(warAction);
-        		earAction.addAction(rarAction);
-        		earAction.addAction(nullAction);
-
-        		zipAction.addAction(classAction);
-        		zipAction.addAction(javaAction);
-        		zipAction.addAction(serviceConfigAction);
-        		zipAction.addAction(manifestAction);
-        		zipAction.addAction(featureAction);
-        		zipAction.addAction(jarAction);
-        		zipAction.addAction(warAction);
-        		zipAction.addAction(rarAction);
-        		zipAction.addAction(earAction);
-        		zipAction.addAction(nullAction);
-
-        		rootAction = useRootAction;
-            }
+        		rootAction = createRootAction();
+        	}
+        	return rootAction;
+        }
+
+        /**
+         * Create a new tree of actions.  The actions of the tree share the
+         * logger, buffer pool, and rules of these options.  Actions are not
+         * thread safe: A separate tree must be used by each thread which
+         * performs transforms.
+         *
+         * @return A new root action.
+         */
+        public CompositeActionImpl createRootAction() {
+        	CompositeActionImpl useRootAction = TransformerEngine.createRootAction(
+        		getLogger(), getBuffer(), getSelectionRule(), getSignatureRule(), textExtensions );
+
+        	if ( metrics != null ) {
+        		useRootAction.setMetrics(metrics);
+        	}
+
+        	DirectoryActionImpl directoryAction = null;
+        	for ( ActionImpl action : useRootAction.getActions() ) {
+        		if ( action instanceof DirectoryActionImpl ) {
+        			directoryAction = (DirectoryActionImpl) action;
+        			break;
+        		}
+        	}
 
-            return rootAction;
+        	if ( hasOption(AppOption.LINK) ) {
+        		info("Directory copies will be hard linked\n");
+        		directoryAction.setLinkCopies(true);
+        	}
+
+        	String stateFileName = getOptionValue(AppOption.INCREMENTAL);
+        	if ( stateFileName != null ) {
+        		info("Incremental transform state [ %s ]\n", stateFileName);
+        		directoryAction.setIncremental( new File(stateFileName), getRulesFingerprint() );
+        	}
+
+        	return useRootAction;
+        }
+
+        /**
+         * Create an embeddable engine which uses the rules of these options.
+         *
+         * @return A new engine.
+         */
+        public TransformerEngine createEngine() {
+        	TransformerEngine engine = new TransformerEngine(
+        		getLogger(), getBuffer(), getSelectionRule(), getSignatureRule(), textExtensions );
+        	engine.setMetrics(metrics);
+        	return engine;
         }
 
         public boolean acceptAction() {
+        	acceptedAction = acceptAction( getRootAction(), inputName, inputFile );
+        	return ( acceptedAction != null );
+        }
+
+        protected ActionImpl acceptAction(CompositeActionImpl useRootAction, String useInputName, File useInputFile) {
         	String actionName = getOptionValue(AppOption.FILE_TYPE);
         	if ( actionName != null ) {
-        		for ( ActionImpl action : getRootAction().getActions() ) {
+        		for ( ActionImpl action : useRootAction.getActions() ) {
         			if ( action.getActionType().matches(actionName) ) {
         				info("Forced action [ %s ] [ %s ]\n", actionName, action.getName());
-        				acceptedAction = action;
-        				return true;
+        				return action;
         			}
         		}
         		error("No match for forced action [ %s ]\n", actionName);
-        		return false;
+        		return null;
 
         	} else {
-        		acceptedAction = getRootAction().acceptAction(inputName,  inputFile);
-        		if ( acceptedAction == null ) {
-        			error("No action selected for input [ %s ]\n", inputName);
-        			return false;
+        		ActionImpl useAction = useRootAction.acceptAction(useInputName, useInputFile);
+        		if ( useAction == null ) {
+        			error("No action selected for input [ %s ]\n", useInputName);
         		} else {
-        			info("Action selected for input [ %s ]: %s\n", inputName, acceptedAction.getName());
-        			return true;
+        			info("Action selected for input [ %s ]: %s\n", useInputName, useAction.getName());
         		}
+        		return useAction;
         	}
         }
 
+        public static final String BATCH_SEPARATOR = "\t";
+
+        /**
+         * Read batch input and output pairs from a file.  Each non-blank line
+         * which does not start with '#' is an input name, optionally followed by
+         * a tab and an output name.
+         *
+         * @param batchFile The file which lists the batch inputs.
+         *
+         * @return The input and output pairs.  The output name is null
+         *     when it was not specified.
+         *
+         * @throws IOException Thrown if the file could not be read.
+         */
+        public List<String[]> readBatchFile(File batchFile) throws IOException {
+        	List<String[]> pairs = new ArrayList<String[]>();
+        	for ( String line : Files.readAllLines(batchFile.toPath(), StandardCharsets.UTF_8) ) {
+        		String trimmedLine = line.trim();
+        		if ( trimmedLine.isEmpty() || trimmedLine.startsWith("#") ) {
+        			continue;
+        		}
+        		int separatorOffset = line.indexOf(BATCH_SEPARATOR);
+        		if ( separatorOffset == -1 ) {
+        			pairs.add( new String[] { trimmedLine, null } );
+        		} else {
+        			pairs.add( new String[] {
+        				line.substring(0, separatorOffset).trim(),
+        				line.substring(separatorOffset + BATCH_SEPARATOR.length()).trim() } );
+        		}
+        	}
+        	return pairs;
+        }
+
+        // Each batch, daemon, and agent thread uses its own action tree.  The
+        // trees share rules, including the caches of the signature rules.
+
+        private final ThreadLocal<CompositeActionImpl> threadRootActions =
+        	ThreadLocal.withInitial( this::createRootAction );
+
+        /**
+         * Answer the action tree of the current thread.  Actions are not
+         * thread safe, but may be reused by the thread which obtained them.
+         *
+         * @return The action tree of the current thread.
+         */
+        public CompositeActionImpl getThreadRootAction() {
+        	return threadRootActions.get();
+        }
+
+        /**
+         * Transform a batch of inputs.  Answer results in the order of
+         * the inputs.
+         *
+         * @param pairs The input and output pairs.
+         * @param threads The count of inputs to transform concurrently.
+         *
+         * @return Results of the transforms.
+         */
+        public List<BatchResult> transformBatch(List<String[]> pairs, int threads) {
+        	List<BatchResult> results = new ArrayList<BatchResult>( pairs.size() );
+
+        	ExecutorService executor = Executors.newFixedThreadPool(threads);
+        	try {
+        		List<Future<BatchResult>> futures = new ArrayList<Future<BatchResult>>( pairs.size() );
+        		for ( String[] pair : pairs ) {
+        			futures.add( executor.submit( () -> transformBatchInput(pair[0], pair[1]) ) );
+        		}
+
+        		for ( int pairNo = 0; pairNo < pairs.size(); pairNo++ ) {
+        			BatchResult result;
+        			try {
+        				result = futures.get(pairNo).get();
+        			} catch ( ExecutionException e ) {
+        				result = new BatchResult( pairs.get(pairNo)[0] );
+        				result.failure = e.getCause().toString();
+        			} catch ( InterruptedException e ) {
+        				Thread.currentThread().interrupt();
+        				result = new BatchResult( pairs.get(pairNo)[0] );
+        				result.failure = e.toString();
+        			}
+        			results.add(result);
+        		}
+
+        	} finally {
+        		executor.shutdownNow();
+        	}
+
+        	return results;
+        }
+
+        protected BatchResult transformBatchInput(String useInputName, String useOutputName) {
+        	return transformBatchInput(useInputName, useOutputName, allowOverwrite);
+        }
+
+        protected BatchResult transformBatchInput(
+        	String useInputName, String useOutputName, boolean useAllowOverwrite) {
+
+        	BatchResult result = new BatchResult(useInputName);
+        	long startNanos = System.nanoTime();
+
+        	try {
+        		useInputName = FileUtils.normalize(useInputName);
+        		File useInputFile = new File(useInputName);
+        		if ( !useInputFile.exists() ) {
+        			result.failure = "Input does not exist";
+        			return result;
+        		}
+
+        		if ( useOutputName == null ) {
+        			useOutputName = getDefaultOutputName(useInputName);
+        		} else {
+        			useOutputName = FileUtils.normalize(useOutputName);
+        		}
+        		File useOutputFile = new File(useOutputName);
+        		if ( useInputFile.isFile() && useOutputFile.isDirectory() ) {
+        			useOutputName = useOutputName + '/' + useInputFile.getName();
+        			useOutputFile = new File(useOutputName);
+        		}
+        		result.outputName = useOutputName;
+
+        		if ( useOutputFile.exists() && !useAllowOverwrite ) {
+        			result.failure = "Output already exists";
+        			return result;
+        		}
+
+        		ActionImpl useAction = acceptAction( getThreadRootAction(), useInputName, useInputFile );
+        		if ( useAction == null ) {
+        			result.failure = "No action selected";
+        			return result;
+        		}
+        		result.actionName = useAction.getName();
+
+        		useAction.apply(useInputName, useInputFile, useOutputFile); // throws TransformException
+
+        		result.hasChanges = useAction.hasChanges();
+        		Changes useChanges = useAction.getChanges();
+        		if ( useChanges instanceof ContainerChanges ) {
+        			ContainerChanges containerChanges = (ContainerChanges) useChanges;
+        			result.allResources = containerChanges.getAllResources();
+        			result.allChanged = containerChanges.getAllChanged();
+        		}
+
+        	} catch ( TransformException | RuntimeException e ) {
+        		result.failure = e.toString();
+
+        	} finally {
+        		result.elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startNanos );
+        	}
+
+        	return result;
+        }
+
+        public void displayBatch(PrintStream stream, List<BatchResult> results, long elapsedMillis) {
+        	int failed = 0;
+        	int changed = 0;
+
+        	stream.println("Batch results:");
+        	for ( BatchResult result : results ) {
+        		String status;
+        		if ( !result.succeeded() ) {
+        			status = "FAILED";
+        			failed++;
+        		} else if ( result.hasChanges ) {
+        			status = "CHANGED";
+        			changed++;
+        		} else {
+        			status = "UNCHANGED";
+        		}
+
+        		String counts;
+        		if ( result.allResources == -1 ) {
+        			counts = "";
+        		} else {
+        			counts = " [ " + result.allChanged + " of " + result.allResources + " changed ]";
+        		}
+
+        		stream.printf("  [ %-9s ] [ %6s ms ] [ %s ] -> [ %s ]%s%s%n",
+        			status, result.elapsedMillis,
+        			result.inputName, result.outputName,
+        			( (result.actionName == null) ? "" : " [ " + result.actionName + " ]" ),
+        			( result.succeeded() ? counts : ": " + result.failure ));
+        	}
+
+        	stream.printf("Batch of [ %s ]: Changed [ %s ] Unchanged [ %s ] Failed [ %s ] in [ %s ms ]%n",
+        		results.size(), changed, results.size() - changed - failed, failed, elapsedMillis);
+        }
+
+        public TransformClassLoader createClassLoader(URL[] urls, ClassLoader parent) {
+        	return new TransformClassLoader( urls, parent, this::createRootAction );
+        }
+
+        public TransformDaemon createDaemon(int port, int threads) {
+        	return new TransformDaemon( getLogger(), this, port, threads );
+        }
+
+        public DirectoryWatcher createWatcher() {
+        	if ( !(acceptedAction instanceof DirectoryActionImpl) ) {
+        		error("Watch requires a directory input [ %s ]\n", inputName);
+        		return null;
+        	}
+        	return new DirectoryWatcher(
+        		getLogger(),
+        		(DirectoryActionImpl) acceptedAction,
+        		inputFile, outputFile);
+        }
+
         public void transform()
         	throws TransformException {
 
@@ -948,6 +1442,8 @@ public class Transformer {
     		if ( acceptedAction.hasChanges() ) {
     			acceptedAction.getChanges().displayChanges( getInfoStream(), inputPath, outputPath );
     		}
+
+    		displayMetrics( getInfoStream() );
         }
     }
 
@@ -969,6 +1465,26 @@ public class Transformer {
         TransformOptions options = new TransformOptions();
 
         options.setLogging();
+        if ( !options.setMetrics() ) {
+            help( getErrorStream() );
+            return PARSE_ERROR_RC;
+        }
+        options.setEvents();
+
+        if ( hasOption(AppOption.COMPILE_RULES) ) {
+        	return runCompile(options);
+        } else if ( hasOption(AppOption.DAEMON) ) {
+        	return runDaemon(options);
+        } else if ( hasOption(AppOption.BATCH) || hasOption(AppOption.BATCH_FILE) ) {
+        	return runBatch(options);
+        }
+
+        // Changes applied by a watch are not recorded in the incremental
+        // state, which would then no longer describe the output.
+        if ( hasOption(AppOption.INCREMENTAL) && hasOption(AppOption.WATCH) ) {
+        	error("Watches do not support incremental transforms\n");
+        	return PARSE_ERROR_RC;
+        }
 
         if ( !options.setInput() ) { 
             return TRANSFORM_ERROR_RC;
@@ -998,16 +1514,265 @@ public class Transformer {
         	return FILE_TYPE_ERROR_RC;
         }
 
+        if ( !options.openReport() ) {
+        	return TRANSFORM_ERROR_RC;
+        }
+
+        // Start watching before the initial transform, so that
+        // changes made during the initial transform are not lost.
+
+        DirectoryWatcher watcher = null;
+        if ( hasOption(AppOption.WATCH) ) {
+        	watcher = options.createWatcher();
+        	if ( watcher == null ) {
+        		return TRANSFORM_ERROR_RC;
+        	}
+        	try {
+        		watcher.start(); // throws IOException
+        	} catch ( IOException e ) {
+        		error("Failed to watch input: %s\n", e);
+        		options.closeReport();
+        		return TRANSFORM_ERROR_RC;
+        	}
+        }
+
+        boolean transformed;
         try {
         	options.transform(); // throws JakartaTransformException
+        	transformed = true;
         } catch ( TransformException e ) {
             error("Transform failure: %s\n", e);
-            return TRANSFORM_ERROR_RC;
+            transformed = false;
         } catch ( Throwable th) {
         	error("Unexpected failure: %s\n", th);
-            return TRANSFORM_ERROR_RC;
+        	transformed = false;
+        }
+
+        // The report covers the initial transform.
+        boolean reported = options.closeReport();
+
+        if ( !transformed || !reported ) {
+        	if ( watcher != null ) {
+        		watcher.stop();
+        	}
+        	return TRANSFORM_ERROR_RC;
+        }
+
+        if ( watcher != null ) {
+        	watcher.watch();
+        }
+
+        return SUCCESS_RC;
+    }
+
+    protected int runBatch(TransformOptions options) {
+    	if ( hasOption(AppOption.INCREMENTAL) || hasOption(AppOption.WATCH) ) {
+    		error("Batch transforms do not support incremental transforms or watches\n");
+    		return PARSE_ERROR_RC;
+    	}
+
+    	List<String[]> pairs = new ArrayList<String[]>();
+
+    	String batchFileName = getOptionValue(AppOption.BATCH_FILE);
+    	if ( batchFileName != null ) {
+    		try {
+    			pairs.addAll( options.readBatchFile( new File(batchFileName) ) );
+    		} catch ( IOException e ) {
+    			error("Failed to read batch file [ %s ]: %s\n", batchFileName, e);
+    			return PARSE_ERROR_RC;
+    		}
+    	}
+
+    	String[] useArgs = getParsedArgs().getArgs();
+    	if ( (useArgs.length % 2) != 0 ) {
+    		error("Batch arguments must be input and output pairs\n");
+    		return PARSE_ERROR_RC;
+    	}
+    	for ( int argNo = 0; argNo < useArgs.length; argNo += 2 ) {
+    		pairs.add( new String[] { useArgs[argNo], useArgs[argNo + 1] } );
+    	}
+
+    	if ( pairs.isEmpty() ) {
+    		error("No batch inputs were specified\n");
+    		return PARSE_ERROR_RC;
+    	}
+
+    	int threads = getThreads();
+    	if ( threads < 1 ) {
+    		return PARSE_ERROR_RC;
+    	}
+    	threads = Math.min( threads, pairs.size() );
+
+    	if ( !setSharedRules(options) ) {
+    		return RULES_ERROR_RC;
+    	}
+
+        options.allowOverwrite = hasOption(AppOption.OVERWRITE);
+
+        info("Batch of [ %s ] inputs using [ %s ] threads\n", pairs.size(), threads);
+
+        if ( !options.openReport() ) {
+        	return TRANSFORM_ERROR_RC;
+        }
+
+        long startNanos = System.nanoTime();
+        List<BatchResult> results = options.transformBatch(pairs, threads);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startNanos );
+
+        options.displayBatch( getInfoStream(), results, elapsedMillis );
+        options.displayMetrics( getInfoStream() );
+
+        if ( !options.closeReport() ) {
+        	return TRANSFORM_ERROR_RC;
+        }
+
+        for ( BatchResult result : results ) {
+        	if ( !result.succeeded() ) {
+        		return TRANSFORM_ERROR_RC;
+        	}
+        }
+        return SUCCESS_RC;
+    }
+
+    /**
+     * Answer the thread count which was specified for batch or daemon
+     * transforms.  Default to the number of available processors.
+     *
+     * @return The thread count.  -1 if the specified count is not valid.
+     */
+    protected int getThreads() {
+    	String threadsText = getOptionValue(AppOption.THREADS);
+    	if ( threadsText == null ) {
+    		return Runtime.getRuntime().availableProcessors();
+    	}
+
+    	int threads;
+    	try {
+    		threads = Integer.parseInt(threadsText);
+    	} catch ( NumberFormatException e ) {
+    		threads = 0;
+    	}
+    	if ( threads < 1 ) {
+    		error("Incorrect thread count [ %s ]\n", threadsText);
+    		return -1;
+    	}
+    	return threads;
+    }
+
+    protected boolean setSharedRules(TransformOptions options) {
+        boolean loadedRules;
+        try {
+        	loadedRules = options.setRules();
+        } catch ( Exception e ) {
+            error("Exception loading rules: %s\n", e);
+            return false;
+        }
+        if ( !loadedRules ) {
+        	error("Transformation rules cannot be used");
+        	return false;
+        }
+        if ( options.isVerbose ) {
+        	options.logRules( getInfoStream() );
+        }
+        return true;
+    }
+
+    protected int runDaemon(TransformOptions options) {
+    	if ( hasOption(AppOption.INCREMENTAL) || hasOption(AppOption.WATCH) ||
+    		 hasOption(AppOption.BATCH) || hasOption(AppOption.BATCH_FILE) ) {
+    		error("Daemon transforms do not support batch, incremental, or watch transforms\n");
+    		return PARSE_ERROR_RC;
+    	}
+
+    	String portText = getOptionValue(AppOption.DAEMON);
+    	int port;
+    	try {
+    		port = Integer.parseInt(portText);
+    	} catch ( NumberFormatException e ) {
+    		port = -1;
+    	}
+    	if ( (port < 0) || (port > 0xFFFF) ) {
+    		error("Incorrect daemon port [ %s ]\n", portText);
+    		return PARSE_ERROR_RC;
+    	}
+
+    	int threads = getThreads();
+    	if ( threads < 1 ) {
+    		return PARSE_ERROR_RC;
+    	}
+
+    	if ( !setSharedRules(options) ) {
+    		return RULES_ERROR_RC;
+    	}
+
+        options.allowOverwrite = hasOption(AppOption.OVERWRITE);
+
+        TransformDaemon daemon = options.createDaemon(port, threads);
+        try {
+        	daemon.start(); // throws IOException
+        } catch ( IOException e ) {
+        	error("Failed to start daemon on port [ %s ]: %s\n", port, e);
+        	return TRANSFORM_ERROR_RC;
+        }
+
+        // Clients authenticate using the token, which is written to a file
+        // which only the daemon user can read.
+
+        // The default token file is placed in a new temporary directory, since
+        // the token file must not already exist.
+
+        String tokenName = getOptionValue(AppOption.DAEMON_TOKEN);
+        File tokenDir = null;
+        File tokenFile = null;
+        try {
+        	if ( tokenName == null ) {
+        		tokenDir = Files.createTempDirectory("transformer-daemon").toFile(); // throws IOException
+        		tokenDir.deleteOnExit();
+        		tokenFile = new File(tokenDir, "daemon.token");
+        	} else {
+        		tokenFile = new File(tokenName);
+        	}
+        	daemon.writeToken(tokenFile); // throws IOException
+        	tokenFile.deleteOnExit();
+        } catch ( IOException e ) {
+        	if ( tokenDir != null ) {
+        		tokenDir.delete();
+        	}
+        	error("Failed to write daemon token [ %s ]: %s\n", tokenName, e);
+        	daemon.stop();
+        	return TRANSFORM_ERROR_RC;
+        }
+
+        // Tools which start the daemon using port 0 read the actual port, and
+        // the token file, from this line.
+        info("Daemon listening on port [ %s ] token file [ %s ]\n", daemon.getPort(), tokenFile.getAbsolutePath());
+
+        try {
+        	daemon.serve();
+        } finally {
+        	tokenFile.delete();
+        	if ( tokenDir != null ) {
+        		tokenDir.delete();
+        	}
         }
 
         return SUCCESS_RC;
     }
+
+    protected int runCompile(TransformOptions options) {
+    	if ( !setSharedRules(options) ) {
+    		return RULES_ERROR_RC;
+    	}
+
+    	String compiledName = getOptionValue(AppOption.COMPILE_RULES);
+    	try {
+    		options.getCompiledRules().write( new File(compiledName) ); // throws IOException
+    	} catch ( IOException e ) {
+    		error("Failed to write compiled rules [ %s ]: %s\n", compiledName, e);
+    		return RULES_ERROR_RC;
+    	}
+
+    	info("Compiled rules [ %s ]\n", compiledName);
+    	return SUCCESS_RC;
+    }
 }
@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.impl.ActionImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.EarActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.JavaActionImpl;
+import org.eclipse.transformer.action.impl.JspActionImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.MetricsImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.RarActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.WarActionImpl;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Embeddable transformer.
+ *
+ * An engine is created from transformation rules, and may be used
+ * concurrently by any number of threads.  The rules, their caches, and a
+ * buffer pool are shared by all threads.  Actions, which are not thread
+ * safe, are created for each thread which uses the engine.
+ *
+ * Resources are matched to actions using their names, in the same manner
+ * as the command line transformer.  A resource which is not selected, or
+ * which is not accepted by any action, is answered unchanged.
+ */
+public class TransformerEngine {
+
+	/**
+	 * Result of transforming a single resource.
+	 */
+	public static class Result {
+		public Result(String inputName, String outputName, String actionName, boolean hasChanges, ByteData data) {
+			this.inputName = inputName;
+			this.outputName = outputName;
+			this.actionName = actionName;
+			this.hasChanges = hasChanges;
+			this.data = data;
+		}
+
+		/** The name of the transformed resource. */
+		public final String inputName;
+		/** The name of the resource after transformation.  Renames change the name of some resources. */
+		public final String outputName;
+		/** The name of the action which transformed the resource.  Null if no action was applied. */
+		public final String actionName;
+		/** Tell if the transformation made any changes. */
+		public final boolean hasChanges;
+		/** The transformed bytes.  Null when the output was written to a stream or file. */
+		public final ByteData data;
+	}
+
+	/**
+	 * Create an engine which renames packages.
+	 *
+	 * @param renames Package renames, using '.' separated package names.
+	 */
+	public TransformerEngine(Map<String, String> renames) {
+		this( LoggerImpl.createStandardLogger(),
+			  Collections.emptySet(), Collections.emptySet(),
+			  renames, null, null, null,
+			  Collections.emptySet() );
+	}
+
+	/**
+	 * Create an engine from transformation rules.
+	 *
+	 * @param logger Logger used by the actions of the engine.
+	 * @param includes Resource selection includes.  An empty set selects all resources.
+	 * @param excludes Resource selection excludes.
+	 * @param renames Package renames.
+	 * @param versions Package version updates.  May be null.
+	 * @param bundleUpdates Bundle identity updates.  May be null.
+	 * @param directStrings Direct string replacements.  May be null.
+	 * @param textExtensions Extensions of resources which are transformed as text.
+	 */
+	public TransformerEngine(
+		LoggerImpl logger,
+		Set<String> includes, Set<String> excludes,
+		Map<String, String> renames,
+		Map<String, String> versions,
+		Map<String, BundleData> bundleUpdates,
+		Map<String, String> directStrings,
+		Set<String> textExtensions) {
+
+		this( logger,
+			  new InputBufferImpl(),
+			  new SelectionRuleImpl(logger, includes, excludes),
+			  new SignatureRuleImpl(logger, renames, versions, bundleUpdates, directStrings),
+			  textExtensions );
+	}
+
+	/**
+	 * Create an engine from compiled rules.
+	 *
+	 * @param logger Logger used by the actions of the engine.
+	 * @param rules Compiled transformation rules.
+	 */
+	public TransformerEngine(LoggerImpl logger, CompiledRules rules) {
+		this( logger,
+			  new InputBufferImpl(),
+			  new SelectionRuleImpl(logger, rules.includes, rules.excludes),
+			  new SignatureRuleImpl(
+				  logger,
+				  rules.renames, rules.binaryRenames, rules.versions, rules.bundleUpdates,
+				  rules.directStrings),
+			  rules.textExtensions );
+	}
+
+	public TransformerEngine(
+		LoggerImpl logger,
+		InputBufferImpl buffer,
+		SelectionRuleImpl selectionRule,
+		SignatureRuleImpl signatureRule,
+		Set<String> textExtensions) {
+
+		this.logger = logger;
+		this.buffer = buffer;
+		this.selectionRule = selectionRule;
+		this.signatureRule = signatureRule;
+		this.textExtensions = textExtensions;
+
+		this.rootActions = ThreadLocal.withInitial( this::createRootAction );
+	}
+
+	//
+
+	private final LoggerImpl logger;
+	private final InputBufferImpl buffer;
+	private final SelectionRuleImpl selectionRule;
+	private final SignatureRuleImpl signatureRule;
+	private final Set<String> textExtensions;
+
+	public LoggerImpl getLogger() {
+		return logger;
+	}
+
+	public SelectionRuleImpl getSelectionRule() {
+		return selectionRule;
+	}
+
+	public SignatureRuleImpl getSignatureRule() {
+		return signatureRule;
+	}
+
+	//
+
+	private final ThreadLocal<CompositeActionImpl> rootActions;
+
+	/**
+	 * Answer the action tree of the current thread.
+	 *
+	 * @return The action tree of the current thread.
+	 */
+	public CompositeActionImpl getRootAction() {
+		return rootActions.get();
+	}
+
+	public CompositeActionImpl createRootAction() {
+		CompositeActionImpl useRootAction =
+			createRootAction(logger, buffer, selectionRule, signatureRule, textExtensions);
+
+		MetricsImpl useMetrics = metrics;
+		if ( useMetrics != null ) {
+			useRootAction.setMetrics(useMetrics);
+		}
+
+		return useRootAction;
+	}
+
+	//
+
+	private volatile MetricsImpl metrics;
+
+	public MetricsImpl getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set metrics which record the transforms of this engine.  Metrics are
+	 * used by the action trees which are created after the metrics are set:
+	 * Set metrics before performing transforms.
+	 *
+	 * @param metrics Metrics which record the transforms of this engine.  Null
+	 *     to not record metrics.
+	 */
+	public void setMetrics(MetricsImpl metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Create a new tree of actions which share rules.
+	 *
+	 * @param logger The logger used by the actions.
+	 * @param buffer The buffer used by the actions.
+	 * @param selectionRule The selection rule used by the actions.
+	 * @param signatureRule The signature rule used by the actions.
+	 * @param textExtensions Extensions of resources which are transformed as text.
+	 *
+	 * @return The root of the new tree.
+	 */
+	public static CompositeActionImpl createRootAction(
+		LoggerImpl logger,
+		InputBufferImpl buffer,
+		SelectionRuleImpl selectionRule,
+		SignatureRuleImpl signatureRule,
+		Set<String> textExtensions) {
+
+		CompositeActionImpl useRootAction =
+			new CompositeActionImpl(logger, buffer, selectionRule, signatureRule);
+
+		DirectoryActionImpl directoryAction =
+			useRootAction.addUsing( DirectoryActionImpl::new );
+
+		ClassActionImpl classAction =
+			useRootAction.addUsing( ClassActionImpl::new );
+		JavaActionImpl javaAction =
+			useRootAction.addUsing( JavaActionImpl::new );
+		ServiceLoaderConfigActionImpl serviceConfigAction =
+			useRootAction.addUsing( ServiceLoaderConfigActionImpl::new );
+		ManifestActionImpl manifestAction =
+			useRootAction.addUsing( ManifestActionImpl::newManifestAction );
+		ManifestActionImpl featureAction =
+			useRootAction.addUsing( ManifestActionImpl::newFeatureAction );
+		JspActionImpl jspAction =
+			useRootAction.addUsing( JspActionImpl::new );
+		TextActionImpl textAction =
+			useRootAction.addUsing(
+				(useLogger, useBuffer, useSelectionRule, useSignatureRule) ->
+					new TextActionImpl(useLogger, useBuffer, useSelectionRule, useSignatureRule, textExtensions) );
+
+		JarActionImpl jarAction =
+			useRootAction.addUsing( JarActionImpl::new );
+		WarActionImpl warAction =
+			useRootAction.addUsing( WarActionImpl::new );
+		RarActionImpl rarAction =
+			useRootAction.addUsing( RarActionImpl::new );
+		EarActionImpl earAction =
+			useRootAction.addUsing( EarActionImpl::new );
+
+		ZipActionImpl zipAction =
+			useRootAction.addUsing( ZipActionImpl::new );
+
+		NullActionImpl nullAction =
+			useRootAction.addUsing( NullActionImpl::new );
+
+		// Directory actions know about all actions except for directory actions.
+
+		directoryAction.addAction(classAction);
+		directoryAction.addAction(javaAction);
+		directoryAction.addAction(serviceConfigAction);
+		directoryAction.addAction(manifestAction);
+		directoryAction.addAction(featureAction);
+		directoryAction.addAction(jspAction);
+		directoryAction.addAction(textAction);
+		directoryAction.addAction(zipAction);
+		directoryAction.addAction(jarAction);
+		directoryAction.addAction(warAction);
+		directoryAction.addAction(rarAction);
+		directoryAction.addAction(earAction);
+		directoryAction.addAction(nullAction);
+
+		jarAction.addAction(classAction);
+		jarAction.addAction(javaAction);
+		jarAction.addAction(serviceConfigAction);
+		jarAction.addAction(manifestAction);
+		jarAction.addAction(featureAction);
+		jarAction.addAction(jspAction);
+		jarAction.addAction(textAction);
+		jarAction.addAction(nullAction);
+
+		warAction.addAction(classAction);
+		warAction.addAction(javaAction);
+		warAction.addAction(serviceConfigAction);
+		warAction.addAction(manifestAction);
+		warAction.addAction(featureAction);
+		warAction.addAction(jspAction);
+		warAction.addAction(textAction);
+		warAction.addAction(jarAction);
+		warAction.addAction(nullAction);
+
+		rarAction.addAction(classAction);
+		rarAction.addAction(javaAction);
+		rarAction.addAction(serviceConfigAction);
+		rarAction.addAction(manifestAction);
+		rarAction.addAction(featureAction);
+		rarAction.addAction(textAction);
+		rarAction.addAction(jarAction);
+		rarAction.addAction(nullAction);
+
+		earAction.addAction(manifestAction);
+		earAction.addAction(jspAction);
+		earAction.addAction(textAction);
+		earAction.addAction(jarAction);
+		earAction.addAction(warAction);
+		earAction.addAction(rarAction);
+		earAction.addAction(nullAction);
+
+		zipAction.addAction(classAction);
+		zipAction.addAction(javaAction);
+		zipAction.addAction(serviceConfigAction);
+		zipAction.addAction(manifestAction);
+		zipAction.addAction(featureAction);
+		zipAction.addAction(jspAction);
+		zipAction.addAction(textAction);
+		zipAction.addAction(jarAction);
+		zipAction.addAction(warAction);
+		zipAction.addAction(rarAction);
+		zipAction.addAction(earAction);
+		zipAction.addAction(nullAction);
+
+		return useRootAction;
+	}
+
+	//
+
+	/**
+	 * Answer the action of the current thread which transforms a resource.
+	 *
+	 * @param resourceName The name of the resource.
+	 *
+	 * @return The action which accepts the resource.  Null if the resource
+	 *     is not selected, or if no action accepts the resource.
+	 */
+	public ActionImpl getAction(String resourceName) {
+		return getAction(resourceName, null);
+	}
+
+	/**
+	 * Answer the action of the current thread which transforms a resource.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param resourceFile The file of the resource.  Null if the resource
+	 *     is not a file.  Only file resources are accepted as directories.
+	 *
+	 * @return The action which accepts the resource.  Null if the resource
+	 *     is not selected, or if no action accepts the resource.
+	 */
+	public ActionImpl getAction(String resourceName, File resourceFile) {
+		if ( !selectionRule.select(resourceName) ) {
+			return null;
+		}
+		return getRootAction().acceptAction(resourceName, resourceFile);
+	}
+
+	protected Result unchanged(String resourceName, ByteData data) {
+		return new Result(resourceName, resourceName, null, false, data);
+	}
+
+	protected Result changed(ActionImpl action, String resourceName, ByteData data) {
+		String outputName = action.getChanges().getOutputResourceName();
+		if ( outputName == null ) {
+			outputName = resourceName;
+		}
+		return new Result(resourceName, outputName, action.getName(), action.hasChanges(), data);
+	}
+
+	/**
+	 * Transform the bytes of a resource.  Archives are transformed in memory.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param bytes The bytes of the resource.
+	 *
+	 * @return The result of the transformation.  The result bytes are the
+	 *     input bytes when the resource was not changed.
+	 *
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	public Result transform(String resourceName, byte[] bytes) throws TransformException {
+		return transform( resourceName, new ByteData(resourceName, bytes) );
+	}
+
+	public Result transform(String resourceName, byte[] bytes, int offset, int length) throws TransformException {
+		return transform( resourceName, new ByteData(resourceName, bytes, offset, length) );
+	}
+
+	/**
+	 * Transform the bytes of a resource.  The position and limit of the
+	 * buffer are not changed.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param byteBuffer The bytes of the resource, from the buffer position to
+	 *     the buffer limit.
+	 *
+	 * @return The result of the transformation.
+	 *
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	public Result transform(String resourceName, ByteBuffer byteBuffer) throws TransformException {
+		ByteData inputData;
+		if ( byteBuffer.hasArray() ) {
+			inputData = new ByteData(
+				resourceName, byteBuffer.array(),
+				byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining() );
+		} else {
+			byte[] bytes = new byte[ byteBuffer.remaining() ];
+			byteBuffer.duplicate().get(bytes);
+			inputData = new ByteData(resourceName, bytes);
+		}
+		return transform(resourceName, inputData);
+	}
+
+	public Result transform(String resourceName, ByteData inputData) throws TransformException {
+		ActionImpl action = getAction(resourceName);
+		if ( action == null ) {
+			return unchanged(resourceName, inputData);
+		}
+
+		ByteData outputData;
+		if ( action.useStreams() ) {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputData.length);
+			action.apply(
+				resourceName,
+				new ByteArrayInputStream(inputData.data, inputData.offset, inputData.length), inputData.length,
+				outputStream); // throws TransformException
+			outputData = new ByteData( resourceName, outputStream.toByteArray() );
+		} else {
+			outputData = action.apply(resourceName, inputData); // throws TransformException
+		}
+
+		if ( !action.hasChanges() ) {
+			// Pooled output which is not returned must be released.
+			if ( (outputData.data != inputData.data) && outputData.isPooled() ) {
+				outputData.release();
+			}
+			outputData = inputData;
+		} else if ( outputData.isPooled() ) {
+			// Pooled data must not escape to the caller.
+			byte[] outputBytes = new byte[ outputData.length ];
+			System.arraycopy(outputData.data, outputData.offset, outputBytes, 0, outputData.length);
+			outputData.release();
+			outputData = new ByteData(outputData.name, outputBytes);
+		}
+		return changed(action, resourceName, outputData);
+	}
+
+	/**
+	 * Transform a resource as a stream.  This is the preferred way to
+	 * transform archives, which are processed one entry at a time.
+	 *
+	 * Resources which are not processed as streams are read fully, then
+	 * are transformed as bytes.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param inputStream The stream of the resource.
+	 * @param outputStream The stream which receives the transformed resource.
+	 *
+	 * @return The result of the transformation.  The result has no bytes.
+	 *
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	public Result transform(String resourceName, InputStream inputStream, OutputStream outputStream)
+		throws TransformException {
+
+		ActionImpl action = getAction(resourceName);
+		if ( action == null ) {
+			try {
+				FileUtils.transfer(inputStream, outputStream); // throws IOException
+			} catch ( IOException e ) {
+				throw new TransformException("Failed to copy [ " + resourceName + " ]", e);
+			}
+			return unchanged(resourceName, null);
+		}
+
+		if ( action.useStreams() ) {
+			action.apply(resourceName, inputStream, -1L, outputStream); // throws TransformException
+			return changed(action, resourceName, null);
+		}
+
+		ByteData inputData;
+		try {
+			inputData = FileUtils.read(resourceName, inputStream); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to read [ " + resourceName + " ]", e);
+		}
+
+		Result result = transform(resourceName, inputData); // throws TransformException
+
+		try {
+			result.data.write(outputStream); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to write [ " + result.outputName + " ]", e);
+		}
+
+		return new Result(result.inputName, result.outputName, result.actionName, result.hasChanges, null);
+	}
+
+	/**
+	 * Transform a file or a directory.
+	 *
+	 * @param inputFile The file which is to be transformed.
+	 * @param outputFile The file which receives the transformed file.
+	 *
+	 * @return The result of the transformation.  The result has no bytes.
+	 *
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	public Result transform(File inputFile, File outputFile) throws TransformException {
+		String inputName = FileUtils.normalize( inputFile.getPath() );
+
+		ActionImpl action = getAction(inputName, inputFile);
+		if ( action == null ) {
+			try {
+				FileUtils.copy(inputFile, outputFile, !ActionImpl.LINK_UNCHANGED);
+			} catch ( IOException e ) {
+				throw new TransformException("Failed to copy [ " + inputName + " ]", e);
+			}
+			return unchanged(inputName, null);
+		}
+
+		action.apply(inputName, inputFile, outputFile); // throws TransformException
+		return changed(action, inputName, null);
+	}
+}
@@ -22,6 +22,7 @@ package org.eclipse.transformer.action;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
@@ -107,6 +108,22 @@ public interface Action {
 
 	//
 
+	/**
+	 * Apply this action on the remaining bytes of a byte buffer, writing
+	 * the transformed bytes to an output stream.
+	 *
+	 * The input buffer is usually a view of a memory mapped file.  The
+	 * position of the input buffer is not changed.
+	 *
+	 * @param inputName A name associated with the input data.
+	 * @param inputBuffer A buffer containing the input data.
+	 * @param outputStream A stream to which to write the output data.
+	 *
+	 * @throws TransformException Thrown if the transform failed.
+	 */
+	void apply(String inputName, ByteBuffer inputBuffer, OutputStream outputStream)
+		throws TransformException;
+
 	/**
 	 * Apply this action onto an input file, writing output
 	 * onto an output file.
@@ -120,6 +137,25 @@ public interface Action {
 	void apply(String inputName, File inputFile, File outputFile)
 		throws TransformException;
 
+	/**
+	 * Apply this action onto an input file, writing output
+	 * onto an output file.
+	 *
+	 * When the action makes no changes to the input, the output file is
+	 * created as a copy of the input file, which is performed without writing
+	 * the input bytes back through an output stream.
+	 *
+	 * @param inputName A name associated with the input file.
+	 * @param inputFile The input file.
+	 * @param outputFile The output file.
+	 * @param linkUnchanged Control parameter: Tell if an unchanged output
+	 *     should be created as a hard link to the input file.
+	 *
+	 * @throws TransformException Thrown if the action could not be applied.
+	 */
+	void apply(String inputName, File inputFile, File outputFile, boolean linkUnchanged)
+		throws TransformException;
+
 	/**
 	 * Apply this action on an input stream.
 	 *
@@ -196,6 +232,26 @@ public interface Action {
 	ByteData apply(String inputName, byte[] inputBytes, int inputLength)
 		throws TransformException;
 
+	/**
+	 * Apply this action on input byte data.
+	 *
+	 * Answer output byte data.  Unlike {@link #apply(String, byte[], int)},
+	 * the output data will be the input data if this action made no changes
+	 * to the input data, or if the transform failed.
+	 *
+	 * The output data may share the array of the input data.  The output
+	 * data must be used before the input buffer of this action is reused.
+	 *
+	 * @param inputName A name associated with the input data.
+	 * @param inputData Input data.
+	 *
+	 * @return Output data.  Never null.
+	 *
+	 * @throws TransformException Thrown if the transform failed.
+	 */
+	ByteData apply(String inputName, ByteData inputData)
+		throws TransformException;
+
 	//
 
 	/**
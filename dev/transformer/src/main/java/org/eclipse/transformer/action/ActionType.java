@@ -26,6 +26,7 @@ public enum ActionType {
 	MANIFEST, FEATURE,
 	SERVICE_LOADER_CONFIG,
 	XML,
+	TEXT, JSP,
 
 	ZIP, JAR, WAR, RAR, EAR,
 	JAVA,
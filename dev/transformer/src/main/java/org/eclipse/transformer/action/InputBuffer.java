@@ -19,7 +19,18 @@
 
 package org.eclipse.transformer.action;
 
+import org.eclipse.transformer.util.BufferPool;
+
 public interface InputBuffer {
+	/**
+	 * Answer the pool from which read buffers are obtained.  The pool is
+	 * shared by all actions which share this input buffer, and is safe
+	 * for concurrent use.
+	 *
+	 * @return The buffer pool.
+	 */
+	BufferPool getPool();
+
 	byte[] getInputBuffer();
 	void setInputBuffer(byte[] inputBuffer);
 }
@@ -152,4 +152,20 @@ public interface SignatureRule {
 
 	String getDirectString(String initialValue);
 
+	//
+
+	/**
+	 * Tell if raw data might reference a renamed package or a direct string.
+	 * This is a quick, conservative test, which is used to skip data which
+	 * cannot be changed by the rules.
+	 *
+	 * @param bytes Raw data, usually, the bytes of a class.
+	 * @param offset The offset to the data.
+	 * @param length The length of the data.
+	 *
+	 * @return False if the data cannot reference a renamed package or
+	 *     a direct string.  True if it might.
+	 */
+	boolean mayReference(byte[] bytes, int offset, int length);
+
 }
\ No newline at end of file
@@ -24,12 +24,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
+import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.jfr.ActionEvent;
+import org.eclipse.transformer.jfr.TransformEvents;
+import org.eclipse.transformer.util.BufferPool;
+import org.eclipse.transformer.util.ByteBufferInputStream;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
@@ -135,6 +144,33 @@ public abstract class ActionImpl implements Action {
 		getBuffer().setInputBuffer(inputBuffer);
 	}
 
+	public BufferPool getBufferPool() {
+		return getBuffer().getPool();
+	}
+
+	//
+
+	private MetricsImpl metrics;
+
+	/**
+	 * Answer the metrics which record the applications of this action.
+	 *
+	 * @return The metrics of this action.  Null if metrics are not recorded.
+	 */
+	public MetricsImpl getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics which record the applications of this action.  Container
+	 * and composite actions set the metrics of their child actions.
+	 *
+	 * @param metrics The metrics of this action.  Null to not record metrics.
+	 */
+	public void setMetrics(MetricsImpl metrics) {
+		this.metrics = metrics;
+	}
+
     //
 
     private final SelectionRuleImpl selectionRule;
@@ -269,6 +305,13 @@ public abstract class ActionImpl implements Action {
 	
 	//
 
+	/**
+	 * Answer the single extension of resources accepted by this action.
+	 *
+	 * @return The extension of accepted resources.  Null if the action
+	 *     does not accept resources by a single extension, in which case
+	 *     the action must implement {@link #accept(String, File)}.
+	 */
 	public abstract String getAcceptExtension();
 
 	@Override
@@ -278,7 +321,8 @@ public abstract class ActionImpl implements Action {
 
 	@Override
 	public boolean accept(String resourceName, File resourceFile) {
-		return resourceName.toLowerCase().endsWith( getAcceptExtension() );
+		String acceptExtension = getAcceptExtension();
+		return ( (acceptExtension != null) && resourceName.toLowerCase().endsWith(acceptExtension) );
 	}
 
 	//
@@ -347,23 +391,17 @@ public abstract class ActionImpl implements Action {
 	 *     {@link Action#UNKNOWN_LENGTH} if the count of
 	 *     input bytes is not known.
 	 *
-	 * @return Byte data from the read.
+	 * @return Byte data from the read.  The data holds a pooled buffer,
+	 *     which should be released when the data is no longer used.
 	 * 
 	 * @throws TransformException Indicates a read failure.
 	 */
 	protected ByteData read(String inputName, InputStream inputStream, int inputCount) throws TransformException {
-		byte[] readBytes = getInputBuffer();
-
-		ByteData readData;
 		try {
-			readData = FileUtils.read(inputName, inputStream, readBytes, inputCount); // throws IOException
+			return FileUtils.read(inputName, inputStream, getBufferPool(), inputCount); // throws IOException
 		} catch ( IOException e ) {
 			throw new TransformException("Failed to read raw bytes [ " + inputName + " ] count [ " + inputCount + " ]", e);
 		}
-
-		setInputBuffer(readData.data);
-
-		return readData;
 	}
 
 	/**
@@ -402,32 +440,15 @@ public abstract class ActionImpl implements Action {
 	public InputStreamData apply(String inputName, InputStream inputStream, int inputCount)
 		throws TransformException {
 
-		String className = getClass().getSimpleName();
-		String methodName = "apply";
-
-		verbose("[ %s.%s ]: Requested [ %s ] [ %s ]\n", className, methodName, inputName, inputCount);
 		ByteData inputData = read(inputName, inputStream, inputCount); // throws JakartaTransformException
-		verbose("[ %s.%s ]: Obtained [ %s ] [ %s ] [ %s ]\n", className, methodName, inputName, inputData.length, inputData.data);
+		ByteData outputData = apply(inputName, inputData); // throws JakartaTransformException
 
-		ByteData outputData;
-		try {
-			outputData = apply(inputName, inputData.data, inputData.length);
-			// throws JakartaTransformException
-		} catch ( Throwable th ) {
-			error("Transform failure [ %s ]\n", th, inputName);
-			outputData = null;			
+		// The answered stream holds the output data: The input data can only be
+		// released if the output does not use the input array.  Actions may
+		// answer new data which wraps the input array.
+		if ( outputData.data != inputData.data ) {
+			inputData.release();
 		}
-
-		if ( outputData == null ) {
-			verbose("[ %s.%s ]: Null transform\n", className, methodName);
-			outputData = inputData;
-		} else {
-			verbose(
-				"[ %s.%s ]: Active transform [ %s ] [ %s ] [ %s ]\n",
-				className, methodName,
-				outputData.name, outputData.length, outputData.data);
-		}
-
 		return new InputStreamData(outputData);
 	}
 
@@ -438,22 +459,74 @@ public abstract class ActionImpl implements Action {
 
 		int intInputCount = FileUtils.verifyArray(0, inputCount);
 
+		ByteData inputData = read(inputName, inputStream, intInputCount); // throws JakartaTransformException
+		try {
+			ByteData outputData = apply(inputName, inputData); // throws JakartaTransformException
+			write(outputData, outputStream); // throws JakartaTransformException
+		} finally {
+			inputData.release();
+		}
+	}
+
+	@Override
+	public ByteData apply(String inputName, ByteData inputData)
+		throws TransformException {
+
 		String className = getClass().getSimpleName();
 		String methodName = "apply";
 
-		verbose("[ %s.%s ]: Requested [ %s ] [ %s ]\n", className, methodName, inputName, inputCount);
-		ByteData inputData = read(inputName, inputStream, intInputCount); // throws JakartaTransformException
 		verbose("[ %s.%s ]: Obtained [ %s ] [ %s ]\n", className, methodName, inputName, inputData.length);
 
+		// Byte based actions expect data which starts at the beginning of the array.
+
+		byte[] inputBytes;
+		if ( inputData.offset == 0 ) {
+			inputBytes = inputData.data;
+		} else {
+			inputBytes = new byte[inputData.length];
+			System.arraycopy(inputData.data, inputData.offset, inputBytes, 0, inputData.length);
+		}
+
+		MetricsImpl useMetrics = getMetrics();
+		long startNanos = ( (useMetrics == null) ? 0L : useMetrics.start(inputName) );
+
+		ActionEvent event;
+		if ( TransformEvents.isEnabled() ) {
+			event = new ActionEvent();
+			event.begin();
+		} else {
+			event = null;
+		}
+
 		ByteData outputData;
 		try {
-			outputData = apply(inputName, inputData.data, inputData.length);
+			outputData = apply(inputName, inputBytes, inputData.length);
 			// throws JakartaTransformException
 		} catch ( Throwable th ) {
 			error("Transform failure [ %s ]\n", th, inputName);
 			outputData = null;
 		}
 
+		int outputLength = ( (outputData == null) ? inputData.length : outputData.length );
+		boolean isChanged = ( (outputData != null) && hasChanges() );
+
+		if ( event != null ) {
+			event.end();
+			if ( event.shouldCommit() ) {
+				ActionType actionType = getActionType();
+				event.resourceName = inputName;
+				event.actionType = ( (actionType == null) ? null : actionType.name() );
+				event.inputLength = inputData.length;
+				event.outputLength = outputLength;
+				event.changed = isChanged;
+				event.commit();
+			}
+		}
+
+		if ( useMetrics != null ) {
+			useMetrics.end(this, startNanos, inputData.length, outputLength, isChanged);
+		}
+
 		if ( outputData == null ) {
 			verbose("[ %s.%s ]: Null transform\n", className, methodName);
 			outputData = inputData;
@@ -461,20 +534,116 @@ public abstract class ActionImpl implements Action {
 			verbose("[ %s.%s ]: Active transform [ %s ] [ %s ]\n", className, methodName, outputData.name, outputData.length);
 		}
 
-		write(outputData, outputStream); // throws JakartaTransformException		
+		return outputData;
 	}
 
 	@Override
 	public abstract ByteData apply(String inputName, byte[] inputBytes, int inputLength) 
 		throws TransformException;
 
+	/**
+	 * Minimum length of input files which are mapped instead of being read
+	 * through an input stream.  Mapping small files costs more than reading
+	 * them.
+	 */
+	public static final long MAPPED_INPUT_THRESHOLD = FileUtils.BUFFER_ADJUSTMENT;
+
+	/**
+	 * Tell if an input file is to be mapped.  Mapped files must be regular files
+	 * no smaller than {@link #MAPPED_INPUT_THRESHOLD}, and must be small enough
+	 * to be mapped as a single buffer.
+	 *
+	 * @param inputFile The input file.
+	 * @param inputLength The length of the input file.
+	 *
+	 * @return True or false telling if the input file is to be mapped.
+	 */
+	protected boolean useMappedInput(File inputFile, long inputLength) {
+		return ( (inputLength >= MAPPED_INPUT_THRESHOLD) &&
+				 (inputLength <= FileUtils.MAX_ARRAY_LENGTH) &&
+				 inputFile.isFile() );
+	}
+
     @Override
 	public void apply(String inputName, File inputFile, File outputFile)
 		throws TransformException {
 
+    	apply(inputName, inputFile, outputFile, !LINK_UNCHANGED);
+    }
+
+    public static final boolean LINK_UNCHANGED = true;
+
+    @Override
+	public void apply(String inputName, File inputFile, File outputFile, boolean linkUnchanged)
+		throws TransformException {
+
 		long inputLength = inputFile.length();
         verbose("Input [ %s ] Length [ %s ]\n", inputName, inputLength);
 
+        if ( useStreams() ) {
+        	applyStreams(inputName, inputFile, inputLength, outputFile);
+        	return;
+        }
+
+        // Byte based actions can tell if the output is unchanged before
+        // any output is written.  Unchanged output is copied or linked
+        // from the input file.
+
+        ByteData inputData = read(inputName, inputFile, inputLength);
+        try {
+        	ByteData outputData = apply(inputName, inputData); // throws JakartaTransformException
+
+        	if ( isUnchanged(inputData, outputData) ) {
+        		copy(inputName, inputFile, outputFile, linkUnchanged);
+        	} else {
+        		OutputStream outputStream = openOutputStream(outputFile);
+        		try {
+        			write(outputData, outputStream); // throws JakartaTransformException
+        		} finally {
+        			closeOutputStream(outputFile, outputStream);
+        		}
+        	}
+        } finally {
+        	inputData.release();
+        }
+	}
+
+    /**
+     * Tell if output data has exactly the bytes of input data.  Only the identity
+     * of the data bytes is tested: Output data which is a copy of the input data
+     * is answered as changed.
+     *
+     * @param inputData Input data.
+     * @param outputData Output data.
+     *
+     * @return True or false telling if the output data is the input data.
+     */
+    protected boolean isUnchanged(ByteData inputData, ByteData outputData) {
+    	return ( (outputData.data == inputData.data) &&
+    			 (outputData.offset == inputData.offset) &&
+    			 (outputData.length == inputData.length) );
+    }
+
+    protected void copy(String inputName, File inputFile, File outputFile, boolean link)
+    	throws TransformException {
+
+    	boolean linked;
+    	try {
+    		linked = FileUtils.copy(inputFile, outputFile, link); // throws IOException
+    	} catch ( IOException e ) {
+    		throw new TransformException("Failed to copy unchanged [ " + inputName + " ]", e);
+    	}
+    	verbose("Unchanged [ %s ]: %s\n", inputName, (linked ? "Linked" : "Copied"));
+    }
+
+    protected void applyStreams(String inputName, File inputFile, long inputLength, File outputFile)
+    	throws TransformException {
+
+        if ( useMappedInput(inputFile, inputLength) ) {
+        	applyMapped(inputName, inputFile, inputLength, outputFile);
+        	return;
+        }
+
 		InputStream inputStream = openInputStream(inputFile);
 		try {
 			OutputStream outputStream = openOutputStream(outputFile);
@@ -488,8 +657,119 @@ public abstract class ActionImpl implements Action {
 		}
 	}
 
+    /**
+     * Read an input file into pooled byte data.  The file is never mapped:
+     * Byte based actions require an array, and mapping the file would only
+     * add a copy from the mapped buffer into that array.  Only stream based
+     * actions use mapped input.
+     *
+     * @param inputName A name associated with the input file.
+     * @param inputFile The input file.
+     * @param inputLength The length of the input file.
+     *
+     * @return Pooled byte data containing the file bytes.
+     *
+     * @throws TransformException Thrown if the read failed.
+     */
+    protected ByteData read(String inputName, File inputFile, long inputLength)
+    	throws TransformException {
+
+    	int intInputLength = FileUtils.verifyArray(0, inputLength);
+
+    	InputStream inputStream = openInputStream(inputFile);
+    	try {
+    		return read(inputName, inputStream, intInputLength); // throws JakartaTransformException
+    	} finally {
+    		closeInputStream(inputFile, inputStream);
+    	}
+    }
+
+	protected void applyMapped(String inputName, File inputFile, long inputLength, File outputFile)
+		throws TransformException {
+
+		verbose("Input [ %s ] Mapped\n", inputName);
+
+		FileChannel inputChannel = openInputChannel(inputFile);
+		try {
+			MappedByteBuffer inputBuffer;
+			try {
+				inputBuffer = inputChannel.map(FileChannel.MapMode.READ_ONLY, 0L, inputLength); // throws IOException
+			} catch ( IOException e ) {
+				throw new TransformException("Failed to map input [ " + inputFile.getAbsolutePath() + " ]", e);
+			}
+
+			// The mapping remains valid after the channel is closed, and
+			// is released when the buffer is collected.
+
+			OutputStream outputStream = openOutputStream(outputFile);
+			try {
+				apply(inputName, inputBuffer, outputStream);
+			} finally {
+				closeOutputStream(outputFile, outputStream);
+			}
+		} finally {
+			closeInputChannel(inputFile, inputChannel);
+		}
+	}
+
+	@Override
+	public void apply(String inputName, ByteBuffer inputBuffer, OutputStream outputStream)
+		throws TransformException {
+
+		int inputCount = inputBuffer.remaining();
+
+		if ( useStreams() ) {
+			// Stream based actions read directly from the buffer.
+			apply(inputName, new ByteBufferInputStream(inputBuffer), inputCount, outputStream);
+			// throws JakartaTransformException
+			return;
+		}
+
+		// Byte based actions require an array: Use the backing array if there is one,
+		// otherwise do a single bulk copy into a pooled buffer.
+
+		ByteData inputData;
+		if ( inputBuffer.hasArray() ) {
+			inputData = new ByteData(
+				inputName,
+				inputBuffer.array(), inputBuffer.arrayOffset() + inputBuffer.position(), inputCount);
+		} else {
+			BufferPool pool = getBufferPool();
+			byte[] inputBytes = pool.allocate(inputCount);
+			inputBuffer.duplicate().get(inputBytes, 0, inputCount);
+			inputData = new ByteData(inputName, inputBytes, 0, inputCount, pool);
+		}
+
+		try {
+			ByteData outputData = apply(inputName, inputData); // throws JakartaTransformException
+			write(outputData, outputStream); // throws JakartaTransformException
+		} finally {
+			inputData.release();
+		}
+	}
+
 	//
 
+    protected FileChannel openInputChannel(File inputFile)
+    	throws TransformException {
+
+    	try {
+    		return FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+    	} catch ( IOException e ) {
+        	throw new TransformException("Failed to open input [ " + inputFile.getAbsolutePath() + " ]", e);
+        }
+    }
+
+    protected void closeInputChannel(File inputFile, FileChannel inputChannel)
+    	throws TransformException {
+
+    	try {
+    		inputChannel.close();
+    	} catch ( IOException e ) {
+        	throw new TransformException("Failed to close input [ " + inputFile.getAbsolutePath() + " ]", e);
+        }
+    }
+
     protected InputStream openInputStream(File inputFile)
     	throws TransformException {
 
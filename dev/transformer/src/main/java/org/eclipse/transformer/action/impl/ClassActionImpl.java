@@ -29,6 +29,8 @@ import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.jfr.ClassConstantsEvent;
+import org.eclipse.transformer.jfr.TransformEvents;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 
@@ -429,11 +431,29 @@ public class ClassActionImpl extends ActionImpl {
 		MutableConstantPool constants = classBuilder.constant_pool();
 		verbose("  Constant pool: %s\n", constants.size()); 
 
+		ClassConstantsEvent event;
+		if ( TransformEvents.isEnabled() ) {
+			event = new ClassConstantsEvent();
+			event.begin();
+		} else {
+			event = null;
+		}
+
 		int modifiedConstants = transform(constants);
 		if ( modifiedConstants > 0 ) {
 			setModifiedConstants(modifiedConstants);
 		}
 
+		if ( event != null ) {
+			event.end();
+			if ( event.shouldCommit() ) {
+				event.className = inputClassName;
+				event.constants = constants.size();
+				event.modifiedConstants = modifiedConstants;
+				event.commit();
+			}
+		}
+
 		if ( !hasNonResourceNameChanges() ) {
 			log("  Class bytes: %s %s\n", inputName, inputLength);
 			return null;
@@ -441,7 +461,7 @@ public class ClassActionImpl extends ActionImpl {
 
 		ClassFile outputClass = classBuilder.build();
 
-		ByteBufferDataOutput outputClassData = new ByteBufferDataOutput( inputBytes.length + FileUtils.PAGE_SIZE );
+		ByteBufferDataOutput outputClassData = new ByteBufferDataOutput( inputLength + FileUtils.PAGE_SIZE );
 		try {
 			outputClass.write(outputClassData); // throws IOException
 		} catch ( IOException e ) {
@@ -449,7 +469,7 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		byte[] outputBytes = outputClassData.toByteArray();
-		log("  Class size: %s: %s -> %s\n", inputName, inputBytes.length, outputBytes.length);
+		log("  Class size: %s: %s -> %s\n", inputName, inputLength, outputBytes.length);
 		
 		return new ByteData(outputName, outputBytes, 0, outputBytes.length);
 	}
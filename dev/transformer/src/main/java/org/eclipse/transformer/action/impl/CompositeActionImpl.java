@@ -85,6 +85,19 @@ public class CompositeActionImpl extends ActionImpl implements CompositeAction {
 		getActions().add(action);
 	}
 
+	@Override
+	public void setMetrics(MetricsImpl metrics) {
+		// Actions are shared between containers: Stop at actions which
+		// were already set.
+		if ( getMetrics() == metrics ) {
+			return;
+		}
+		super.setMetrics(metrics);
+		for ( ActionImpl action : getActions() ) {
+			action.setMetrics(metrics);
+		}
+	}
+
 	@Override
 	public String getAcceptExtension() {
 		throw new UnsupportedOperationException();
@@ -33,9 +33,13 @@ import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ContainerAction;
 import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.jfr.ContainerEntryEvent;
+import org.eclipse.transformer.jfr.TransformEvents;
+import org.eclipse.transformer.util.BufferPool;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.CountingInputStream;
+import org.eclipse.transformer.util.CountingOutputStream;
 import org.eclipse.transformer.util.FileUtils;
-import org.eclipse.transformer.util.InputStreamData;
 
 public abstract class ContainerActionImpl extends ActionImpl implements ContainerAction {
 
@@ -74,6 +78,12 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		return getAction().getActions();
 	}
 
+	@Override
+	public void setMetrics(MetricsImpl metrics) {
+		super.setMetrics(metrics);
+		getAction().setMetrics(metrics);
+	}
+
 	@Override
 	public String getAcceptExtension() {
 		throw new UnsupportedOperationException();
@@ -152,8 +162,30 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		String inputPath, InputStream inputStream, long inputCount,
 		OutputStream outputStream) throws TransformException {
 
+		// Container actions are shared by the containers which hold them: Clear the
+		// changes of any prior container, so that only the changes of this container
+		// are recorded, and so that only those changes are added to the enclosing
+		// container.
+
+		clearChanges();
 		setResourceNames(inputPath, inputPath);
 
+		// Count the bytes of the archive only when recording metrics.
+
+		MetricsImpl useMetrics = getMetrics();
+		long startNanos;
+		CountingInputStream countingInput;
+		CountingOutputStream countingOutput;
+		if ( useMetrics == null ) {
+			startNanos = 0L;
+			countingInput = null;
+			countingOutput = null;
+		} else {
+			startNanos = useMetrics.start(inputPath);
+			inputStream = countingInput = new CountingInputStream(inputStream);
+			outputStream = countingOutput = new CountingOutputStream(outputStream);
+		}
+
 		// Use Zip streams instead of Jar streams.
 		//
 		// Jar streams automatically read and consume the manifest, which we don't want.
@@ -170,6 +202,17 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				zipOutputStream.finish(); // throws IOException
 			} catch ( IOException e ) {
 				throw new TransformException("Failed to complete output [ " + inputPath + " ]", e);
+
+			} finally {
+				if ( useMetrics != null ) {
+					// The zip stream stops reading at the central directory: Prefer the
+					// supplied input count, which is the full length of the archive.
+					useMetrics.end(
+						this, startNanos,
+						( (inputCount == -1L) ? countingInput.getCount() : inputCount ),
+						countingOutput.getCount(),
+						hasChanges() );
+				}
 			}
 		}
 	}
@@ -181,8 +224,10 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		String prevName = null;
 		String inputName = null;
 
+		BufferPool pool = getBufferPool();
+		byte[] buffer = pool.allocate(FileUtils.BUFFER_ADJUSTMENT);
+
 		try {
-			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
 
 			ZipEntry inputEntry;
 			while ( (inputEntry = zipInputStream.getNextEntry()) != null ) {
@@ -192,6 +237,14 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				verbose("[ %s.%s ] [ %s ] Size [ %s ]\n",
 					getClass().getSimpleName(), "applyZip", inputName, inputLength);
 
+				ContainerEntryEvent event;
+				if ( TransformEvents.isEnabled() ) {
+					event = new ContainerEntryEvent();
+					event.begin();
+				} else {
+					event = null;
+				}
+
 				boolean selected = select(inputName);
 				Action acceptedAction = acceptAction(inputName);
 
@@ -263,16 +316,39 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 							intInputLength = FileUtils.verifyArray(0, inputLength);
 						}
 
-						InputStreamData outputData =
-								acceptedAction.apply(inputName, zipInputStream, intInputLength);
-						recordTransform(acceptedAction, inputName);
+						// Hand the output bytes directly to the zip stream: Do not wrap
+						// the output bytes as a stream and copy them through a buffer.
 
-						// TODO: Should more of the entry details be transferred?
+						ByteData inputData = read(inputName, zipInputStream, intInputLength);
+						// throws JakartaTransformException
+						try {
+							ByteData outputData = acceptedAction.apply(inputName, inputData);
+							// throws JakartaTransformException
+							recordTransform(acceptedAction, inputName);
 
-						ZipEntry outputEntry = new ZipEntry( acceptedAction.getChanges().getOutputResourceName() );
-						zipOutputStream.putNextEntry(outputEntry); // throws IOException
-						FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws IOException 
-						zipOutputStream.closeEntry(); // throws IOException
+							// TODO: Should more of the entry details be transferred?
+
+							ZipEntry outputEntry = new ZipEntry( acceptedAction.getChanges().getOutputResourceName() );
+							zipOutputStream.putNextEntry(outputEntry); // throws IOException
+							write(outputData, zipOutputStream); // throws JakartaTransformException
+							zipOutputStream.closeEntry(); // throws IOException
+						} finally {
+							inputData.release();
+						}
+					}
+				}
+
+				if ( event != null ) {
+					event.end();
+					if ( event.shouldCommit() ) {
+						event.containerName = inputPath;
+						event.entryName = inputName;
+						event.actionType = ( (acceptedAction == null) ? null : acceptedAction.getActionType().name() );
+						event.disposition =
+							( (acceptedAction == null) ? ContainerEntryEvent.UNACCEPTED
+							: (!selected ? ContainerEntryEvent.UNSELECTED : ContainerEntryEvent.TRANSFORMED) );
+						event.entryLength = inputLength;
+						event.commit();
 					}
 				}
 
@@ -290,6 +366,9 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				message = "Failed to process first entry of [ " + inputPath + " ]";
 			}
 			throw new TransformException(message, e);
+
+		} finally {
+			pool.release(buffer);
 		}
 	}
 }
\ No newline at end of file
@@ -20,11 +20,25 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.RunManifest;
 
 public class DirectoryActionImpl extends ContainerActionImpl {
 
@@ -63,12 +77,268 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 		return ( (resourceFile != null) && resourceFile.isDirectory() );
 	}
 
+	//
+
+	/** Default count of threads used to copy files. */
+	public static final int DEFAULT_COPY_THREADS =
+		Math.min( 4, Runtime.getRuntime().availableProcessors() );
+
+	private int copyThreads = DEFAULT_COPY_THREADS;
+
+	public int getCopyThreads() {
+		return copyThreads;
+	}
+
+	/**
+	 * Set the count of threads used to copy files.  Zero causes
+	 * files to be copied as they are visited.
+	 *
+	 * @param copyThreads The count of copy threads.
+	 */
+	public void setCopyThreads(int copyThreads) {
+		this.copyThreads = copyThreads;
+	}
+
+	private boolean linkCopies;
+
+	public boolean getLinkCopies() {
+		return linkCopies;
+	}
+
+	/**
+	 * Set whether copied files and unchanged transformed files are created
+	 * as hard links to the input files.  Copies fall back to a full copy if a
+	 * link cannot be created.
+	 *
+	 * @param linkCopies Whether copied files are hard linked.
+	 */
+	public void setLinkCopies(boolean linkCopies) {
+		this.linkCopies = linkCopies;
+	}
+
+	// Copies which are in progress.  Copies are performed by the copy
+	// executor while the transform continues with other files.
+
+	private ExecutorService copyExecutor;
+	private List<Future<Boolean>> copies;
+
+	protected void copy(String inputPath, File inputFile, File outputFile)
+		throws TransformException {
+
+		boolean useLink = getLinkCopies();
+
+		if ( copyExecutor == null ) {
+			try {
+				boolean linked = FileUtils.copy(inputFile, outputFile, useLink); // throws IOException
+				verbose("Resource [ %s ]: %s\n", inputPath, (linked ? "Linked" : "Copied"));
+			} catch ( IOException e ) {
+				throw new TransformException("Failed to copy [ " + inputPath + " ]", e);
+			}
+
+		} else {
+			copies.add( copyExecutor.submit( () -> {
+				try {
+					return Boolean.valueOf( FileUtils.copy(inputFile, outputFile, useLink) ); // throws IOException
+				} catch ( IOException e ) {
+					throw new IOException("Failed to copy [ " + inputPath + " ]", e);
+				}
+			} ) );
+		}
+	}
+
+	protected void startCopies() {
+		int useCopyThreads = getCopyThreads();
+		if ( useCopyThreads > 0 ) {
+			AtomicInteger threadCount = new AtomicInteger();
+			copyExecutor = Executors.newFixedThreadPool( useCopyThreads, (Runnable runnable) -> {
+				Thread copyThread = new Thread(runnable, "transformer-copy-" + threadCount.incrementAndGet());
+				copyThread.setDaemon(true);
+				return copyThread;
+			} );
+			copies = new ArrayList<Future<Boolean>>();
+		}
+	}
+
+	/**
+	 * Wait for all copies to complete.  Throw an exception for the first
+	 * failed copy, but only after all copies have completed.
+	 *
+	 * @throws TransformException Thrown if any copy failed.
+	 */
+	protected void completeCopies() throws TransformException {
+		if ( copyExecutor == null ) {
+			return;
+		}
+
+		List<Future<Boolean>> useCopies = copies;
+		copies = null;
+		copyExecutor.shutdown();
+		copyExecutor = null;
+
+		int linkCount = 0;
+		int copyCount = 0;
+		Throwable failure = null;
+
+		for ( Future<Boolean> copy : useCopies ) {
+			try {
+				if ( copy.get().booleanValue() ) {
+					linkCount++;
+				} else {
+					copyCount++;
+				}
+			} catch ( ExecutionException e ) {
+				if ( failure == null ) {
+					failure = e.getCause();
+				}
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				if ( failure == null ) {
+					failure = e;
+				}
+			}
+		}
+
+		verbose("Copied [ %s ] Linked [ %s ]\n", copyCount, linkCount);
+
+		if ( failure != null ) {
+			throw new TransformException("Failed to copy resources", failure);
+		}
+	}
+
+	//
+
+    /**
+     * Apply this action to a directory.  Link unchanged files according to
+     * the directory copy settings: The link parameter is ignored.
+     */
+    @Override
+	public void apply(String inputPath, File inputFile, File outputFile, boolean linkUnchanged)
+		throws TransformException {
+
+    	apply(inputPath, inputFile, outputFile);
+    }
+
     @Override
 	public void apply(String inputPath, File inputFile, File outputFile)
 		throws TransformException {
 
 	    setResourceNames(inputPath, inputPath);
-        transform(".", inputFile, outputFile);
+
+	    // Directory lengths are the total lengths of the transformed files.
+	    // Copied files are not recorded.
+
+	    MetricsImpl useMetrics = getMetrics();
+	    long startNanos = ( (useMetrics == null) ? 0L : useMetrics.start(inputPath) );
+	    try {
+	    	startIncremental(inputFile);
+
+	    	startCopies();
+	    	try {
+	    		transform(".", inputFile, outputFile);
+	    		removeOrphans(outputFile);
+	    	} catch ( TransformException | RuntimeException e ) {
+	    		try {
+	    			completeCopies();
+	    		} catch ( TransformException copyFailure ) {
+	    			e.addSuppressed(copyFailure);
+	    		}
+	    		priorManifest = null;
+	    		nextManifest = null;
+	    		throw e;
+	    	}
+	    	completeCopies();
+
+	    	completeIncremental();
+
+	    } finally {
+	    	if ( useMetrics != null ) {
+	    		useMetrics.end(
+	    			this, startNanos,
+	    			MetricsImpl.NESTED_LENGTH, MetricsImpl.NESTED_LENGTH,
+	    			hasChanges() );
+	    	}
+	    }
+	}
+
+	/**
+	 * Apply this action to changed files of a directory which was previously
+	 * transformed.  Changed files, which may be directories, are transformed.
+	 * The outputs of removed files are deleted.
+	 *
+	 * Changes recorded by this action are cleared before the changed
+	 * files are transformed.  The output directory must not be within the
+	 * input directory.
+	 *
+	 * @param inputRoot The root input directory.
+	 * @param outputRoot The root output directory.
+	 * @param changedPaths Paths, relative to the input directory, of created or
+	 *     modified files.
+	 * @param removedPaths Paths, relative to the input directory, of removed files.
+	 *
+	 * @throws TransformException Thrown if the transform failed, or if the output
+	 *     directory is within the input directory.
+	 */
+	public void applyChanges(
+		File inputRoot, File outputRoot,
+		Collection<String> changedPaths, Collection<String> removedPaths)
+		throws TransformException {
+
+		// Outputs written within the input would be reported as further changes.
+		boolean outputWithinInput;
+		try {
+			outputWithinInput = FileUtils.isWithin(inputRoot, outputRoot); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to resolve output [ " + outputRoot + " ]", e);
+		}
+		if ( outputWithinInput ) {
+			throw new TransformException("Output [ " + outputRoot + " ] is within input [ " + inputRoot + " ]");
+		}
+
+		String inputRootPath = "./" + inputRoot.getName();
+
+		clearChanges();
+	    setResourceNames(inputRootPath, inputRootPath);
+
+		for ( String removedPath : removedPaths ) {
+			File removedOutput = new File(outputRoot, removedPath);
+			verbose("Resource [ %s ]: Removed\n", removedPath);
+			deleteTree(removedPath, removedOutput);
+		}
+
+	    startCopies();
+	    try {
+	    	for ( String changedPath : changedPaths ) {
+	    		File changedInput = new File(inputRoot, changedPath);
+	    		if ( !changedInput.exists() ) {
+	    			continue; // Removed after the change was reported.
+	    		}
+	    		File changedOutput = new File(outputRoot, changedPath);
+	    		changedOutput.getParentFile().mkdirs();
+
+	    		int lastSlash = changedPath.lastIndexOf('/');
+	    		String parentPath = ( (lastSlash == -1) ? inputRootPath : inputRootPath + '/' + changedPath.substring(0, lastSlash) );
+
+	    		transform(parentPath, changedInput, changedOutput);
+	    	}
+	    } catch ( TransformException | RuntimeException e ) {
+	    	try {
+	    		completeCopies();
+	    	} catch ( TransformException copyFailure ) {
+	    		e.addSuppressed(copyFailure);
+	    	}
+	    	throw e;
+	    }
+	    completeCopies();
+	}
+
+	protected void deleteTree(String inputPath, File outputFile) throws TransformException {
+		File[] children = outputFile.listFiles();
+		if ( children != null ) {
+			for ( File child : children ) {
+				deleteTree(inputPath + '/' + child.getName(), child);
+			}
+		}
+		deleteOutput(inputPath, outputFile);
 	}
 
 	protected void transform(
@@ -97,16 +367,303 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 	    		transform(inputPath, childInputFile, childOutputFile);
 	    	}
 
+	    } else if ( nextManifest == null ) {
+	    	transformFile(inputPath, inputFile, outputFile);
+
 	    } else {
-	    	Action selectedAction = acceptAction(inputPath, inputFile);
-	    	if ( selectedAction == null ) {
-	    		recordUnaccepted(inputPath);
-	    	} else if ( !select(inputPath) ) {
-	    		recordUnselected(selectedAction, !ContainerChanges.HAS_CHANGES, inputPath);
-	    	} else {
-	    		selectedAction.apply(inputPath, inputFile, outputFile);
-	    		recordTransform(selectedAction, inputPath);
-	    	}
+	    	transformIncremental(inputPath, inputFile, outputFile);
 	    }
 	}
+
+	/**
+	 * Transform a single file.  Answer true if the output was created as
+	 * a copy of the input, and false if the output was transformed.
+	 *
+	 * @param inputPath The path to the file.
+	 * @param inputFile The input file.
+	 * @param outputFile The output file.
+	 *
+	 * @return True or false telling if the output was copied from the input.
+	 *
+	 * @throws TransformException Thrown if the transform failed.
+	 */
+	protected boolean transformFile(
+		String inputPath, File inputFile,
+		File outputFile)  throws TransformException {
+
+		// Unaccepted and unselected files, and files which would only be
+		// passed through the null action, are copied without being read.
+
+		Action selectedAction = acceptAction(inputPath, inputFile);
+		if ( selectedAction == null ) {
+			recordUnaccepted(inputPath);
+			copy(inputPath, inputFile, outputFile);
+			return true;
+		} else if ( !select(inputPath) ) {
+			recordUnselected(selectedAction, !ContainerChanges.HAS_CHANGES, inputPath);
+			copy(inputPath, inputFile, outputFile);
+			return true;
+		} else if ( selectedAction.getActionType() == ActionType.NULL ) {
+			getChanges().record(selectedAction, !ContainerChanges.HAS_CHANGES);
+			copy(inputPath, inputFile, outputFile);
+			return true;
+		} else {
+			// Do not write through a link which was created by a prior copy.
+			deleteOutput(inputPath, outputFile);
+			selectedAction.apply(inputPath, inputFile, outputFile, getLinkCopies());
+			recordTransform(selectedAction, inputPath);
+			return false;
+		}
+	}
+
+	//
+
+	/** Name under which incrementally skipped files are recorded. */
+	public static final String INCREMENTAL_SKIP = "Incremental Skip";
+
+	private File stateFile;
+	private String rulesFingerprint;
+
+	public File getStateFile() {
+		return stateFile;
+	}
+
+	public String getRulesFingerprint() {
+		return rulesFingerprint;
+	}
+
+	/**
+	 * Enable incremental transforms.  A manifest of the transform is stored in
+	 * the state file.  Later transforms use the manifest to skip files which
+	 * have not changed since the prior transform, and to remove outputs of
+	 * files which were removed since the prior transform.
+	 *
+	 * All files are transformed when the rules fingerprint does not match the
+	 * fingerprint of the stored manifest.
+	 *
+	 * @param stateFile The file used to store the transform manifest.  Null
+	 *     to disable incremental transforms.
+	 * @param rulesFingerprint A fingerprint of the transformation rules.
+	 */
+	public void setIncremental(File stateFile, String rulesFingerprint) {
+		this.stateFile = stateFile;
+		this.rulesFingerprint = rulesFingerprint;
+	}
+
+	public boolean isIncremental() {
+		return ( stateFile != null );
+	}
+
+	// The prior manifest holds entries which have not yet been visited
+	// by the current transform.  Unvisited entries are for input files which
+	// have been removed.
+
+	private RunManifest priorManifest;
+	private boolean priorRulesMatch;
+	private RunManifest nextManifest;
+	private String rootPath;
+	private byte[] digestBuffer;
+
+	// Copies may complete after their entries are created.  The size and
+	// last modified time of copied outputs are updated after all copies have
+	// completed.
+
+	private Map<String, File> copiedOutputs;
+
+	protected void startIncremental(File inputFile) throws TransformException {
+		if ( !isIncremental() ) {
+			return;
+		}
+
+		File useStateFile = getStateFile();
+		try {
+			priorManifest = RunManifest.read(useStateFile); // throws IOException
+		} catch ( IOException e ) {
+			error("Ignoring unreadable state [ %s ]: %s\n", useStateFile, e);
+			priorManifest = null;
+		}
+
+		if ( priorManifest == null ) {
+			log("Incremental transform: No prior state [ %s ]\n", useStateFile);
+			priorRulesMatch = false;
+		} else {
+			priorRulesMatch = priorManifest.getRulesFingerprint().equals( getRulesFingerprint() );
+			if ( !priorRulesMatch ) {
+				log("Incremental transform: Rules changed since prior state [ %s ]\n", useStateFile);
+			} else {
+				log("Incremental transform: Prior state [ %s ] has [ %s ] files\n", useStateFile, priorManifest.size());
+			}
+		}
+
+		nextManifest = new RunManifest( getRulesFingerprint() );
+		rootPath = "./" + inputFile.getName() + '/';
+		digestBuffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+		copiedOutputs = new HashMap<String, File>();
+	}
+
+	protected void completeIncremental() throws TransformException {
+		if ( nextManifest == null ) {
+			return;
+		}
+
+		RunManifest useManifest = nextManifest;
+		nextManifest = null;
+		priorManifest = null;
+		digestBuffer = null;
+
+		for ( Map.Entry<String, File> copiedEntry : copiedOutputs.entrySet() ) {
+			RunManifest.Entry entry = useManifest.get( copiedEntry.getKey() );
+			File outputFile = copiedEntry.getValue();
+			useManifest.put( new RunManifest.Entry(
+				entry.path,
+				entry.size, entry.modified, entry.digest,
+				outputFile.length(), outputFile.lastModified(), entry.outputDigest) );
+		}
+		copiedOutputs = null;
+
+		File useStateFile = getStateFile();
+		try {
+			useManifest.write(useStateFile); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to write state [ " + useStateFile + " ]", e);
+		}
+	}
+
+	protected String getRelativePath(String inputPath) {
+		return inputPath.substring( rootPath.length() );
+	}
+
+	protected String digest(String inputPath, File file) throws TransformException {
+		try {
+			return RunManifest.digest(file, digestBuffer); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to digest [ " + inputPath + " ] [ " + file + " ]", e);
+		}
+	}
+
+	/**
+	 * Tell if the output of a prior transform is still present and unchanged.
+	 * The output is unchanged if it has the same size and last modified time
+	 * as the prior output, or if it has the same size and content digest as
+	 * the prior output.
+	 *
+	 * @param inputPath The path to the input file.
+	 * @param priorEntry The prior manifest entry of the input file.
+	 * @param outputFile The output file.
+	 *
+	 * @return True or false telling if the output is unchanged.
+	 *
+	 * @throws TransformException Thrown if the output could not be digested.
+	 */
+	protected boolean isOutputUnchanged(
+		String inputPath, RunManifest.Entry priorEntry,
+		File outputFile) throws TransformException {
+
+		if ( !outputFile.isFile() ) {
+			return false;
+		} else if ( priorEntry.matchesOutput(outputFile) ) {
+			return true;
+		} else if ( outputFile.length() != priorEntry.outputSize ) {
+			return false;
+		} else {
+			return digest(inputPath, outputFile).equals(priorEntry.outputDigest);
+		}
+	}
+
+	/**
+	 * Incrementally transform a file.  Skip the file if the prior transform
+	 * used the same rules, the input has not changed, and the output of the
+	 * prior transform has not changed.  The input is unchanged if it has the
+	 * same size and last modified time as the prior input, or if it has the
+	 * same size and content digest as the prior input.
+	 *
+	 * @param inputPath The path to the file.
+	 * @param inputFile The input file.
+	 * @param outputFile The output file.
+	 *
+	 * @throws TransformException Thrown if the transform failed.
+	 */
+	protected void transformIncremental(
+		String inputPath, File inputFile,
+		File outputFile)  throws TransformException {
+
+		String relativePath = getRelativePath(inputPath);
+
+		long inputSize = inputFile.length();
+		long inputModified = inputFile.lastModified();
+
+		RunManifest.Entry priorEntry = ( (priorManifest == null) ? null : priorManifest.remove(relativePath) );
+
+		String inputDigest = null;
+
+		if ( (priorEntry != null) && priorRulesMatch ) {
+			boolean inputUnchanged;
+			if ( priorEntry.matches(inputFile) ) {
+				inputDigest = priorEntry.digest;
+				inputUnchanged = true;
+			} else if ( priorEntry.size == inputSize ) {
+				inputDigest = digest(inputPath, inputFile);
+				inputUnchanged = inputDigest.equals(priorEntry.digest);
+			} else {
+				inputUnchanged = false;
+			}
+
+			if ( inputUnchanged && isOutputUnchanged(inputPath, priorEntry, outputFile) ) {
+				verbose("Resource [ %s ]: Unchanged since prior transform\n", inputPath);
+				nextManifest.put( new RunManifest.Entry(
+					relativePath,
+					inputSize, inputModified, inputDigest,
+					outputFile.length(), outputFile.lastModified(), priorEntry.outputDigest) );
+				getChanges().record(INCREMENTAL_SKIP, !ContainerChanges.HAS_CHANGES);
+				return;
+			}
+		}
+
+		if ( inputDigest == null ) {
+			inputDigest = digest(inputPath, inputFile);
+		}
+
+		boolean copied = transformFile(inputPath, inputFile, outputFile);
+
+		String outputDigest;
+		if ( copied ) {
+			outputDigest = inputDigest;
+			copiedOutputs.put(relativePath, outputFile);
+		} else {
+			outputDigest = digest(inputPath, outputFile);
+		}
+
+		nextManifest.put( new RunManifest.Entry(
+			relativePath,
+			inputSize, inputModified, inputDigest,
+			outputFile.length(), outputFile.lastModified(), outputDigest) );
+	}
+
+	/**
+	 * Remove the outputs of files which were transformed by the prior
+	 * transform but which are no longer present.
+	 *
+	 * @param outputRoot The root output directory.
+	 *
+	 * @throws TransformException Thrown if an output could not be removed.
+	 */
+	protected void removeOrphans(File outputRoot) throws TransformException {
+		if ( priorManifest == null ) {
+			return;
+		}
+
+		for ( String orphanPath : priorManifest.getPaths() ) {
+			File orphanFile = new File(outputRoot, orphanPath);
+			verbose("Resource [ %s ]: Removed since prior transform\n", orphanPath);
+			deleteOutput(orphanPath, orphanFile);
+		}
+	}
+
+	protected void deleteOutput(String inputPath, File outputFile) throws TransformException {
+		try {
+			Files.deleteIfExists( outputFile.toPath() ); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to delete prior output of [ " + inputPath + " ]", e);
+		}
+	}
 }
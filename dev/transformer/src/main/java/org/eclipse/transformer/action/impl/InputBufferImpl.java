@@ -20,12 +20,29 @@
 package org.eclipse.transformer.action.impl;
 
 import org.eclipse.transformer.action.InputBuffer;
+import org.eclipse.transformer.util.BufferPool;
 
 public class InputBufferImpl implements InputBuffer {
 	public InputBufferImpl() {
+		this( new BufferPool() );
+	}
+
+	public InputBufferImpl(BufferPool pool) {
+		this.pool = pool;
 		this.inputBuffer = null;
 	}
 
+	//
+
+	private final BufferPool pool;
+
+	@Override
+	public BufferPool getPool() {
+		return pool;
+	}
+
+	//
+
 	private byte[] inputBuffer;
 
 	@Override
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Transform JSP pages, JSP documents, and tag files.
+ *
+ * Directives are handled specially: Each entry of an 'import' attribute
+ * is matched against the package rename rules, a taglib 'uri' attribute
+ * is matched against the direct string rules, and other attribute values
+ * have embedded package names replaced.  Directives may be written using
+ * either standard syntax ("&lt;%@ page ... %&gt;") or XML syntax
+ * ("&lt;jsp:directive.page ... /&gt;").
+ *
+ * Outside of directives, embedded package names are replaced, which updates
+ * fully qualified type references in scriptlets, expressions, EL, and standard
+ * actions.
+ *
+ * Like text resources, JSP resources are processed as a stream.
+ */
+public class JspActionImpl extends TextActionImpl {
+	public static final Set<String> JSP_EXTENSIONS = new HashSet<String>(
+		Arrays.asList(".jsp", ".jspx", ".jspf", ".tag", ".tagx", ".tagf") );
+
+	public static final String DIRECTIVE_START = "<%@";
+	public static final String DIRECTIVE_END = "%>";
+
+	public static final String XML_DIRECTIVE_START = "<jsp:directive.";
+	public static final String XML_DIRECTIVE_END = ">";
+
+	/** Count of characters after which a directive without an end is handled as template text. */
+	public static final int MAX_DIRECTIVE_LENGTH = FileUtils.PAGE_SIZE * 4;
+
+	/** Directive attribute: name, then either a double quoted or a single quoted value. */
+	public static final Pattern ATTRIBUTE_PATTERN =
+		Pattern.compile("([\\w\\-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+	public JspActionImpl(
+		LoggerImpl logger,
+		InputBufferImpl buffer,
+		SelectionRuleImpl selectionRule,
+		SignatureRuleImpl signatureRule) {
+
+		super(logger, buffer, selectionRule, signatureRule, JSP_EXTENSIONS);
+	}
+
+	//
+
+	@Override
+	public String getName() {
+		return "JSP Action";
+	}
+
+	@Override
+	public ActionType getActionType() {
+		return ActionType.JSP;
+	}
+
+	//
+
+	@Override
+	protected void transform(Reader reader, Writer writer) throws IOException {
+		JspTokenizer tokenizer = new JspTokenizer(writer);
+
+		char[] chars = new char[READ_LENGTH];
+		int charsRead;
+		while ( (charsRead = reader.read(chars)) != -1 ) { // throws IOException
+			tokenizer.add(chars, charsRead); // throws IOException
+		}
+
+		tokenizer.finish(); // throws IOException
+	}
+
+	/**
+	 * Streaming tokenizer for JSP text.  Text is split into template text,
+	 * which is emitted one line at a time, and directives, which are emitted
+	 * whole.  At most one line or one directive is held at a time.
+	 */
+	protected class JspTokenizer {
+		public JspTokenizer(Writer writer) {
+			this.writer = writer;
+			this.pending = new StringBuilder();
+			this.scanOffset = 0;
+			this.directiveEnd = null;
+		}
+
+		private final Writer writer;
+
+		private final StringBuilder pending;
+		private int scanOffset;
+		private String directiveEnd;
+
+		public void add(char[] chars, int count) throws IOException {
+			pending.append(chars, 0, count);
+			scan(false); // throws IOException
+		}
+
+		public void finish() throws IOException {
+			scan(true); // throws IOException
+
+			// An unterminated directive is emitted as template text.
+			emit(pending, pending.length(), writer); // throws IOException
+		}
+
+		protected void scan(boolean atEnd) throws IOException {
+			int pendingLength;
+			while ( scanOffset < (pendingLength = pending.length()) ) {
+				if ( directiveEnd != null ) {
+					int endOffset = pending.indexOf(directiveEnd, scanOffset);
+					if ( endOffset != -1 ) {
+						emitDirective( endOffset + directiveEnd.length() ); // throws IOException
+						scanOffset = 0;
+						directiveEnd = null;
+					} else if ( pendingLength > MAX_DIRECTIVE_LENGTH ) {
+						directiveEnd = null; // Too long: Resume scanning as template text.
+					} else {
+						// Rescan any partial directive end when more text is added.
+						scanOffset = Math.max( scanOffset, pendingLength - directiveEnd.length() + 1 );
+						return;
+					}
+
+				} else {
+					char c = pending.charAt(scanOffset);
+					if ( c == '\n' ) {
+						scanOffset++;
+						emitText(scanOffset); // throws IOException
+
+					} else if ( c == '<' ) {
+						if ( !atEnd && ((pendingLength - scanOffset) < XML_DIRECTIVE_START.length()) ) {
+							return; // Wait for enough text to recognize a directive start.
+						}
+
+						String end;
+						int startLength;
+						if ( startsWith(DIRECTIVE_START) ) {
+							end = DIRECTIVE_END;
+							startLength = DIRECTIVE_START.length();
+						} else if ( startsWith(XML_DIRECTIVE_START) ) {
+							end = XML_DIRECTIVE_END;
+							startLength = XML_DIRECTIVE_START.length();
+						} else {
+							end = null;
+							startLength = 1;
+						}
+
+						if ( end != null ) {
+							emitText(scanOffset); // throws IOException
+							directiveEnd = end;
+						}
+						scanOffset += startLength;
+
+					} else {
+						scanOffset++;
+					}
+				}
+			}
+
+			if ( (directiveEnd == null) && (pending.length() >= MAX_SEGMENT_LENGTH) ) {
+				emitText( splitOffset(pending) ); // throws IOException
+			}
+		}
+
+		private boolean startsWith(String prefix) {
+			int prefixLength = prefix.length();
+			if ( (pending.length() - scanOffset) < prefixLength ) {
+				return false;
+			}
+			for ( int charNo = 0; charNo < prefixLength; charNo++ ) {
+				if ( pending.charAt(scanOffset + charNo) != prefix.charAt(charNo) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void emitText(int limit) throws IOException {
+			emit(pending, limit, writer); // throws IOException
+			scanOffset -= limit;
+		}
+
+		private void emitDirective(int limit) throws IOException {
+			String inputDirective = pending.substring(0, limit);
+			pending.delete(0, limit);
+
+			String outputDirective = transformDirective(inputDirective);
+			if ( outputDirective == null ) {
+				outputDirective = inputDirective;
+			} else {
+				verbose("Directive [ %s ]\n       -> [ %s ]\n", inputDirective, outputDirective);
+				addReplacement();
+			}
+
+			writer.write(outputDirective); // throws IOException
+		}
+	}
+
+	//
+
+	/**
+	 * Transform a directive.
+	 *
+	 * @param directive The text of the directive, including the directive
+	 *     start and end.
+	 *
+	 * @return The transformed directive.  Null if the directive was not changed.
+	 */
+	protected String transformDirective(String directive) {
+		StringBuilder outputBuilder = null;
+		int lastEnd = 0;
+
+		Matcher attributes = ATTRIBUTE_PATTERN.matcher(directive);
+		while ( attributes.find() ) {
+			String name = attributes.group(1);
+
+			int valueGroup = ( (attributes.group(2) != null) ? 2 : 3 );
+			String inputValue = attributes.group(valueGroup);
+
+			String outputValue;
+			if ( name.equals("import") ) {
+				outputValue = transformImports(inputValue);
+			} else if ( name.equals("uri") ) {
+				outputValue = transformDirectString(inputValue);
+			} else {
+				outputValue = replaceEmbeddedPackages(inputValue);
+			}
+			if ( outputValue == null ) {
+				continue;
+			}
+
+			if ( outputBuilder == null ) {
+				outputBuilder = new StringBuilder( directive.length() );
+			}
+			int valueStart = attributes.start(valueGroup);
+			outputBuilder.append(directive, lastEnd, valueStart);
+			outputBuilder.append(outputValue);
+			lastEnd = attributes.end(valueGroup);
+		}
+
+		if ( outputBuilder == null ) {
+			return null;
+		}
+		outputBuilder.append(directive, lastEnd, directive.length());
+		return outputBuilder.toString();
+	}
+
+	/**
+	 * Transform the value of an 'import' attribute.  The value is a comma
+	 * separated list of fully qualified type names and of package names
+	 * followed by ".*".  White space surrounding each element is preserved.
+	 *
+	 * @param imports The import attribute value.
+	 *
+	 * @return The transformed import value.  Null if no import was changed.
+	 */
+	protected String transformImports(String imports) {
+		String[] inputImports = imports.split(",", -1);
+
+		boolean changed = false;
+		StringBuilder outputBuilder = new StringBuilder( imports.length() );
+
+		for ( int importNo = 0; importNo < inputImports.length; importNo++ ) {
+			if ( importNo > 0 ) {
+				outputBuilder.append(',');
+			}
+
+			String inputImport = inputImports[importNo];
+			String outputImport = transformImport( inputImport.trim() );
+			if ( outputImport == null ) {
+				outputBuilder.append(inputImport);
+			} else {
+				int importStart = inputImport.indexOf( inputImport.trim() );
+				int importEnd = importStart + inputImport.trim().length();
+
+				outputBuilder.append(inputImport, 0, importStart);
+				outputBuilder.append(outputImport);
+				outputBuilder.append(inputImport, importEnd, inputImport.length());
+
+				changed = true;
+			}
+		}
+
+		return ( changed ? outputBuilder.toString() : null );
+	}
+
+	/**
+	 * Transform a single import.
+	 *
+	 * @param inputImport A fully qualified type name, or a package name
+	 *     followed by ".*".
+	 *
+	 * @return The transformed import.  Null if the import was not changed.
+	 */
+	protected String transformImport(String inputImport) {
+		int lastDot = inputImport.lastIndexOf('.');
+		if ( lastDot <= 0 ) {
+			return null;
+		}
+
+		String outputPackage = replacePackage( inputImport.substring(0, lastDot) );
+		if ( outputPackage != null ) {
+			return outputPackage + inputImport.substring(lastDot);
+		}
+
+		// Not an exact package match, for example, a reference to a nested type.
+		return replaceEmbeddedPackages(inputImport);
+	}
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.transformer.action.ActionType;
+
+/**
+ * Timing and throughput metrics of actions.
+ *
+ * Metrics are aggregated by action type and by nesting level.  Level zero holds
+ * the top level input.  Level one holds the entries of a top level archive or
+ * directory, level two holds the entries of archives which are nested in a top
+ * level archive, and so on.
+ *
+ * Each application of an action is recorded with its input and output lengths,
+ * whether it made changes, and its elapsed time.  Elapsed times are recorded
+ * both as total times, which include the time spent on nested resources, and as
+ * self times, which do not.  Self times add up to the time of the entire
+ * transform, and are the better measure of where transform time goes.
+ *
+ * Metrics are thread safe: The action trees of several threads may share one
+ * metrics instance.  Nesting is tracked separately for each thread.
+ */
+public class MetricsImpl {
+	public MetricsImpl() {
+		this.stats = new ConcurrentHashMap<Integer, Stats>();
+		this.frames = ThreadLocal.withInitial( Frames::new );
+	}
+
+	//
+
+	/** Aggregate metrics of one action type at one nesting level. */
+	public static class Stats {
+		public Stats(ActionType actionType, int level) {
+			this.actionType = actionType;
+			this.level = level;
+		}
+
+		public final ActionType actionType;
+		public final int level;
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder changed = new LongAdder();
+		private final LongAdder inputLength = new LongAdder();
+		private final LongAdder outputLength = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAdder selfNanos = new LongAdder();
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getChanged() {
+			return changed.sum();
+		}
+
+		public long getInputLength() {
+			return inputLength.sum();
+		}
+
+		public long getOutputLength() {
+			return outputLength.sum();
+		}
+
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+
+		public long getSelfNanos() {
+			return selfNanos.sum();
+		}
+
+		protected void record(
+			long useInputLength, long useOutputLength, boolean isChanged,
+			long useTotalNanos, long useSelfNanos) {
+
+			count.increment();
+			if ( isChanged ) {
+				changed.increment();
+			}
+			inputLength.add(useInputLength);
+			outputLength.add(useOutputLength);
+			totalNanos.add(useTotalNanos);
+			selfNanos.add(useSelfNanos);
+		}
+
+		protected void add(Stats other) {
+			count.add( other.getCount() );
+			changed.add( other.getChanged() );
+			inputLength.add( other.getInputLength() );
+			outputLength.add( other.getOutputLength() );
+			totalNanos.add( other.getTotalNanos() );
+			selfNanos.add( other.getSelfNanos() );
+		}
+	}
+
+	// Stats are keyed by level and action type.
+
+	private final Map<Integer, Stats> stats;
+
+	protected Stats getStats(ActionType actionType, int level) {
+		Integer key = Integer.valueOf( (level * ActionType.values().length) + actionType.ordinal() );
+		return stats.computeIfAbsent( key, (Integer useKey) -> new Stats(actionType, level) );
+	}
+
+	/**
+	 * Answer the recorded metrics, ordered by nesting level, then by action type.
+	 *
+	 * @return The recorded metrics.
+	 */
+	public List<Stats> getStats() {
+		List<Stats> allStats = new ArrayList<Stats>( stats.values() );
+		allStats.sort( (Stats s1, Stats s2) -> {
+			int levelCmp = Integer.compare(s1.level, s2.level);
+			return ( (levelCmp != 0) ? levelCmp : s1.actionType.compareTo(s2.actionType) );
+		} );
+		return allStats;
+	}
+
+	/**
+	 * Answer the recorded metrics, summed across nesting levels.  The level
+	 * of the answered metrics is -1.  The total times of the answered metrics
+	 * include the time of nested resources which have the same type.
+	 *
+	 * @return The recorded metrics of each action type.
+	 */
+	public Map<ActionType, Stats> getStatsByType() {
+		Map<ActionType, Stats> statsByType = new EnumMap<ActionType, Stats>(ActionType.class);
+		for ( Stats levelStats : stats.values() ) {
+			statsByType.computeIfAbsent(
+				levelStats.actionType,
+				(ActionType useType) -> new Stats(useType, -1) ).add(levelStats);
+		}
+		return statsByType;
+	}
+
+	public void clear() {
+		stats.clear();
+	}
+
+	/**
+	 * Record of one application of an action.  A resource record is passed to
+	 * each listener as each application completes.
+	 *
+	 * The changes of a resource are the changes of the action which was applied,
+	 * and are only valid while the resource is being passed to listeners.
+	 */
+	public static class Resource {
+		public Resource(
+			String path, int level, ActionType actionType, ChangesImpl changes,
+			long inputLength, long outputLength, boolean isChanged,
+			long totalNanos, long selfNanos) {
+
+			this.path = path;
+			this.level = level;
+			this.actionType = actionType;
+			this.changes = changes;
+
+			this.inputLength = inputLength;
+			this.outputLength = outputLength;
+			this.isChanged = isChanged;
+
+			this.totalNanos = totalNanos;
+			this.selfNanos = selfNanos;
+		}
+
+		/** Nesting path of the resource, for example "app.ear!web.war!WEB-INF/classes/a/B.class". */
+		public final String path;
+		public final int level;
+		public final ActionType actionType;
+		public final ChangesImpl changes;
+
+		public final long inputLength;
+		public final long outputLength;
+		public final boolean isChanged;
+
+		public final long totalNanos;
+		public final long selfNanos;
+	}
+
+	/** Listener which receives each resource as it is recorded. */
+	public static interface ResourceListener {
+		/**
+		 * Receive a recorded resource.  Resources are received on the thread
+		 * which applied the action, and nested resources are received before
+		 * their container.
+		 *
+		 * @param resource The recorded resource.
+		 */
+		void record(Resource resource);
+	}
+
+	private final List<ResourceListener> listeners = new CopyOnWriteArrayList<ResourceListener>();
+
+	public void addListener(ResourceListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ResourceListener listener) {
+		listeners.remove(listener);
+	}
+
+	// Nesting is tracked using a stack of frames, one frame for each action
+	// application which is in progress.  Each frame accumulates the times and
+	// lengths of the applications which are nested within it.
+
+	private static class Frames {
+		public int depth;
+		public String[] names = new String[8];
+		public long[] nestedNanos = new long[8];
+		public long[] nestedInput = new long[8];
+		public long[] nestedOutput = new long[8];
+
+		public void push(String name) {
+			if ( depth == nestedNanos.length ) {
+				int newLength = depth * 2;
+				names = Arrays.copyOf(names, newLength);
+				nestedNanos = Arrays.copyOf(nestedNanos, newLength);
+				nestedInput = Arrays.copyOf(nestedInput, newLength);
+				nestedOutput = Arrays.copyOf(nestedOutput, newLength);
+			}
+			names[depth] = name;
+			nestedNanos[depth] = 0L;
+			nestedInput[depth] = 0L;
+			nestedOutput[depth] = 0L;
+			depth++;
+		}
+
+		public String getPath(int level) {
+			StringBuilder path = new StringBuilder();
+			for ( int nameNo = 0; nameNo <= level; nameNo++ ) {
+				if ( nameNo > 0 ) {
+					path.append(PATH_SEPARATOR);
+				}
+				path.append( names[nameNo] );
+			}
+			return path.toString();
+		}
+	}
+
+	/** Separator of the names of nesting paths. */
+	public static final char PATH_SEPARATOR = '!';
+
+	private final ThreadLocal<Frames> frames;
+
+	/** Length which indicates that the lengths of nested resources are to be used. */
+	public static final long NESTED_LENGTH = -1L;
+
+	/**
+	 * Start recording an application of an action.  Each start must be
+	 * matched by an end, including when the application fails.
+	 *
+	 * @param resourceName The name of the resource to which the action
+	 *     is applied.
+	 *
+	 * @return The start time of the application.
+	 */
+	public long start(String resourceName) {
+		frames.get().push(resourceName);
+		return System.nanoTime();
+	}
+
+	/**
+	 * Complete recording an application of an action.
+	 *
+	 * @param action The action which was applied.  Nothing is recorded if
+	 *     the action does not have a type, which is the case for a composite
+	 *     action which did not select an action.
+	 * @param startNanos The start time, as answered by {@link #start(String)}.
+	 * @param inputLength The count of bytes read by the application, or
+	 *     {@link #NESTED_LENGTH} to use the total input length of nested
+	 *     resources.
+	 * @param outputLength The count of bytes written by the application, or
+	 *     {@link #NESTED_LENGTH} to use the total output length of nested
+	 *     resources.
+	 * @param isChanged Whether the application made changes.
+	 */
+	public void end(
+		ActionImpl action, long startNanos,
+		long inputLength, long outputLength, boolean isChanged) {
+
+		long totalNanos = System.nanoTime() - startNanos;
+
+		Frames useFrames = frames.get();
+		int level = --useFrames.depth;
+
+		if ( inputLength == NESTED_LENGTH ) {
+			inputLength = useFrames.nestedInput[level];
+		}
+		if ( outputLength == NESTED_LENGTH ) {
+			outputLength = useFrames.nestedOutput[level];
+		}
+		long selfNanos = totalNanos - useFrames.nestedNanos[level];
+
+		if ( level > 0 ) {
+			int parentLevel = level - 1;
+			useFrames.nestedNanos[parentLevel] += totalNanos;
+			useFrames.nestedInput[parentLevel] += inputLength;
+			useFrames.nestedOutput[parentLevel] += outputLength;
+		}
+
+		ActionType actionType = action.getActionType();
+		if ( actionType == null ) {
+			useFrames.names[level] = null;
+			return;
+		}
+
+		getStats(actionType, level).record(inputLength, outputLength, isChanged, totalNanos, selfNanos);
+
+		if ( !listeners.isEmpty() ) {
+			Resource resource = new Resource(
+				useFrames.getPath(level), level, actionType, action.getChanges(),
+				inputLength, outputLength, isChanged,
+				totalNanos, selfNanos);
+			for ( ResourceListener listener : listeners ) {
+				listener.record(resource);
+			}
+		}
+
+		useFrames.names[level] = null;
+	}
+
+	//
+
+	private static final String DASH_LINE =
+		"================================================================================\n";
+	private static final String SMALL_DASH_LINE =
+		"--------------------------------------------------------------------------------\n";
+
+	private static final String HEADER_LINE =
+		"[ %-23s ] [ %7s ] [ %7s ] [ %10s ] [ %10s ] [ %9s ] [ %9s ] [ %8s ]\n";
+	private static final String DATA_LINE =
+		"[ %-23s ] [ %7d ] [ %7d ] [ %10d ] [ %10d ] [ %9.3f ] [ %9.3f ] [ %8.2f ]\n";
+
+	public void display(PrintStream stream) {
+		// ================================================================================
+		// [ Metrics by action type: ]
+		// --------------------------------------------------------------------------------
+		// [ Type ] [ Count ] [ Changed ] [ Input ] [ Output ] [ Total ms ] [ Self ms ] [ MB/s ]
+		// [ CLASS ] [ 41 ] [ 3 ] [ 123456 ] [ 124000 ] [ 45.120 ] [ 45.120 ] [ 2.61 ]
+		// ================================================================================
+		// [ Metrics by nesting level: ]
+		// --------------------------------------------------------------------------------
+		// [ Type ] [ Count ] [ Changed ] [ Input ] [ Output ] [ Total ms ] [ Self ms ] [ MB/s ]
+		// [ 0 JAR ] [ 1 ] [ 1 ] [ 60000 ] [ 61000 ] [ 60.410 ] [ 10.200 ] [ 0.95 ]
+		// [ 1 CLASS ] [ 41 ] [ 3 ] [ 123456 ] [ 124000 ] [ 45.120 ] [ 45.120 ] [ 2.61 ]
+		// ================================================================================
+
+		stream.printf( DASH_LINE );
+		stream.printf( "[ Metrics by action type: ]\n" );
+		stream.printf( SMALL_DASH_LINE );
+		displayHeader(stream);
+		for ( Stats typeStats : getStatsByType().values() ) {
+			displayStats(stream, typeStats.actionType.name(), typeStats);
+		}
+
+		stream.printf( DASH_LINE );
+		stream.printf( "[ Metrics by nesting level: ]\n" );
+		stream.printf( SMALL_DASH_LINE );
+		displayHeader(stream);
+		for ( Stats levelStats : getStats() ) {
+			displayStats(stream, levelStats.level + " " + levelStats.actionType.name(), levelStats);
+		}
+		stream.printf( DASH_LINE );
+	}
+
+	protected void displayHeader(PrintStream stream) {
+		stream.printf( HEADER_LINE,
+			"Type", "Count", "Changed", "Input", "Output", "Total ms", "Self ms", "MB/s" );
+	}
+
+	/**
+	 * Display one line of metrics.  Throughput is computed from the input length
+	 * and the total time, and is the rate at which input of the type is processed.
+	 */
+	protected void displayStats(PrintStream stream, String label, Stats useStats) {
+		long totalNanos = useStats.getTotalNanos();
+		double rate;
+		if ( totalNanos == 0L ) {
+			rate = 0.0;
+		} else {
+			rate = ( ((double) useStats.getInputLength()) / (1024.0 * 1024.0) ) / ( ((double) totalNanos) / 1.0e9 );
+		}
+
+		stream.printf( DATA_LINE,
+			label,
+			useStats.getCount(), useStats.getChanged(),
+			useStats.getInputLength(), useStats.getOutputLength(),
+			((double) totalNanos) / 1.0e6, ((double) useStats.getSelfNanos()) / 1.0e6,
+			rate );
+	}
+}
@@ -20,14 +20,21 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.jfr.SignatureCacheMissEvent;
+import org.eclipse.transformer.jfr.TransformEvents;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
 import aQute.bnd.signatures.BaseType;
@@ -53,26 +60,35 @@ public class SignatureRuleImpl implements SignatureRule {
 		Map<String, BundleData> bundleUpdates,
 		Map<String, String> directStrings) {
 
-		this.logger = logger;
-
-		Map<String, String> useRenames = new HashMap<String, String>( renames.size() );
-		Map<String, String> useBinaryRenames = new HashMap<String, String>( renames.size() );
+		this(logger, renames, toBinaryRenames(renames), versions, bundleUpdates, directStrings);
+	}
 
-		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
-			// System.out.println("Binary conversion from [ " + renameEntry.getKey() + " ] to [ " + renameEntry.getValue() + " ]");
-			String initialName = renameEntry.getKey();
-			String finalName = renameEntry.getValue();
+	/**
+	 * Create signature rules using package renames which were already converted
+	 * to binary form.  The binary renames must match the renames.
+	 *
+	 * @param logger The logger used by the rules.
+	 * @param renames Package renames, using '.' separators.
+	 * @param binaryRenames Package renames, using '/' separators.
+	 * @param versions Package version updates.
+	 * @param bundleUpdates Bundle identity updates.
+	 * @param directStrings Direct string replacements.
+	 */
+	public SignatureRuleImpl(
+		LoggerImpl logger,
 
-			useRenames.put(initialName, finalName);
+		Map<String, String> renames,
+		Map<String, String> binaryRenames,
+		Map<String, String> versions,
+		Map<String, BundleData> bundleUpdates,
+		Map<String, String> directStrings) {
 
-			String initialBinaryName = initialName.replace('.',  '/');
-			String finalBinaryName = finalName.replace('.',  '/');
+		this.logger = logger;
 
-			useBinaryRenames.put(initialBinaryName, finalBinaryName);
-		}
+		Map<String, String> useRenames = new HashMap<String, String>(renames);
 
 		this.dottedPackageRenames = useRenames;
-		this.slashedPackageRenames = useBinaryRenames;
+		this.slashedPackageRenames = new HashMap<String, String>(binaryRenames);
 
 		Map<String, String> useVersions;
 		if (versions != null ) {
@@ -98,14 +114,23 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 		this.directStrings = useDirectStrings;
 
-		this.unchangedBinaryTypes = new HashSet<>();
-		this.changedBinaryTypes = new HashMap<>();
+		this.referencePrefixes = indexReferencePrefixes( computeReferencePrefixes(useRenames, useDirectStrings) );
+
+		// The caches are concurrent: A single signature rule may be shared
+		// by actions which are running on different threads.
+
+		this.unchangedBinaryTypes = ConcurrentHashMap.newKeySet();
+		this.changedBinaryTypes = new ConcurrentHashMap<>();
 
-		this.unchangedSignatures = new HashSet<>();
-		this.changedSignatures = new HashMap<>();
+		this.unchangedSignatures = ConcurrentHashMap.newKeySet();
+		this.changedSignatures = new ConcurrentHashMap<>();
 
-		this.unchangedDescriptors = new HashSet<>();
-		this.changedDescriptors = new HashMap<>();
+		this.unchangedDescriptors = ConcurrentHashMap.newKeySet();
+		this.changedDescriptors = new ConcurrentHashMap<>();
+
+		this.binaryTypeStats = new CacheStats("Binary types");
+		this.descriptorStats = new CacheStats("Descriptors");
+		this.signatureStats = new CacheStats("Signatures");
 	}
 
 	//
@@ -144,6 +169,20 @@ public class SignatureRuleImpl implements SignatureRule {
 		getLogger().error(text, th, parms);
     }
 
+	public static Map<String, String> toBinaryRenames(Map<String, String> renames) {
+		Map<String, String> binaryRenames = new HashMap<String, String>( renames.size() );
+
+		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
+			// System.out.println("Binary conversion from [ " + renameEntry.getKey() + " ] to [ " + renameEntry.getValue() + " ]");
+			String initialBinaryName = renameEntry.getKey().replace('.',  '/');
+			String finalBinaryName = renameEntry.getValue().replace('.',  '/');
+
+			binaryRenames.put(initialBinaryName, finalBinaryName);
+		}
+
+		return binaryRenames;
+	}
+
 	//
 
 	private final Map<String, BundleData> bundleUpdates;
@@ -164,6 +203,115 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	//
 
+	// Screening of raw data: A package rename can only apply if the renamed
+	// package appears, in dotted form or in slashed form.  Subpackages are
+	// referenced using the package name as a prefix, and are also detected.
+	// A direct string can only apply if the string appears.
+	//
+	// Both tests are conservative: Screening may accept data which the rules
+	// do not change, but never rejects data which the rules would change.
+
+	/**
+	 * The prefixes used to screen raw data, indexed by their first byte.
+	 * Null if screening is not possible.
+	 */
+	private final byte[][][] referencePrefixes;
+
+	protected static byte[][] computeReferencePrefixes(
+		Map<String, String> renames, Map<String, String> directStrings) {
+
+		Set<String> prefixes = new LinkedHashSet<String>();
+
+		for ( String initialName : renames.keySet() ) {
+			if ( initialName.isEmpty() || (initialName.indexOf('*') != -1) ) {
+				return null;
+			}
+			prefixes.add(initialName);
+			prefixes.add( initialName.replace('.', '/') );
+		}
+
+		for ( String initialValue : directStrings.keySet() ) {
+			if ( initialValue.isEmpty() ) {
+				return null;
+			}
+			prefixes.add(initialValue);
+		}
+
+		byte[][] prefixBytes = new byte[ prefixes.size() ][];
+		int prefixNo = 0;
+		for ( String prefix : prefixes ) {
+			prefixBytes[prefixNo++] = prefix.getBytes(StandardCharsets.UTF_8);
+		}
+		return prefixBytes;
+	}
+
+	/**
+	 * Index screening prefixes by their first byte, so that data is screened
+	 * in a single pass regardless of the number of prefixes.
+	 *
+	 * @param prefixes The prefixes which are to be indexed.  Possibly null.
+	 *
+	 * @return The prefixes indexed by their first byte.  Null if the prefixes
+	 *     are null.
+	 */
+	protected static byte[][][] indexReferencePrefixes(byte[][] prefixes) {
+		if ( prefixes == null ) {
+			return null;
+		}
+
+		byte[][][] prefixIndex = new byte[256][][];
+		for ( byte[] prefix : prefixes ) {
+			int firstByte = prefix[0] & 0xFF;
+			byte[][] oldPrefixes = prefixIndex[firstByte];
+			byte[][] newPrefixes;
+			if ( oldPrefixes == null ) {
+				newPrefixes = new byte[1][];
+			} else {
+				newPrefixes = new byte[ oldPrefixes.length + 1 ][];
+				System.arraycopy(oldPrefixes, 0, newPrefixes, 0, oldPrefixes.length);
+			}
+			newPrefixes[ newPrefixes.length - 1 ] = prefix;
+			prefixIndex[firstByte] = newPrefixes;
+		}
+		return prefixIndex;
+	}
+
+	@Override
+	public boolean mayReference(byte[] bytes, int offset, int length) {
+		byte[][][] prefixIndex = referencePrefixes;
+		if ( prefixIndex == null ) {
+			return true;
+		}
+
+		int limit = offset + length;
+		for ( int start = offset; start < limit; start++ ) {
+			byte[][] prefixes = prefixIndex[ bytes[start] & 0xFF ];
+			if ( prefixes == null ) {
+				continue;
+			}
+			for ( byte[] prefix : prefixes ) {
+				if ( matches(bytes, start, limit, prefix) ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	protected static boolean matches(byte[] bytes, int start, int limit, byte[] prefix) {
+		if ( (limit - start) < prefix.length ) {
+			return false;
+		}
+		for ( int matchNo = 1; matchNo < prefix.length; matchNo++ ) {
+			if ( bytes[start + matchNo] != prefix[matchNo] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//
+
 	// Package rename: "javax.servlet.Servlet"
 	// Direct form  :  "javax.servlet"
 	// Binary form:    "javax/servlet"
@@ -283,6 +431,97 @@ public class SignatureRuleImpl implements SignatureRule {
 
     //
 
+	/** Hit and miss counts of one of the transform caches. */
+	public static class CacheStats {
+		public CacheStats(String name) {
+			this.name = name;
+		}
+
+		public final String name;
+
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		public long getHits() {
+			return hits.sum();
+		}
+
+		public long getMisses() {
+			return misses.sum();
+		}
+
+		protected void hit() {
+			hits.increment();
+		}
+
+		/**
+		 * Count a cache miss.  Start a miss event if transform events are enabled.
+		 *
+		 * @return The started miss event.  Null if events are not enabled.
+		 */
+		protected SignatureCacheMissEvent miss() {
+			misses.increment();
+
+			if ( !TransformEvents.isEnabled() ) {
+				return null;
+			}
+			SignatureCacheMissEvent event = new SignatureCacheMissEvent();
+			event.begin();
+			return event;
+		}
+
+		/**
+		 * Complete the event of a cache miss.
+		 *
+		 * @param event The event answered by {@link #miss()}.
+		 * @param input The value which was transformed.
+		 * @param output The transformed value.  Null if the value was not changed.
+		 */
+		protected void missed(SignatureCacheMissEvent event, String input, String output) {
+			if ( event == null ) {
+				return;
+			}
+			event.end();
+			if ( event.shouldCommit() ) {
+				event.cacheName = name;
+				event.input = input;
+				event.output = output;
+				event.commit();
+			}
+		}
+	}
+
+	private final CacheStats binaryTypeStats;
+	private final CacheStats descriptorStats;
+	private final CacheStats signatureStats;
+
+	/**
+	 * Answer the hit and miss counts of the binary type, descriptor, and
+	 * signature caches.
+	 *
+	 * @return The statistics of the transform caches.
+	 */
+	public List<CacheStats> getCacheStats() {
+		return Arrays.asList(binaryTypeStats, descriptorStats, signatureStats);
+	}
+
+	/**
+	 * Clear the binary type, descriptor, and signature caches.  The cache
+	 * statistics are not cleared.
+	 */
+	public void clearCaches() {
+		unchangedBinaryTypes.clear();
+		changedBinaryTypes.clear();
+
+		unchangedDescriptors.clear();
+		changedDescriptors.clear();
+
+		unchangedSignatures.clear();
+		changedSignatures.clear();
+	}
+
+	//
+
 	private final Map<String, String> changedBinaryTypes;
 	private final Set<String> unchangedBinaryTypes;
 
@@ -320,15 +559,19 @@ public class SignatureRuleImpl implements SignatureRule {
 
 		if ( unchangedBinaryTypes.contains(inputName) ) {
 			// System.out.println("Unchanged (Prior)");
+			binaryTypeStats.hit();
 			return null;
 		}
 
 		String outputName = changedBinaryTypes.get(inputName);
 		if ( outputName != null ) {
 			// System.out.println("Change to [ " + outputName + " ] (Prior)");
+			binaryTypeStats.hit();
 			return outputName;
 		}
 
+		SignatureCacheMissEvent event = binaryTypeStats.miss();
+
 		char c = inputName.charAt(0);
 		if ( (c == '[') || ((c == 'L') && (inputName.charAt(inputName.length() - 1) == ';')) ) {
 		    JavaTypeSignature inputSignature = JavaTypeSignature.of( inputName.replace('$', '.') );
@@ -368,6 +611,7 @@ public class SignatureRuleImpl implements SignatureRule {
 			// System.out.println("Change to [ " + outputName + " ]");
 		}
 
+		binaryTypeStats.missed(event, inputName, outputName);
 		return outputName;
 	}
 
@@ -399,14 +643,17 @@ public class SignatureRuleImpl implements SignatureRule {
 	@Override
 	public String transformDescriptor(String inputDescriptor, boolean allowSimpleSubstitution) {
 		if ( unchangedDescriptors.contains(inputDescriptor) ) {
+			descriptorStats.hit();
 			return null;
 		}
 
 		String outputDescriptor = changedDescriptors.get(inputDescriptor);
 		if ( outputDescriptor != null ) {
+			descriptorStats.hit();
 		    return outputDescriptor;
 		}
 
+		SignatureCacheMissEvent event = descriptorStats.miss();
 
 		char c = inputDescriptor.charAt(0);
 		if ( c == '(' ) {
@@ -440,6 +687,8 @@ public class SignatureRuleImpl implements SignatureRule {
 		} else {
 			changedDescriptors.put(inputDescriptor, outputDescriptor);
 		}
+
+		descriptorStats.missed(event, inputDescriptor, outputDescriptor);
 		return outputDescriptor;
 	}
 
@@ -469,14 +718,18 @@ public class SignatureRuleImpl implements SignatureRule {
 	@Override
 	public String transform(String input, SignatureType signatureType) {
 		if ( unchangedSignatures.contains(input) ) {
+			signatureStats.hit();
 			return null;
 		}
 
 		String output = changedSignatures.get(input);
 		if ( output != null ) {
+			signatureStats.hit();
 			return output;
 		}
 
+		SignatureCacheMissEvent event = signatureStats.miss();
+
 		if ( signatureType == SignatureType.CLASS ) {
 			ClassSignature inputSignature = ClassSignature.of(input);
 			ClassSignature outputSignature = transform(inputSignature);
@@ -515,6 +768,7 @@ public class SignatureRuleImpl implements SignatureRule {
 			changedSignatures.put(input, output);
 		}
 
+		signatureStats.missed(event, input, output);
 		return output;
 	}
 
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.CountingInputStream;
+import org.eclipse.transformer.util.CountingOutputStream;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Transform text resources by replacing embedded package names.
+ *
+ * The resources which are accepted are specified by a list of resource
+ * extensions, which is obtained from the transformation rules.
+ *
+ * Text is processed as a stream, one line at a time, so that memory use is
+ * bounded regardless of the size of the resource.  Very long lines are split
+ * at a character which cannot be part of a package name.
+ *
+ * The encoding of the text is detected from a byte order mark.  Text which
+ * does not have a UTF-16 byte order mark is processed as ISO-8859-1, which
+ * preserves the bytes of any ASCII compatible encoding (including UTF-8),
+ * since package names are always ASCII.
+ *
+ * Content which looks to be binary is copied without being transformed.
+ */
+public class TextActionImpl extends ActionImpl {
+	/** Count of leading bytes which are examined to detect encoding and binary content. */
+	public static final int SNIFF_LENGTH = FileUtils.PAGE_SIZE * 2;
+
+	/** Count of characters read from the text at one time. */
+	public static final int READ_LENGTH = FileUtils.PAGE_SIZE * 2;
+
+	/** Count of characters after which a line without a line terminator is split. */
+	public static final int MAX_SEGMENT_LENGTH = FileUtils.PAGE_SIZE * 4;
+
+	/** Percentage of control characters which causes content to be considered binary. */
+	public static final int BINARY_CONTROL_PERCENT = 10;
+
+	//
+
+	public TextActionImpl(
+		LoggerImpl logger,
+		InputBufferImpl buffer,
+		SelectionRuleImpl selectionRule,
+		SignatureRuleImpl signatureRule,
+		Set<String> extensions) {
+
+		super(logger, buffer, selectionRule, signatureRule);
+
+		Set<String> useExtensions;
+		if ( extensions == null ) {
+			useExtensions = Collections.emptySet();
+		} else {
+			useExtensions = new HashSet<String>( extensions.size() );
+			for ( String extension : extensions ) {
+				useExtensions.add( extension.toLowerCase() );
+			}
+		}
+		this.extensions = useExtensions;
+	}
+
+	//
+
+	public String getName() {
+		return "Text Action";
+	}
+
+	@Override
+	public ActionType getActionType() {
+		return ActionType.TEXT;
+	}
+
+	//
+
+	private final Set<String> extensions;
+
+	public Set<String> getExtensions() {
+		return extensions;
+	}
+
+	/**
+	 * Text actions accept resources by the configured extensions, which
+	 * are answered by {@link #getExtensions()}.
+	 *
+	 * @return Null: Text actions do not have a single accept extension.
+	 */
+	@Override
+	public String getAcceptExtension() {
+		return null;
+	}
+
+	@Override
+	public boolean accept(String resourceName, File resourceFile) {
+		String lowerName = resourceName.toLowerCase();
+		for ( String extension : extensions ) {
+			if ( lowerName.endsWith(extension) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//
+
+	/**
+	 * Text actions never change the resource name, which means the
+	 * output name may be written before the transform is performed.
+	 * Streams are used so that the text is never fully read into memory.
+	 *
+	 * @return True: Text actions process streams.
+	 */
+	@Override
+	public boolean useStreams() {
+		return true;
+	}
+
+	@Override
+	public void apply(
+		String inputName, InputStream inputStream, long inputCount,
+		OutputStream outputStream) throws TransformException {
+
+		clearChanges();
+		setResourceNames(inputName, inputName);
+
+		// Count the bytes of the resource only when recording metrics.
+
+		MetricsImpl useMetrics = getMetrics();
+		long startNanos;
+		CountingInputStream countingInput;
+		CountingOutputStream countingOutput;
+		if ( useMetrics == null ) {
+			startNanos = 0L;
+			countingInput = null;
+			countingOutput = null;
+		} else {
+			startNanos = useMetrics.start(inputName);
+			inputStream = countingInput = new CountingInputStream(inputStream);
+			outputStream = countingOutput = new CountingOutputStream(outputStream);
+		}
+
+		try {
+			transform(inputName, inputStream, outputStream); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+		} finally {
+			if ( useMetrics != null ) {
+				useMetrics.end(
+					this, startNanos,
+					countingInput.getCount(), countingOutput.getCount(),
+					hasNonResourceNameChanges() );
+			}
+		}
+	}
+
+	@Override
+	public ByteData apply(String inputName, byte[] inputBytes, int inputLength)
+		throws TransformException {
+
+		clearChanges();
+		setResourceNames(inputName, inputName);
+
+		InputStream inputStream = new ByteArrayInputStream(inputBytes, 0, inputLength);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputLength);
+
+		try {
+			transform(inputName, inputStream, outputStream); // throws IOException
+		} catch ( IOException e ) {
+			error("Failed to transform [ %s ]\n", e, inputName);
+			return null;
+		}
+
+		if ( !hasNonResourceNameChanges() ) {
+			return null;
+		}
+
+		byte[] outputBytes = outputStream.toByteArray();
+		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+	}
+
+	//
+
+	protected void transform(String inputName, InputStream inputStream, OutputStream outputStream)
+		throws IOException {
+
+		// Do not close either stream: Either may be an entry stream of an enclosing archive.
+
+		BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, SNIFF_LENGTH);
+		bufferedStream.mark(SNIFF_LENGTH);
+
+		byte[] header = new byte[SNIFF_LENGTH];
+		int headerLength = readHeader(bufferedStream, header); // throws IOException
+		bufferedStream.reset(); // throws IOException
+
+		Charset charset = detectCharset(header, headerLength);
+		if ( charset == null ) {
+			verbose("Text [ %s ]: Binary content; copying\n", inputName);
+			FileUtils.transfer(bufferedStream, outputStream); // throws IOException
+			return;
+		}
+
+		verbose("Text [ %s ]: Encoding [ %s ]\n", inputName, charset);
+
+		Reader reader = new InputStreamReader(bufferedStream, charset);
+		Writer writer = new OutputStreamWriter(outputStream, charset);
+
+		transform(reader, writer); // throws IOException
+
+		writer.flush(); // throws IOException
+	}
+
+	protected int readHeader(InputStream inputStream, byte[] header) throws IOException {
+		int headerLength = 0;
+		int bytesRead;
+		while ( (headerLength < header.length) &&
+				((bytesRead = inputStream.read(header, headerLength, header.length - headerLength)) != -1) ) {
+			headerLength += bytesRead;
+		}
+		return headerLength;
+	}
+
+	/**
+	 * Detect the character set of text from its leading bytes.
+	 *
+	 * @param header Leading bytes of the text.
+	 * @param headerLength The count of leading bytes.
+	 *
+	 * @return The character set to use to process the text.  Null if the
+	 *     bytes appear to be binary.
+	 */
+	protected Charset detectCharset(byte[] header, int headerLength) {
+		if ( headerLength >= 2 ) {
+			int first = header[0] & 0xFF;
+			int second = header[1] & 0xFF;
+			if ( (first == 0xFE) && (second == 0xFF) ) {
+				return StandardCharsets.UTF_16BE;
+			} else if ( (first == 0xFF) && (second == 0xFE) ) {
+				return StandardCharsets.UTF_16LE;
+			}
+		}
+
+		int controlCount = 0;
+		for ( int byteNo = 0; byteNo < headerLength; byteNo++ ) {
+			int nextByte = header[byteNo] & 0xFF;
+			if ( nextByte == 0 ) {
+				return null;
+			} else if ( (nextByte < 0x20) &&
+					    (nextByte != '\t') && (nextByte != '\n') && (nextByte != '\r') &&
+					    (nextByte != '\f') && (nextByte != 0x1B) ) {
+				controlCount++;
+			}
+		}
+		if ( (controlCount * 100) > (headerLength * BINARY_CONTROL_PERCENT) ) {
+			return null;
+		}
+
+		return StandardCharsets.ISO_8859_1;
+	}
+
+	protected void transform(Reader reader, Writer writer) throws IOException {
+		char[] chars = new char[READ_LENGTH];
+		StringBuilder segment = new StringBuilder();
+
+		int charsRead;
+		while ( (charsRead = reader.read(chars)) != -1 ) { // throws IOException
+			int start = 0;
+			for ( int charNo = 0; charNo < charsRead; charNo++ ) {
+				if ( chars[charNo] == '\n' ) {
+					segment.append(chars, start, charNo + 1 - start);
+					start = charNo + 1;
+					emit(segment, segment.length(), writer); // throws IOException
+				}
+			}
+			segment.append(chars, start, charsRead - start);
+
+			if ( segment.length() >= MAX_SEGMENT_LENGTH ) {
+				emit(segment, splitOffset(segment), writer); // throws IOException
+			}
+		}
+
+		emit(segment, segment.length(), writer); // throws IOException
+	}
+
+	/**
+	 * Answer the offset at which to split a segment which has no line
+	 * terminator.  The split is placed just after the last character which
+	 * cannot be part of a package name, so that no package name is divided
+	 * between two segments.
+	 *
+	 * @param segment The segment which is to be split.
+	 *
+	 * @return The offset at which to split the segment.
+	 */
+	protected int splitOffset(StringBuilder segment) {
+		for ( int charNo = segment.length() - 1; charNo >= 0; charNo-- ) {
+			char c = segment.charAt(charNo);
+			if ( !Character.isJavaIdentifierPart(c) && (c != '.') ) {
+				return charNo + 1;
+			}
+		}
+		return segment.length();
+	}
+
+	protected void emit(StringBuilder segment, int limit, Writer writer) throws IOException {
+		if ( limit == 0 ) {
+			return;
+		}
+
+		String inputText = segment.substring(0, limit);
+		segment.delete(0, limit);
+
+		String outputText = replaceEmbeddedPackages(inputText);
+		if ( outputText == null ) {
+			outputText = inputText;
+		} else {
+			addReplacement();
+		}
+
+		writer.write(outputText); // throws IOException
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the application of an action to the bytes of a resource.
+ */
+@Name(ActionEvent.NAME)
+@Label("Transform Action")
+@Description("Application of an action to a resource")
+@Category({ TransformEvents.CATEGORY })
+@StackTrace(false)
+public class ActionEvent extends jdk.jfr.Event {
+	public static final String NAME = "org.eclipse.transformer.Action";
+
+	@Label("Resource")
+	public String resourceName;
+
+	@Label("Action Type")
+	public String actionType;
+
+	@Label("Input Length")
+	@DataAmount
+	public long inputLength;
+
+	@Label("Output Length")
+	@DataAmount
+	public long outputLength;
+
+	@Label("Changed")
+	public boolean changed;
+}
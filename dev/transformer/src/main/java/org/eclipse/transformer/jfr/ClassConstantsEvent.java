@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the transformation of the constant pool of a class.
+ */
+@Name(ClassConstantsEvent.NAME)
+@Label("Transform Class Constants")
+@Description("Transformation of the constant pool of a class")
+@Category({ TransformEvents.CATEGORY })
+@StackTrace(false)
+public class ClassConstantsEvent extends jdk.jfr.Event {
+	public static final String NAME = "org.eclipse.transformer.ClassConstants";
+
+	@Label("Class")
+	public String className;
+
+	@Label("Constants")
+	public int constants;
+
+	@Label("Modified Constants")
+	public int modifiedConstants;
+}
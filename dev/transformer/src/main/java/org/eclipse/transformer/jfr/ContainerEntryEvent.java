@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the handling of one entry of an archive.  The duration of the
+ * event includes reading the entry, applying the selected action, and writing
+ * the entry.  Entries which are not selected are copied.
+ */
+@Name(ContainerEntryEvent.NAME)
+@Label("Transform Archive Entry")
+@Description("Handling of one entry of an archive")
+@Category({ TransformEvents.CATEGORY })
+@StackTrace(false)
+public class ContainerEntryEvent extends jdk.jfr.Event {
+	public static final String NAME = "org.eclipse.transformer.ContainerEntry";
+
+	public static final String UNACCEPTED = "Unaccepted";
+	public static final String UNSELECTED = "Unselected";
+	public static final String TRANSFORMED = "Transformed";
+
+	@Label("Archive")
+	public String containerName;
+
+	@Label("Entry")
+	public String entryName;
+
+	@Label("Action Type")
+	public String actionType;
+
+	@Label("Disposition")
+	@Description("Whether the entry was transformed, or was copied because it was not accepted or not selected")
+	public String disposition;
+
+	@Label("Entry Length")
+	@Description("Length of the entry, or -1 if the archive does not record the length")
+	@DataAmount
+	public long entryLength;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the transformation of a value which was not found in one of the
+ * signature rule caches.
+ */
+@Name(SignatureCacheMissEvent.NAME)
+@Label("Transform Signature Cache Miss")
+@Description("Transformation of a type name, descriptor, or signature which was not cached")
+@Category({ TransformEvents.CATEGORY })
+@StackTrace(false)
+public class SignatureCacheMissEvent extends jdk.jfr.Event {
+	public static final String NAME = "org.eclipse.transformer.SignatureCacheMiss";
+
+	@Label("Cache")
+	public String cacheName;
+
+	@Label("Input")
+	public String input;
+
+	@Label("Output")
+	@Description("The transformed value, or null if the value is not changed")
+	public String output;
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.jfr;
+
+/**
+ * Switch for Java Flight Recorder events of transform operations.
+ *
+ * Events are emitted only when enabled, and are recorded only when a flight
+ * recording is active, for example, when the JVM is started with
+ * '-XX:StartFlightRecording'.  When events are not enabled, the event classes
+ * are not loaded, and the transformer may be run on a JVM which does not
+ * provide flight recorder.
+ *
+ * Events are not supported in a native image.  The native image configuration
+ * initializes this class when the image is built, which makes the event
+ * classes unreachable in the image.
+ */
+public final class TransformEvents {
+	private TransformEvents() {
+		// Static methods only.
+	}
+
+	/** Category of transform events. */
+	public static final String CATEGORY = "Transformer";
+
+	/** Property which is set by GraalVM while building, and when running, a native image. */
+	public static final String IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+
+	private static final boolean SUPPORTED = ( System.getProperty(IMAGE_CODE_PROPERTY) == null );
+
+	private static volatile boolean enabled;
+
+	public static boolean isEnabled() {
+		return ( SUPPORTED && enabled );
+	}
+
+	/**
+	 * Enable transform events.
+	 *
+	 * @return True or false telling if events were enabled.  False if the
+	 *     JVM does not provide flight recorder, or when running as a native
+	 *     image.
+	 */
+	public static boolean enable() {
+		if ( !SUPPORTED ) {
+			return false;
+		}
+		try {
+			Class.forName("jdk.jfr.Event"); // throws ClassNotFoundException
+		} catch ( ClassNotFoundException e ) {
+			return false;
+		}
+		enabled = true;
+		return true;
+	}
+
+	public static void disable() {
+		enabled = false;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.transformer.action.impl.MetricsImpl.Resource;
+import org.eclipse.transformer.action.impl.MetricsImpl.Stats;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl.CacheStats;
+
+/**
+ * Writer of a CSV transform report.
+ *
+ * All rows have the same columns.  The first column tells the kind of row:
+ * "resource" rows are written as resources complete, followed by "action"
+ * rows, which have totals by action type, "level" rows, which have totals by
+ * nesting level and action type, "cache" rows, and a final "elapsed" row.
+ *
+ * Details of resources are written as a single column of "key=value" pairs
+ * separated by ';'.  Cache hits and misses are written as details.
+ */
+public class CsvReportWriter extends ReportWriter {
+	public static final String HEADER =
+		"record,path,level,action,count,changed,inputLength,outputLength,totalNanos,selfNanos,details\n";
+
+	public CsvReportWriter(Writer writer) throws IOException {
+		super(writer);
+
+		writer.write(HEADER); // throws IOException
+	}
+
+	@Override
+	protected void writeResource(Resource resource) throws IOException {
+		writeRow(
+			"resource", resource.path, resource.level, resource.actionType.name(),
+			1L, ( resource.isChanged ? 1L : 0L ),
+			resource.inputLength, resource.outputLength,
+			resource.totalNanos, resource.selfNanos,
+			getDetails(resource.changes) );
+	}
+
+	@Override
+	protected void writeTotals(
+		List<Stats> statsByType, List<Stats> statsByLevel,
+		List<CacheStats> cacheStats, long elapsedNanos) throws IOException {
+
+		for ( Stats typeStats : statsByType ) {
+			writeStats("action", typeStats);
+		}
+		for ( Stats levelStats : statsByLevel ) {
+			writeStats("level", levelStats);
+		}
+
+		for ( CacheStats useCacheStats : cacheStats ) {
+			long hits = useCacheStats.getHits();
+			long misses = useCacheStats.getMisses();
+			writer.write("cache,");
+			writeField(useCacheStats.name);
+			writer.write(",,," + (hits + misses) + ",,,,,,");
+			writeField("hits=" + hits + ";misses=" + misses);
+			writer.write('\n');
+		}
+
+		writer.write("elapsed,,,,,,,," + elapsedNanos + ",,\n");
+	}
+
+	@Override
+	protected void writeEnd() throws IOException {
+		// Empty
+	}
+
+	protected void writeStats(String record, Stats useStats) throws IOException {
+		writeRow(
+			record, "", useStats.level, useStats.actionType.name(),
+			useStats.getCount(), useStats.getChanged(),
+			useStats.getInputLength(), useStats.getOutputLength(),
+			useStats.getTotalNanos(), useStats.getSelfNanos(),
+			null );
+	}
+
+	protected void writeRow(
+		String record, String path, int level, String action,
+		long count, long changed,
+		long inputLength, long outputLength,
+		long totalNanos, long selfNanos,
+		Map<String, Object> details) throws IOException {
+
+		writer.write(record);
+		writer.write(',');
+		writeField(path);
+		writer.write(',');
+		writer.write( Integer.toString(level) );
+		writer.write(',');
+		writer.write(action);
+		writer.write(',');
+		writer.write( Long.toString(count) );
+		writer.write(',');
+		writer.write( Long.toString(changed) );
+		writer.write(',');
+		writer.write( Long.toString(inputLength) );
+		writer.write(',');
+		writer.write( Long.toString(outputLength) );
+		writer.write(',');
+		writer.write( Long.toString(totalNanos) );
+		writer.write(',');
+		writer.write( Long.toString(selfNanos) );
+		writer.write(',');
+		if ( details != null ) {
+			StringBuilder detailsText = new StringBuilder();
+			appendDetails(detailsText, "", details);
+			writeField( detailsText.toString() );
+		}
+		writer.write('\n');
+	}
+
+	protected void appendDetails(StringBuilder detailsText, String prefix, Map<?, ?> details) {
+		for ( Map.Entry<?, ?> entry : details.entrySet() ) {
+			String key = prefix + entry.getKey();
+			Object value = entry.getValue();
+			if ( value instanceof Map ) {
+				appendDetails(detailsText, key + '.', (Map<?, ?>) value);
+			} else {
+				if ( detailsText.length() > 0 ) {
+					detailsText.append(';');
+				}
+				detailsText.append(key).append('=').append(value);
+			}
+		}
+	}
+
+	/**
+	 * Write a field.  Quote the field if it contains a separator, a quote,
+	 * or a line break.
+	 */
+	protected void writeField(String value) throws IOException {
+		boolean useQuotes = false;
+		int length = value.length();
+		for ( int charNo = 0; !useQuotes && (charNo < length); charNo++ ) {
+			char c = value.charAt(charNo);
+			useQuotes = ( (c == ',') || (c == '"') || (c == '\n') || (c == '\r') );
+		}
+
+		if ( !useQuotes ) {
+			writer.write(value);
+		} else {
+			writer.write('"');
+			writer.write( value.replace("\"", "\"\"") );
+			writer.write('"');
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.transformer.action.impl.MetricsImpl.Resource;
+import org.eclipse.transformer.action.impl.MetricsImpl.Stats;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl.CacheStats;
+
+/**
+ * Writer of a JSON transform report.  The report is a single object:
+ *
+ * <pre>
+ * {
+ *   "resources": [
+ *     { "path": "app.war!WEB-INF/classes/a/B.class", "level": 1, "action": "CLASS",
+ *       "changed": true, "inputLength": 1200, "outputLength": 1210,
+ *       "totalNanos": 81000, "selfNanos": 81000, "details": { ... } },
+ *     ...
+ *   ],
+ *   "actions": [ { "action": "CLASS", "count": 41, "changed": 3, ... }, ... ],
+ *   "levels": [ { "level": 0, "action": "WAR", "count": 1, ... }, ... ],
+ *   "caches": [ { "cache": "Signatures", "hits": 120, "misses": 30 }, ... ],
+ *   "elapsedNanos": 123456789
+ * }
+ * </pre>
+ *
+ * Resources are written one per line, in the order in which they complete.
+ * Nested resources complete before the resource which contains them.
+ */
+public class JsonReportWriter extends ReportWriter {
+	public JsonReportWriter(Writer writer) throws IOException {
+		super(writer);
+
+		writer.write("{\n  \"resources\": ["); // throws IOException
+	}
+
+	private boolean hasResources;
+
+	@Override
+	protected void writeResource(Resource resource) throws IOException {
+		writer.write( hasResources ? ",\n    " : "\n    " );
+		hasResources = true;
+
+		writer.write("{ \"path\": ");
+		writeString( resource.path );
+		writer.write(", \"level\": ");
+		writer.write( Integer.toString(resource.level) );
+		writer.write(", \"action\": ");
+		writeString( resource.actionType.name() );
+		writer.write(", \"changed\": ");
+		writer.write( Boolean.toString(resource.isChanged) );
+		writer.write(", \"inputLength\": ");
+		writer.write( Long.toString(resource.inputLength) );
+		writer.write(", \"outputLength\": ");
+		writer.write( Long.toString(resource.outputLength) );
+		writer.write(", \"totalNanos\": ");
+		writer.write( Long.toString(resource.totalNanos) );
+		writer.write(", \"selfNanos\": ");
+		writer.write( Long.toString(resource.selfNanos) );
+		writer.write(", \"details\": ");
+		writeValue( getDetails(resource.changes) );
+		writer.write(" }");
+	}
+
+	@Override
+	protected void writeTotals(
+		List<Stats> statsByType, List<Stats> statsByLevel,
+		List<CacheStats> cacheStats, long elapsedNanos) throws IOException {
+
+		writer.write("\n  ],\n  \"actions\": [");
+		writeStats(statsByType, false);
+		writer.write("\n  ],\n  \"levels\": [");
+		writeStats(statsByLevel, true);
+
+		writer.write("\n  ],\n  \"caches\": [");
+		boolean isFirst = true;
+		for ( CacheStats useCacheStats : cacheStats ) {
+			writer.write( isFirst ? "\n    " : ",\n    " );
+			isFirst = false;
+			writer.write("{ \"cache\": ");
+			writeString( useCacheStats.name );
+			writer.write(", \"hits\": ");
+			writer.write( Long.toString(useCacheStats.getHits()) );
+			writer.write(", \"misses\": ");
+			writer.write( Long.toString(useCacheStats.getMisses()) );
+			writer.write(" }");
+		}
+
+		writer.write("\n  ],\n  \"elapsedNanos\": ");
+		writer.write( Long.toString(elapsedNanos) );
+		writer.write("\n}\n");
+	}
+
+	@Override
+	protected void writeEnd() throws IOException {
+		writer.write("\n  ]\n}\n");
+	}
+
+	protected void writeStats(List<Stats> allStats, boolean writeLevel) throws IOException {
+		boolean isFirst = true;
+		for ( Stats useStats : allStats ) {
+			writer.write( isFirst ? "\n    " : ",\n    " );
+			isFirst = false;
+
+			writer.write("{ ");
+			if ( writeLevel ) {
+				writer.write("\"level\": ");
+				writer.write( Integer.toString(useStats.level) );
+				writer.write(", ");
+			}
+			writer.write("\"action\": ");
+			writeString( useStats.actionType.name() );
+			writer.write(", \"count\": ");
+			writer.write( Long.toString(useStats.getCount()) );
+			writer.write(", \"changed\": ");
+			writer.write( Long.toString(useStats.getChanged()) );
+			writer.write(", \"inputLength\": ");
+			writer.write( Long.toString(useStats.getInputLength()) );
+			writer.write(", \"outputLength\": ");
+			writer.write( Long.toString(useStats.getOutputLength()) );
+			writer.write(", \"totalNanos\": ");
+			writer.write( Long.toString(useStats.getTotalNanos()) );
+			writer.write(", \"selfNanos\": ");
+			writer.write( Long.toString(useStats.getSelfNanos()) );
+			writer.write(" }");
+		}
+	}
+
+	//
+
+	protected void writeValue(Object value) throws IOException {
+		if ( value == null ) {
+			writer.write("null");
+
+		} else if ( value instanceof Map ) {
+			writer.write('{');
+			boolean isFirst = true;
+			for ( Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet() ) {
+				writer.write( isFirst ? " " : ", " );
+				isFirst = false;
+				writeString( entry.getKey().toString() );
+				writer.write(": ");
+				writeValue( entry.getValue() );
+			}
+			writer.write( isFirst ? "}" : " }" );
+
+		} else if ( (value instanceof Number) || (value instanceof Boolean) ) {
+			writer.write( value.toString() );
+
+		} else {
+			writeString( value.toString() );
+		}
+	}
+
+	protected void writeString(String value) throws IOException {
+		writer.write('"');
+		int length = value.length();
+		for ( int charNo = 0; charNo < length; charNo++ ) {
+			char c = value.charAt(charNo);
+			switch ( c ) {
+				case '"':
+					writer.write("\\\"");
+					break;
+				case '\\':
+					writer.write("\\\\");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				default:
+					if ( c < 0x20 ) {
+						writer.write( String.format("\\u%04x", Integer.valueOf(c)) );
+					} else {
+						writer.write(c);
+					}
+			}
+		}
+		writer.write('"');
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.report;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.transformer.action.impl.ChangesImpl;
+import org.eclipse.transformer.action.impl.ClassChangesImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.MetricsImpl;
+import org.eclipse.transformer.action.impl.MetricsImpl.Resource;
+import org.eclipse.transformer.action.impl.MetricsImpl.Stats;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigChangesImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl.CacheStats;
+
+/**
+ * Writer of a machine readable transform report.
+ *
+ * A report writer is a listener of transform metrics.  Each resource is written
+ * as soon as it is recorded: Reports are streamed, and the size of a transformed
+ * archive does not change the memory used to write its report.  Totals by action
+ * type and by nesting level, and cache statistics, are written when the report
+ * is completed.
+ *
+ * Resources may be recorded concurrently by several threads.
+ */
+public abstract class ReportWriter implements MetricsImpl.ResourceListener, Closeable {
+	public static final String CSV_EXTENSION = ".csv";
+
+	/**
+	 * Open a report file.  A CSV report is written if the file name has
+	 * the extension ".csv".  Otherwise, a JSON report is written.
+	 *
+	 * @param reportFile The report file.
+	 *
+	 * @return A writer of the report file.
+	 *
+	 * @throws IOException Thrown if the report file could not be opened.
+	 */
+	public static ReportWriter open(File reportFile) throws IOException {
+		Writer writer = Files.newBufferedWriter( reportFile.toPath(), StandardCharsets.UTF_8 ); // throws IOException
+		if ( reportFile.getName().toLowerCase().endsWith(CSV_EXTENSION) ) {
+			return new CsvReportWriter(writer); // throws IOException
+		} else {
+			return new JsonReportWriter(writer); // throws IOException
+		}
+	}
+
+	protected ReportWriter(Writer writer) {
+		this.writer = writer;
+		this.startNanos = System.nanoTime();
+	}
+
+	protected final Writer writer;
+	private final long startNanos;
+
+	private IOException failure;
+	private boolean isCompleted;
+
+	//
+
+	@Override
+	public synchronized void record(Resource resource) {
+		if ( failure != null ) {
+			return;
+		}
+		try {
+			writeResource(resource); // throws IOException
+		} catch ( IOException e ) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Complete the report: Write totals and cache statistics.
+	 *
+	 * @param metrics The metrics which recorded the transform.
+	 * @param cacheStats Statistics of the transform caches.
+	 *
+	 * @throws IOException Thrown if the report could not be written.
+	 */
+	public synchronized void complete(MetricsImpl metrics, List<CacheStats> cacheStats)
+		throws IOException {
+
+		if ( failure != null ) {
+			throw failure;
+		}
+
+		writeTotals(
+			new ArrayList<Stats>( metrics.getStatsByType().values() ),
+			metrics.getStats(),
+			cacheStats,
+			System.nanoTime() - startNanos ); // throws IOException
+		isCompleted = true;
+	}
+
+	/**
+	 * Close the report.  A report which was not completed is closed without
+	 * totals.
+	 *
+	 * @throws IOException Thrown if the report could not be written, including
+	 *     a failure to write a resource.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if ( (failure == null) && !isCompleted ) {
+				writeEnd(); // throws IOException
+			}
+		} finally {
+			writer.close(); // throws IOException
+		}
+		if ( failure != null ) {
+			throw failure;
+		}
+	}
+
+	protected abstract void writeResource(Resource resource) throws IOException;
+
+	protected abstract void writeTotals(
+		List<Stats> statsByType, List<Stats> statsByLevel,
+		List<CacheStats> cacheStats, long elapsedNanos) throws IOException;
+
+	protected abstract void writeEnd() throws IOException;
+
+	//
+
+	/**
+	 * Answer the details of the changes of a resource.  Details are specific
+	 * to the type of changes.  Values are strings, numbers, or maps of details.
+	 *
+	 * @param changes The changes of a resource.
+	 *
+	 * @return The details of the changes.
+	 */
+	public static Map<String, Object> getDetails(ChangesImpl changes) {
+		Map<String, Object> details = new LinkedHashMap<String, Object>();
+		if ( changes == null ) {
+			return details;
+		}
+
+		if ( changes.hasResourceNameChange() ) {
+			details.put("outputName", changes.getOutputResourceName());
+		}
+
+		if ( changes instanceof ClassChangesImpl ) {
+			ClassChangesImpl classChanges = (ClassChangesImpl) changes;
+			putIfSet(details, "inputClassName", classChanges.getInputClassName());
+			putIfSet(details, "outputClassName", classChanges.getOutputClassName());
+			putIfSet(details, "inputSuperName", classChanges.getInputSuperName());
+			putIfSet(details, "outputSuperName", classChanges.getOutputSuperName());
+			details.put("modifiedInterfaces", classChanges.getModifiedInterfaces());
+			details.put("modifiedFields", classChanges.getModifiedFields());
+			details.put("modifiedMethods", classChanges.getModifiedMethods());
+			details.put("modifiedAttributes", classChanges.getModifiedAttributes());
+			details.put("modifiedConstants", classChanges.getModifiedConstants());
+
+		} else if ( changes instanceof ServiceLoaderConfigChangesImpl ) {
+			ServiceLoaderConfigChangesImpl configChanges = (ServiceLoaderConfigChangesImpl) changes;
+			details.put("changedProviders", configChanges.getChangedProviders());
+			details.put("unchangedProviders", configChanges.getUnchangedProviders());
+
+		} else if ( changes instanceof ContainerChangesImpl ) {
+			ContainerChangesImpl containerChanges = (ContainerChangesImpl) changes;
+			details.put("allResources", containerChanges.getAllResources());
+			details.put("selected", containerChanges.getAllSelected());
+			details.put("unselected", containerChanges.getAllUnselected());
+			details.put("changed", containerChanges.getAllChanged());
+			details.put("unchanged", containerChanges.getAllUnchanged());
+
+			Map<String, Object> byAction = new LinkedHashMap<String, Object>();
+			for ( String actionName : new TreeSet<String>( containerChanges.getActionNames() ) ) {
+				Map<String, Object> actionCounts = new LinkedHashMap<String, Object>();
+				actionCounts.put("changed", containerChanges.getChanged(actionName));
+				actionCounts.put("unchanged", containerChanges.getUnchanged(actionName));
+				byAction.put(actionName, actionCounts);
+			}
+			details.put("actions", byAction);
+
+		} else {
+			details.put("replacements", changes.getReplacements());
+		}
+
+		return details;
+	}
+
+	private static void putIfSet(Map<String, Object> details, String key, String value) {
+		if ( value != null ) {
+			details.put(key, value);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.report;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.transformer.action.impl.MetricsImpl;
+import org.eclipse.transformer.action.impl.MetricsImpl.Resource;
+
+/**
+ * Tracker of the slowest and of the largest resources of a transform.
+ *
+ * Resources are ranked by total time, which includes the time spent on nested
+ * resources, and by input length.  Each ranking is kept in a heap which is bounded
+ * to the requested count of resources: The memory used to track resources does not
+ * grow with the size of the transformed archive.
+ *
+ * Each resource is tracked with its full nesting path, for example,
+ * "app.ear!web.war!WEB-INF/lib/util.jar!a/B.class".
+ *
+ * Resources may be recorded concurrently by several threads.
+ */
+public class TopResources implements MetricsImpl.ResourceListener {
+	public static final Comparator<Resource> BY_TIME =
+		(Resource r1, Resource r2) -> Long.compare(r1.totalNanos, r2.totalNanos);
+
+	public static final Comparator<Resource> BY_LENGTH =
+		(Resource r1, Resource r2) -> Long.compare(r1.inputLength, r2.inputLength);
+
+	public TopResources(int count) {
+		if ( count < 1 ) {
+			throw new IllegalArgumentException("Incorrect count [ " + count + " ]");
+		}
+
+		this.count = count;
+
+		// The heads of the heaps are the smallest tracked resources, which are
+		// the resources which are replaced when a larger resource is recorded.
+
+		this.slowest = new PriorityQueue<Resource>(count, BY_TIME);
+		this.largest = new PriorityQueue<Resource>(count, BY_LENGTH);
+	}
+
+	private final int count;
+
+	public int getCount() {
+		return count;
+	}
+
+	private final PriorityQueue<Resource> slowest;
+	private final PriorityQueue<Resource> largest;
+
+	@Override
+	public synchronized void record(Resource resource) {
+		if ( !isTracked(slowest, BY_TIME, resource) && !isTracked(largest, BY_LENGTH, resource) ) {
+			return;
+		}
+
+		// The changes of the resource are only valid while it is being recorded:
+		// Keep a copy which does not retain the changes.
+
+		Resource trackedResource = new Resource(
+			resource.path, resource.level, resource.actionType, null,
+			resource.inputLength, resource.outputLength, resource.isChanged,
+			resource.totalNanos, resource.selfNanos);
+
+		track(slowest, BY_TIME, trackedResource);
+		track(largest, BY_LENGTH, trackedResource);
+	}
+
+	private boolean isTracked(PriorityQueue<Resource> heap, Comparator<Resource> comparator, Resource resource) {
+		return ( (heap.size() < count) || (comparator.compare(resource, heap.peek()) > 0) );
+	}
+
+	private void track(PriorityQueue<Resource> heap, Comparator<Resource> comparator, Resource resource) {
+		if ( heap.size() < count ) {
+			heap.add(resource);
+		} else if ( comparator.compare(resource, heap.peek()) > 0 ) {
+			heap.poll();
+			heap.add(resource);
+		}
+	}
+
+	private static List<Resource> sorted(PriorityQueue<Resource> heap, Comparator<Resource> comparator) {
+		List<Resource> resources = new ArrayList<Resource>(heap);
+		resources.sort( comparator.reversed() );
+		return resources;
+	}
+
+	/**
+	 * Answer the slowest resources, slowest first.
+	 *
+	 * @return The slowest resources.
+	 */
+	public synchronized List<Resource> getSlowest() {
+		return sorted(slowest, BY_TIME);
+	}
+
+	/**
+	 * Answer the largest resources, largest first.
+	 *
+	 * @return The largest resources.
+	 */
+	public synchronized List<Resource> getLargest() {
+		return sorted(largest, BY_LENGTH);
+	}
+
+	public synchronized void clear() {
+		slowest.clear();
+		largest.clear();
+	}
+
+	//
+
+	private static final String DASH_LINE =
+		"================================================================================\n";
+	private static final String SMALL_DASH_LINE =
+		"--------------------------------------------------------------------------------\n";
+
+	private static final String HEADER_LINE =
+		"[ %10s ] [ %10s ] [ %10s ] [ %-8s ] [ %s ]\n";
+	private static final String DATA_LINE =
+		"[ %10.3f ] [ %10.3f ] [ %10d ] [ %-8s ] [ %s ]\n";
+
+	public void display(PrintStream stream) {
+		// ================================================================================
+		// [ Slowest [ 10 ] resources: ]
+		// --------------------------------------------------------------------------------
+		// [   Total ms ] [    Self ms ] [      Input ] [ Type     ] [ Path ]
+		// [     60.410 ] [     10.200 ] [      60000 ] [ EAR      ] [ app.ear ]
+		// [     40.101 ] [      2.000 ] [      30000 ] [ WAR      ] [ app.ear!web.war ]
+		// ================================================================================
+		// [ Largest [ 10 ] resources: ]
+		// --------------------------------------------------------------------------------
+		// ...
+		// ================================================================================
+
+		stream.printf( DASH_LINE );
+		stream.printf( "[ Slowest [ %s ] resources: ]\n", count );
+		stream.printf( SMALL_DASH_LINE );
+		displayResources( stream, getSlowest() );
+
+		stream.printf( DASH_LINE );
+		stream.printf( "[ Largest [ %s ] resources: ]\n", count );
+		stream.printf( SMALL_DASH_LINE );
+		displayResources( stream, getLargest() );
+		stream.printf( DASH_LINE );
+	}
+
+	protected void displayResources(PrintStream stream, List<Resource> resources) {
+		stream.printf( HEADER_LINE, "Total ms", "Self ms", "Input", "Type", "Path" );
+		for ( Resource resource : resources ) {
+			stream.printf( DATA_LINE,
+				((double) resource.totalNanos) / 1.0e6, ((double) resource.selfNanos) / 1.0e6,
+				resource.inputLength, resource.actionType.name(), resource.path );
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of byte buffers, organized by size class.
+ *
+ * Size classes are powers of two, from {@link #MIN_CLASS_LENGTH} to
+ * {@link #MAX_CLASS_LENGTH}.  Requests larger than the largest size
+ * class are answered with exactly sized, unpooled buffers.
+ *
+ * Each thread keeps one buffer per size class, which is obtained and
+ * released without synchronization.  Released buffers which overflow
+ * the thread cache are placed in a bounded shared queue for the size
+ * class.  Buffers which overflow the shared queue are left for garbage
+ * collection.
+ *
+ * The pool is safe for concurrent use.  A buffer must not be used after
+ * it is released.
+ */
+public class BufferPool {
+	/** Shift of the smallest size class: One disk page. */
+	public static final int MIN_CLASS_SHIFT = 12;
+	/** Shift of the largest size class. */
+	public static final int MAX_CLASS_SHIFT = 24;
+
+	public static final int MIN_CLASS_LENGTH = 1 << MIN_CLASS_SHIFT;
+	public static final int MAX_CLASS_LENGTH = 1 << MAX_CLASS_SHIFT;
+
+	public static final int NUM_CLASSES = MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1;
+
+	/** Default count of shared buffers retained per size class. */
+	public static final int DEFAULT_SHARED_LIMIT = 8;
+
+	/**
+	 * Answer the size class of a buffer length.  Answer -1 if the length
+	 * is larger than the largest size class.
+	 *
+	 * @param length A buffer length.
+	 *
+	 * @return The smallest size class which holds the length.
+	 */
+	public static int sizeClass(int length) {
+		if ( length <= MIN_CLASS_LENGTH ) {
+			return 0;
+		} else if ( length > MAX_CLASS_LENGTH ) {
+			return -1;
+		} else {
+			int shift = 32 - Integer.numberOfLeadingZeros(length - 1);
+			return shift - MIN_CLASS_SHIFT;
+		}
+	}
+
+	public static int classLength(int sizeClass) {
+		return 1 << (sizeClass + MIN_CLASS_SHIFT);
+	}
+
+	/**
+	 * Answer the size class of a pooled buffer.  Answer -1 if
+	 * the buffer length is not exactly a size class length.
+	 *
+	 * @param buffer A buffer.
+	 *
+	 * @return The size class of the buffer.
+	 */
+	public static int pooledClass(byte[] buffer) {
+		int length = buffer.length;
+		if ( (length < MIN_CLASS_LENGTH) || (length > MAX_CLASS_LENGTH) || (Integer.bitCount(length) != 1) ) {
+			return -1;
+		} else {
+			return Integer.numberOfTrailingZeros(length) - MIN_CLASS_SHIFT;
+		}
+	}
+
+	//
+
+	public BufferPool() {
+		this(DEFAULT_SHARED_LIMIT);
+	}
+
+	@SuppressWarnings("unchecked")
+	public BufferPool(int sharedLimit) {
+		this.sharedLimit = sharedLimit;
+
+		this.localBuffers = ThreadLocal.withInitial( () -> new byte[NUM_CLASSES][] );
+
+		this.sharedBuffers = new ConcurrentLinkedQueue[NUM_CLASSES];
+		this.sharedCounts = new AtomicInteger[NUM_CLASSES];
+		for ( int classNo = 0; classNo < NUM_CLASSES; classNo++ ) {
+			this.sharedBuffers[classNo] = new ConcurrentLinkedQueue<byte[]>();
+			this.sharedCounts[classNo] = new AtomicInteger();
+		}
+	}
+
+	private final int sharedLimit;
+
+	public int getSharedLimit() {
+		return sharedLimit;
+	}
+
+	private final ThreadLocal<byte[][]> localBuffers;
+	private final ConcurrentLinkedQueue<byte[]>[] sharedBuffers;
+	private final AtomicInteger[] sharedCounts;
+
+	//
+
+	/**
+	 * Obtain a buffer of at least a specified length.
+	 *
+	 * @param minLength The minimum length of the buffer.
+	 *
+	 * @return A buffer of at least the requested length.
+	 */
+	public byte[] allocate(int minLength) {
+		int sizeClass = sizeClass(minLength);
+		if ( sizeClass == -1 ) {
+			return new byte[minLength];
+		}
+
+		byte[][] useLocalBuffers = localBuffers.get();
+		byte[] buffer = useLocalBuffers[sizeClass];
+		if ( buffer != null ) {
+			useLocalBuffers[sizeClass] = null;
+			return buffer;
+		}
+
+		buffer = sharedBuffers[sizeClass].poll();
+		if ( buffer != null ) {
+			sharedCounts[sizeClass].decrementAndGet();
+			return buffer;
+		}
+
+		return new byte[ classLength(sizeClass) ];
+	}
+
+	/**
+	 * Return a buffer to the pool.  Buffers which do not match a size
+	 * class are ignored.
+	 *
+	 * @param buffer The buffer which is to be returned.
+	 */
+	public void release(byte[] buffer) {
+		if ( buffer == null ) {
+			return;
+		}
+		int sizeClass = pooledClass(buffer);
+		if ( sizeClass == -1 ) {
+			return;
+		}
+
+		byte[][] useLocalBuffers = localBuffers.get();
+		if ( useLocalBuffers[sizeClass] == null ) {
+			useLocalBuffers[sizeClass] = buffer;
+			return;
+		}
+
+		AtomicInteger sharedCount = sharedCounts[sizeClass];
+		if ( sharedCount.incrementAndGet() <= sharedLimit ) {
+			sharedBuffers[sizeClass].offer(buffer);
+		} else {
+			sharedCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Replace a buffer with a larger buffer.  Copy the used bytes of the
+	 * buffer to the new buffer, and release the prior buffer.
+	 *
+	 * @param buffer The buffer which is to be grown.
+	 * @param used The count of bytes to copy from the buffer.
+	 * @param minLength The minimum length of the new buffer.
+	 *
+	 * @return The new buffer.
+	 */
+	public byte[] grow(byte[] buffer, int used, int minLength) {
+		byte[] nextBuffer = allocate(minLength);
+		System.arraycopy(buffer, 0, nextBuffer, 0, used);
+		release(buffer);
+		return nextBuffer;
+	}
+}
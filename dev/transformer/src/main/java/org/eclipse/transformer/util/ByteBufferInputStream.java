@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.util;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream over the remaining bytes of a byte buffer.
+ *
+ * The stream reads from a duplicate of the buffer: Reading the stream does
+ * not change the position of the buffer.  When the buffer is a mapped buffer,
+ * reads are copied directly from the page cache.
+ */
+public class ByteBufferInputStream extends InputStream {
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+	}
+
+	private final ByteBuffer buffer;
+
+	@Override
+	public int read() {
+		if ( !buffer.hasRemaining() ) {
+			return -1;
+		} else {
+			return buffer.get() & 0xFF;
+		}
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if ( length == 0 ) {
+			return 0;
+		}
+		int remaining = buffer.remaining();
+		if ( remaining == 0 ) {
+			return -1;
+		}
+		if ( length > remaining ) {
+			length = remaining;
+		}
+		buffer.get(bytes, offset, length);
+		return length;
+	}
+
+	@Override
+	public long skip(long count) {
+		if ( count <= 0 ) {
+			return 0L;
+		}
+		int skipped = (int) Math.min(count, buffer.remaining());
+		// Use the Buffer method: The covariant ByteBuffer method, which is
+		// used when compiling on Java 9 or higher, does not exist on Java 8.
+		((Buffer) buffer).position( buffer.position() + skipped );
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
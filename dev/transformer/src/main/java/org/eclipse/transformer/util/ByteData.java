@@ -34,12 +34,49 @@ public class ByteData {
 	}
 
 	public ByteData(String name, byte[] data, int offset, int length) {
+		this(name, data, offset, length, null);
+	}
+
+	/**
+	 * Create byte data which owns a pooled buffer.  The buffer is
+	 * returned to the pool by {@link #release()}.
+	 *
+	 * @param name A name associated with the data.
+	 * @param data The buffer which holds the data.
+	 * @param offset The offset of the data in the buffer.
+	 * @param length The length of the data.
+	 * @param pool The pool which supplied the buffer.  Null if the
+	 *     buffer is not pooled.
+	 */
+	public ByteData(String name, byte[] data, int offset, int length, BufferPool pool) {
 		// System.out.println("ByteData [ " + name + " ] [ " + offset + " ] [ " + length + " ] [ " + data + " ]");
 
 		this.name = name;
 		this.data = data;
 		this.offset = offset;
 		this.length = length;
+
+		this.pool = pool;
+	}
+
+	private BufferPool pool;
+
+	public boolean isPooled() {
+		return ( pool != null );
+	}
+
+	/**
+	 * Return the buffer of this data to its pool.  Do nothing if the
+	 * buffer is not pooled, or was already released.
+	 *
+	 * The data must not be used after it is released.
+	 */
+	public void release() {
+		BufferPool usePool = pool;
+		if ( usePool != null ) {
+			pool = null;
+			usePool.release(data);
+		}
 	}
 
 	public ByteArrayInputStream asStream() {
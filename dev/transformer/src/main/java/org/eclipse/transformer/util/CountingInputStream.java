@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream which counts the bytes read from an underlying stream.
+ *
+ * Closing the stream closes the underlying stream.
+ */
+public class CountingInputStream extends FilterInputStream {
+	public CountingInputStream(InputStream inputStream) {
+		super(inputStream);
+	}
+
+	private long count;
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int nextByte = in.read(); // throws IOException
+		if ( nextByte != -1 ) {
+			count++;
+		}
+		return nextByte;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		int bytesRead = in.read(bytes, offset, length); // throws IOException
+		if ( bytesRead > 0 ) {
+			count += bytesRead;
+		}
+		return bytesRead;
+	}
+
+	@Override
+	public long skip(long skipCount) throws IOException {
+		long skipped = in.skip(skipCount); // throws IOException
+		count += skipped;
+		return skipped;
+	}
+
+	// Marks are not supported: A reset would make the count inaccurate.
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(int readLimit) {
+		// Empty
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("Mark and reset are not supported");
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which counts the bytes written to an underlying stream.
+ *
+ * Closing the stream closes the underlying stream.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+	public CountingOutputStream(OutputStream outputStream) {
+		super(outputStream);
+	}
+
+	private long count;
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void write(int nextByte) throws IOException {
+		out.write(nextByte); // throws IOException
+		count++;
+	}
+
+	// Override the filter implementation, which writes one byte at a time.
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		out.write(bytes, offset, length); // throws IOException
+		count += length;
+	}
+}
@@ -24,6 +24,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import aQute.lib.utf8properties.UTF8Properties;
 
@@ -88,7 +92,7 @@ public class FileUtils {
 	 * @throws IOException Thrown if the read failed.
 	 */
 	public static ByteData read(String inputName, InputStream inputStream, int count) throws IOException {
-		return read(inputName, inputStream, null, count); // throws IOException
+		return read(inputName, inputStream, (byte[]) null, count); // throws IOException
 	}
 
 	/**
@@ -99,7 +103,8 @@ public class FileUtils {
 	 * @param inputName A name associated with the input stram.
 	 * @param inputStream The stream from which to read bytes.
 	 * @param buffer A buffer into which to place the read bytes.
-	 * @param count The number of bytes to read.
+	 * @param count The number of bytes to read.  -1 if the number of
+	 *     bytes is not known.
 	 *
 	 * @return The final buffer which contains the read bytes.  The same as the parameter
 	 *     buffer if that buffer had a sufficient capacity to read the requested count
@@ -112,7 +117,10 @@ public class FileUtils {
 		byte[] buffer, int count) throws IOException {
 
 		if ( count == -1 ) {
-			return read(inputName, inputStream, new byte[BUFFER_ADJUSTMENT]);
+			if ( buffer == null ) {
+				buffer = new byte[BUFFER_ADJUSTMENT];
+			}
+			return read(inputName, inputStream, buffer, null); // throws IOException
 
 		} else {
 			count = verifyArray(0, count);
@@ -121,21 +129,67 @@ public class FileUtils {
 				buffer = new byte[count];
 			}
 
-			int offset = 0;
-			int remaining = count;
+			readFully(inputName, inputStream, buffer, count); // throws IOException
 
-			while ( remaining > 0 ) {
-				int actual = inputStream.read(buffer, offset, remaining); // throws IOException
-				if ( actual == -1 ) {
-					throw new IOException("Premature end-of-stream [ " + inputName + " at [ " + offset + " ] requested [ " + remaining + " ]");
-				}
+			return new ByteData(inputName, buffer, 0, count);
+		}
+	}
 
-				// System.out.println("Read requested [ " + inputName + " ] [ " + remaining + " ] actual [ " + actual + " ]");
-				offset += actual;
-				remaining -= actual;
+	/**
+	 * Read data from an input stream into a pooled buffer.
+	 *
+	 * Answer byte data which owns the buffer.  The caller should
+	 * {@link ByteData#release() release} the data when done with it.
+	 *
+	 * @param inputName A name associated with the input stram.
+	 * @param inputStream The stream from which to read bytes.
+	 * @param pool The pool from which to obtain buffers.
+	 * @param count The number of bytes to read.  -1 if the number of
+	 *     bytes is not known.
+	 *
+	 * @return Pooled byte data containing the read bytes.
+	 *
+	 * @throws IOException Thrown if an error occurred during a read.
+	 */
+	public static ByteData read(
+		String inputName, InputStream inputStream,
+		BufferPool pool, int count) throws IOException {
+
+		if ( count == -1 ) {
+			byte[] buffer = pool.allocate(BUFFER_ADJUSTMENT);
+			return read(inputName, inputStream, buffer, pool); // throws IOException
+
+		} else {
+			count = verifyArray(0, count);
+
+			byte[] buffer = pool.allocate(count);
+			try {
+				readFully(inputName, inputStream, buffer, count); // throws IOException
+			} catch ( IOException e ) {
+				pool.release(buffer);
+				throw e;
 			}
 
-			return new ByteData(inputName, buffer, 0, count);
+			return new ByteData(inputName, buffer, 0, count, pool);
+		}
+	}
+
+	private static void readFully(
+		String inputName, InputStream inputStream,
+		byte[] buffer, int count) throws IOException {
+
+		int offset = 0;
+		int remaining = count;
+
+		while ( remaining > 0 ) {
+			int actual = inputStream.read(buffer, offset, remaining); // throws IOException
+			if ( actual == -1 ) {
+				throw new IOException("Premature end-of-stream [ " + inputName + " at [ " + offset + " ] requested [ " + remaining + " ]");
+			}
+
+			// System.out.println("Read requested [ " + inputName + " ] [ " + remaining + " ] actual [ " + actual + " ]");
+			offset += actual;
+			remaining -= actual;
 		}
 	}
 
@@ -146,36 +200,86 @@ public class FileUtils {
 	}
 
 	public static ByteData read(String inputName, InputStream inputStream, byte[] buffer) throws IOException {
+		return read(inputName, inputStream, buffer, null); // throws IOException
+	}
+
+	/**
+	 * Answer the length to which to grow a full buffer.  Buffers are doubled,
+	 * which keeps the total copying of an unknown length read linear in the
+	 * length of the read.
+	 *
+	 * @param length The current buffer length.
+	 *
+	 * @return The next buffer length.  {@link #MAX_ARRAY_LENGTH} if the
+	 *     length cannot be doubled.
+	 */
+	public static int growLength(int length) {
+		if ( length < BUFFER_ADJUSTMENT ) {
+			return BUFFER_ADJUSTMENT;
+		} else if ( length > MAX_ARRAY_LENGTH / 2 ) {
+			return MAX_ARRAY_LENGTH;
+		} else {
+			return length * 2;
+		}
+	}
+
+	/**
+	 * Read all of the data of a stream into a buffer, growing the buffer
+	 * as necessary.  New buffers are obtained from the pool when a pool
+	 * is specified.  The answered data owns the final buffer when a pool is
+	 * specified.
+	 *
+	 * @param inputName A name associated with the input stram.
+	 * @param inputStream The stream from which to read bytes.
+	 * @param buffer The initial buffer.
+	 * @param pool The pool from which to obtain buffers.  Null to
+	 *     allocate new buffers.
+	 *
+	 * @return Byte data containing the read bytes.
+	 *
+	 * @throws IOException Thrown if an error occurred during a read.
+	 */
+	public static ByteData read(
+		String inputName, InputStream inputStream,
+		byte[] buffer, BufferPool pool) throws IOException {
+
         int bytesUsed = 0;
 		int bytesRemaining = buffer.length;
 
-        int bytesRead;
-        while ( (bytesRead = inputStream.read(buffer, bytesUsed, bytesRemaining)) != -1 ) { // throws IOEXception
-        	bytesUsed += bytesRead;
-        	bytesRemaining -= bytesRead;
-
-        	if ( bytesRemaining == 0 ) {
-        		int bytesAdded = MAX_ARRAY_LENGTH - bytesUsed;
-        		if ( bytesAdded == 0 ) {
-        			if ( inputStream.read() == -1 ) {
-        				break;
-        			} else {
-        				throw new IOException("Overflow of [ " + inputName + " ] after reading [ " + bytesUsed + " ] bytes");
-        			} 
-        		} else if ( bytesAdded > BUFFER_ADJUSTMENT ) {
-        			bytesAdded = BUFFER_ADJUSTMENT;
-        		}
-
-        		int nextLength = bytesUsed + BUFFER_ADJUSTMENT;
-        		bytesRemaining = BUFFER_ADJUSTMENT;
-
-        		byte[] nextBuffer = new byte[nextLength];
-        		System.arraycopy(buffer, 0, nextBuffer, 0, bytesUsed);
-        		buffer = nextBuffer;
-        	}
-	    }
-
-        return new ByteData(inputName, buffer, 0, bytesUsed);
+		try {
+			int bytesRead;
+			while ( (bytesRead = inputStream.read(buffer, bytesUsed, bytesRemaining)) != -1 ) { // throws IOEXception
+				bytesUsed += bytesRead;
+				bytesRemaining -= bytesRead;
+
+				if ( bytesRemaining == 0 ) {
+					if ( bytesUsed == MAX_ARRAY_LENGTH ) {
+						if ( inputStream.read() == -1 ) {
+							break;
+						} else {
+							throw new IOException("Overflow of [ " + inputName + " ] after reading [ " + bytesUsed + " ] bytes");
+						}
+					}
+
+					int nextLength = growLength(bytesUsed);
+					if ( pool == null ) {
+						byte[] nextBuffer = new byte[nextLength];
+						System.arraycopy(buffer, 0, nextBuffer, 0, bytesUsed);
+						buffer = nextBuffer;
+					} else {
+						buffer = pool.grow(buffer, bytesUsed, nextLength);
+					}
+					bytesRemaining = buffer.length - bytesUsed;
+				}
+			}
+		} catch ( IOException e ) {
+			if ( pool != null ) {
+				pool.release(buffer);
+			}
+			throw e;
+		}
+
+        return new ByteData(inputName, buffer, 0, bytesUsed, pool);
 	}
 	
 	public static long transfer(InputStream inputStream, OutputStream outputStream) throws IOException {
@@ -196,6 +300,77 @@ public class FileUtils {
         return totalBytesRead;
 	}
 
+	/**
+	 * Copy a file.  Use the cheapest available mechanism: When requested, a
+	 * hard link is created.  Otherwise, or if the link cannot be created, for
+	 * example because the output is on a different file store, the file is
+	 * copied using {@link FileChannel#transferTo}, which allows the copy to be
+	 * performed by the operating system without passing the data through the
+	 * java heap.
+	 *
+	 * Any existing output file is deleted before the copy.  That prevents the
+	 * copy from writing through a hard link which was created by a prior copy.
+	 *
+	 * @param inputFile The file which is to be copied.
+	 * @param outputFile The file which is to be created.
+	 * @param link Control parameter: Tell if a hard link should be attempted.
+	 *
+	 * @return True if a hard link was created.  False if the file was copied.
+	 *
+	 * @throws IOException Thrown if the copy failed.
+	 */
+	public static boolean copy(File inputFile, File outputFile, boolean link) throws IOException {
+		Path inputPath = inputFile.toPath();
+		Path outputPath = outputFile.toPath();
+
+		Files.deleteIfExists(outputPath); // throws IOException
+
+		if ( link ) {
+			try {
+				Files.createLink(outputPath, inputPath); // throws IOException
+				return true;
+			} catch ( UnsupportedOperationException | IOException e ) {
+				// Fall back to a copy.
+			}
+		}
+
+		try ( FileChannel inputChannel = FileChannel.open(inputPath, StandardOpenOption.READ);
+			  FileChannel outputChannel = FileChannel.open(outputPath,
+				  StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW) ) {
+
+			long inputLength = inputChannel.size();
+			long position = 0L;
+			while ( position < inputLength ) {
+				long transferred = inputChannel.transferTo(position, inputLength - position, outputChannel);
+				if ( transferred <= 0 ) {
+					throw new IOException("Truncated copy of [ " + inputPath + " ] at [ " + position + " ]");
+				}
+				position += transferred;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Tell if a file is a directory or is within a directory.  Canonical paths
+	 * are compared, so that links and relative paths are resolved.  Neither
+	 * file is required to exist.
+	 *
+	 * @param dir The directory.
+	 * @param file The file which is to be tested.
+	 *
+	 * @return True or false telling if the file is the directory or is within
+	 *     the directory.
+	 *
+	 * @throws IOException Thrown if a canonical path could not be obtained.
+	 */
+	public static boolean isWithin(File dir, File file) throws IOException {
+		Path canonicalDir = dir.getCanonicalFile().toPath(); // throws IOException
+		Path canonicalFile = file.getCanonicalFile().toPath(); // throws IOException
+		return canonicalFile.startsWith(canonicalDir);
+	}
+
 	//
 
 	public static final char SLASH = '/';
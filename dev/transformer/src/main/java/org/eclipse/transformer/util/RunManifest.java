@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * State of a directory transform, used to perform incremental transforms.
+ *
+ * The manifest records, for each transformed file, the relative path,
+ * size, and last modified time of the input file, a digest of the input
+ * file, and the size, last modified time, and digest of the output file.
+ * The manifest also records a fingerprint of the transformation rules which
+ * were used.
+ *
+ * The manifest is stored as UTF-8 text.  The first line is a header, which
+ * has the format version and the rules fingerprint.  Each following line is
+ * an entry, as tab separated size, modified time, input digest, output size,
+ * output modified time, output digest, and path.  The path is last, and may
+ * contain tabs.
+ */
+public class RunManifest {
+	public static final String HEADER = "#transformer-run-manifest";
+	public static final int VERSION = 2;
+
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+
+	public static class Entry {
+		public final String path;
+		public final long size;
+		public final long modified;
+		public final String digest;
+		public final long outputSize;
+		public final long outputModified;
+		public final String outputDigest;
+
+		public Entry(
+			String path,
+			long size, long modified, String digest,
+			long outputSize, long outputModified, String outputDigest) {
+
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+			this.digest = digest;
+			this.outputSize = outputSize;
+			this.outputModified = outputModified;
+			this.outputDigest = outputDigest;
+		}
+
+		/**
+		 * Tell if this entry matches the size and last modified time
+		 * of a file.
+		 *
+		 * @param file The file which is to be tested.
+		 *
+		 * @return True or false telling if the entry matches the file.
+		 */
+		public boolean matches(File file) {
+			return ( (file.length() == size) && (file.lastModified() == modified) );
+		}
+
+		/**
+		 * Tell if this entry matches the size and last modified time
+		 * of an output file.
+		 *
+		 * @param outputFile The output file which is to be tested.
+		 *
+		 * @return True or false telling if the entry matches the output file.
+		 */
+		public boolean matchesOutput(File outputFile) {
+			return ( (outputFile.length() == outputSize) && (outputFile.lastModified() == outputModified) );
+		}
+	}
+
+	//
+
+	public RunManifest(String rulesFingerprint) {
+		this.rulesFingerprint = rulesFingerprint;
+		this.entries = new TreeMap<String, Entry>();
+	}
+
+	private final String rulesFingerprint;
+
+	public String getRulesFingerprint() {
+		return rulesFingerprint;
+	}
+
+	private final Map<String, Entry> entries;
+
+	public int size() {
+		return entries.size();
+	}
+
+	public Set<String> getPaths() {
+		return entries.keySet();
+	}
+
+	public Entry get(String path) {
+		return entries.get(path);
+	}
+
+	public Entry remove(String path) {
+		return entries.remove(path);
+	}
+
+	public void put(Entry entry) {
+		entries.put(entry.path, entry);
+	}
+
+	//
+
+	/**
+	 * Read a manifest.  Answer null if the manifest file does not exist.
+	 *
+	 * @param manifestFile The file containing the manifest.
+	 *
+	 * @return The manifest read from the file.  Null if the file does
+	 *     not exist.
+	 *
+	 * @throws IOException Thrown if the manifest could not be read, or
+	 *     has an unexpected format.
+	 */
+	public static RunManifest read(File manifestFile) throws IOException {
+		if ( !manifestFile.exists() ) {
+			return null;
+		}
+
+		try ( BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8) ) {
+			String header = reader.readLine();
+			String[] headerParts = ( (header == null) ? null : header.split(" ") );
+			if ( (headerParts == null) || (headerParts.length != 3) || !headerParts[0].equals(HEADER) ) {
+				throw new IOException("Incorrect header [ " + header + " ] in [ " + manifestFile + " ]");
+			} else if ( !headerParts[1].equals( Integer.toString(VERSION) ) ) {
+				throw new IOException("Unsupported version [ " + headerParts[1] + " ] in [ " + manifestFile + " ]");
+			}
+
+			RunManifest manifest = new RunManifest( headerParts[2] );
+
+			String line;
+			int lineNo = 1;
+			while ( (line = reader.readLine()) != null ) {
+				lineNo++;
+				if ( line.isEmpty() ) {
+					continue;
+				}
+				String[] parts = line.split("\t", 7);
+				if ( parts.length != 7 ) {
+					throw new IOException("Incorrect entry at line [ " + lineNo + " ] in [ " + manifestFile + " ]");
+				}
+				try {
+					manifest.put( new Entry(
+						parts[6],
+						Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2],
+						Long.parseLong(parts[3]), Long.parseLong(parts[4]), parts[5]) );
+				} catch ( NumberFormatException e ) {
+					throw new IOException("Incorrect entry at line [ " + lineNo + " ] in [ " + manifestFile + " ]", e);
+				}
+			}
+
+			return manifest;
+		}
+	}
+
+	/**
+	 * Write this manifest.  The manifest is written to a temporary file, which
+	 * then replaces the manifest file, so that an interrupted write does not
+	 * leave a partial manifest.
+	 *
+	 * @param manifestFile The file which is to contain the manifest.
+	 *
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void write(File manifestFile) throws IOException {
+		Path manifestPath = manifestFile.getAbsoluteFile().toPath();
+		Path parentPath = manifestPath.getParent();
+		Files.createDirectories(parentPath);
+
+		Path tempPath = Files.createTempFile(parentPath, manifestFile.getName(), ".tmp");
+		try {
+			try ( Writer writer = new BufferedWriter( Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8) ) ) {
+				writer.write(HEADER + " " + VERSION + " " + rulesFingerprint + "\n");
+				for ( Entry entry : entries.values() ) {
+					writer.write(
+						entry.size + "\t" + entry.modified + "\t" + entry.digest + "\t" +
+						entry.outputSize + "\t" + entry.outputModified + "\t" + entry.outputDigest + "\t" +
+						entry.path + "\n");
+				}
+			}
+
+			try {
+				Files.move(tempPath, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	//
+
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException("Digest [ " + DIGEST_ALGORITHM + " ] is not available", e);
+		}
+	}
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[ bytes.length * 2 ];
+		for ( int byteNo = 0; byteNo < bytes.length; byteNo++ ) {
+			int nextByte = bytes[byteNo] & 0xFF;
+			chars[ byteNo * 2 ] = HEX_DIGITS[ nextByte >>> 4 ];
+			chars[ byteNo * 2 + 1 ] = HEX_DIGITS[ nextByte & 0x0F ];
+		}
+		return new String(chars);
+	}
+
+	public static String digest(String text) {
+		return toHex( createDigest().digest( text.getBytes(StandardCharsets.UTF_8) ) );
+	}
+
+	public static String digest(File file, byte[] buffer) throws IOException {
+		MessageDigest digest = createDigest();
+		try ( InputStream inputStream = Files.newInputStream(file.toPath()) ) {
+			int bytesRead;
+			while ( (bytesRead = inputStream.read(buffer)) != -1 ) { // throws IOException
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		return toHex( digest.digest() );
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eclipse.transformer.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+/**
+ * On disk cache of transformed resources, keyed by a digest of the input
+ * bytes.  The cache is partitioned by the fingerprint of the transformation
+ * rules: Changing the rules selects a new, empty, partition.
+ *
+ * An input which is not changed by the transformation is recorded as an empty
+ * entry.  Entries are written to a temporary file which is then moved into
+ * place, which allows several processes to share a single cache directory.
+ */
+public class TransformCache {
+	/** Count of leading characters of the rules fingerprint used to name the partition. */
+	public static final int PARTITION_LENGTH = 16;
+
+	/** Count of leading characters of a key used to name the sub-directory of an entry. */
+	public static final int BUCKET_LENGTH = 2;
+
+	/** Bytes answered by {@link #read(String)} for an input which was not changed. */
+	public static final byte[] UNCHANGED = new byte[0];
+
+	public TransformCache(File cacheDir, String rulesFingerprint) {
+		this.cacheDir = cacheDir.getAbsoluteFile();
+		this.partitionDir = new File( this.cacheDir, rulesFingerprint.substring(0, PARTITION_LENGTH) );
+	}
+
+	//
+
+	private final File cacheDir;
+	private final File partitionDir;
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	public File getPartitionDir() {
+		return partitionDir;
+	}
+
+	//
+
+	/**
+	 * Answer the cache key of input bytes.
+	 *
+	 * @param bytes The input bytes.
+	 * @param offset The offset to the input bytes.
+	 * @param length The length of the input bytes.
+	 *
+	 * @return The key of the input bytes.
+	 */
+	public String getKey(byte[] bytes, int offset, int length) {
+		MessageDigest digest = RunManifest.createDigest();
+		digest.update(bytes, offset, length);
+		return RunManifest.toHex( digest.digest() );
+	}
+
+	protected File getEntryFile(String key) {
+		File bucketDir = new File( partitionDir, key.substring(0, BUCKET_LENGTH) );
+		return new File(bucketDir, key);
+	}
+
+	/**
+	 * Read a cache entry.
+	 *
+	 * @param key The key of the entry.
+	 *
+	 * @return The transformed bytes of the entry.  {@link #UNCHANGED} if the
+	 *     input was not changed.  Null if there is no entry.
+	 *
+	 * @throws IOException Thrown if the entry exists but could not be read.
+	 */
+	public byte[] read(String key) throws IOException {
+		try {
+			byte[] bytes = Files.readAllBytes( getEntryFile(key).toPath() ); // throws IOException
+			return ( (bytes.length == 0) ? UNCHANGED : bytes );
+		} catch ( NoSuchFileException e ) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write a cache entry.
+	 *
+	 * @param key The key of the entry.
+	 * @param bytes The transformed bytes.  {@link #UNCHANGED} if the input
+	 *     was not changed.
+	 * @param offset The offset to the transformed bytes.
+	 * @param length The length of the transformed bytes.
+	 *
+	 * @throws IOException Thrown if the entry could not be written.
+	 */
+	public void write(String key, byte[] bytes, int offset, int length) throws IOException {
+		File entryFile = getEntryFile(key);
+		Path entryPath = entryFile.toPath();
+
+		File bucketDir = entryFile.getParentFile();
+		Files.createDirectories( bucketDir.toPath() ); // throws IOException
+
+		Path tempPath = Files.createTempFile( bucketDir.toPath(), key, ".tmp" ); // throws IOException
+		try {
+			Files.write(tempPath, ( ((offset == 0) && (length == bytes.length)) ? bytes : copy(bytes, offset, length) ));
+			// throws IOException
+
+			try {
+				Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	public void writeUnchanged(String key) throws IOException {
+		write(key, UNCHANGED, 0, 0);
+	}
+
+	private static byte[] copy(byte[] bytes, int offset, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, offset, copy, 0, length);
+		return copy;
+	}
+}
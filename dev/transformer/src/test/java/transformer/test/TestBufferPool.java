@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.BufferPool;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.InputStreamData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestBufferPool {
+
+	@Test
+	public void testSizeClasses() {
+		Assertions.assertEquals(0, BufferPool.sizeClass(1));
+		Assertions.assertEquals(0, BufferPool.sizeClass(BufferPool.MIN_CLASS_LENGTH));
+		Assertions.assertEquals(1, BufferPool.sizeClass(BufferPool.MIN_CLASS_LENGTH + 1));
+		Assertions.assertEquals(BufferPool.NUM_CLASSES - 1, BufferPool.sizeClass(BufferPool.MAX_CLASS_LENGTH));
+		Assertions.assertEquals(-1, BufferPool.sizeClass(BufferPool.MAX_CLASS_LENGTH + 1));
+
+		Assertions.assertEquals(-1, BufferPool.pooledClass(new byte[100]));
+		Assertions.assertEquals(2, BufferPool.pooledClass(new byte[BufferPool.MIN_CLASS_LENGTH * 4]));
+	}
+
+	@Test
+	public void testReuse() {
+		BufferPool pool = new BufferPool();
+
+		byte[] buffer1 = pool.allocate(5000);
+		Assertions.assertEquals(8192, buffer1.length);
+		pool.release(buffer1);
+
+		byte[] buffer2 = pool.allocate(6000);
+		Assertions.assertSame(buffer1, buffer2, "Thread cached buffer not reused");
+
+		byte[] buffer3 = pool.allocate(6000);
+		Assertions.assertNotSame(buffer2, buffer3);
+
+		pool.release(buffer2);
+		pool.release(buffer3);
+
+		byte[] buffer4 = pool.allocate(6000);
+		byte[] buffer5 = pool.allocate(6000);
+		Assertions.assertTrue( (buffer4 == buffer2) || (buffer4 == buffer3) );
+		Assertions.assertTrue( (buffer5 == buffer2) || (buffer5 == buffer3) );
+		Assertions.assertNotSame(buffer4, buffer5);
+
+		byte[] unpooled = pool.allocate(BufferPool.MAX_CLASS_LENGTH + 1);
+		Assertions.assertEquals(BufferPool.MAX_CLASS_LENGTH + 1, unpooled.length);
+	}
+
+	@Test
+	public void testSharedReuse() throws Exception {
+		BufferPool pool = new BufferPool();
+
+		byte[][] released = new byte[2][];
+		Thread releaser = new Thread( () -> {
+			released[0] = pool.allocate(100);
+			released[1] = pool.allocate(100);
+			pool.release(released[0]);
+			pool.release(released[1]);
+		} );
+		releaser.start();
+		releaser.join();
+
+		// The first release was kept by the releasing thread.  The
+		// second release overflowed to the shared queue.
+		byte[] buffer = pool.allocate(100);
+		Assertions.assertSame(released[1], buffer);
+	}
+
+	public static byte[] createData(int length) {
+		byte[] data = new byte[length];
+		for ( int offset = 0; offset < length; offset++ ) {
+			data[offset] = (byte) (offset * 31);
+		}
+		return data;
+	}
+
+	/**
+	 * Stream which answers data in small pieces and which hides its length.
+	 */
+	public static class TrickleStream extends ByteArrayInputStream {
+		public TrickleStream(byte[] data) {
+			super(data);
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, 1000));
+		}
+
+		@Override
+		public synchronized int available() {
+			return 0;
+		}
+	}
+
+	@Test
+	public void testUnknownLengthRead() throws IOException {
+		int length = FileUtils.BUFFER_ADJUSTMENT * 5 + 17;
+		byte[] data = createData(length);
+
+		BufferPool pool = new BufferPool();
+
+		try ( InputStream inputStream = new TrickleStream(data) ) {
+			ByteData readData = FileUtils.read("pooled", inputStream, pool, -1);
+			Assertions.assertTrue(readData.isPooled());
+			Assertions.assertEquals(length, readData.length);
+			Assertions.assertEquals(FileUtils.BUFFER_ADJUSTMENT * 8, readData.data.length, "Growth is not geometric");
+			for ( int offset = 0; offset < length; offset++ ) {
+				Assertions.assertEquals(data[offset], readData.data[offset]);
+			}
+
+			byte[] readBuffer = readData.data;
+			readData.release();
+			Assertions.assertFalse(readData.isPooled());
+			Assertions.assertSame(readBuffer, pool.allocate(length), "Released buffer not reused");
+		}
+
+		try ( InputStream inputStream = new TrickleStream(data) ) {
+			ByteData readData = FileUtils.read("unpooled", inputStream);
+			Assertions.assertFalse(readData.isPooled());
+			Assertions.assertEquals(length, readData.length);
+			Assertions.assertEquals(data[length - 1], readData.data[length - 1]);
+		}
+	}
+
+	@Test
+	public void testKnownLengthRead() throws IOException {
+		int length = 10000;
+		byte[] data = createData(length);
+
+		BufferPool pool = new BufferPool();
+
+		ByteData readData = FileUtils.read("known", new ByteArrayInputStream(data), pool, length);
+		Assertions.assertEquals(length, readData.length);
+		Assertions.assertEquals(16384, readData.data.length);
+		Assertions.assertEquals(data[length - 1], readData.data[length - 1]);
+		readData.release();
+
+		Assertions.assertThrows(IOException.class,
+			() -> FileUtils.read("short", new ByteArrayInputStream(data), pool, length + 1));
+	}
+
+	@Test
+	public void testSharedOutput() throws Exception {
+		LoggerImpl logger = new LoggerImpl(System.out, !LoggerImpl.IS_TERSE, !LoggerImpl.IS_VERBOSE);
+		NullActionImpl nullAction = new NullActionImpl(
+			logger,
+			new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, Collections.emptyMap(), null, null, null) );
+
+		// The null action answers new data which wraps the pooled input
+		// array: The array must not be released while the answered stream
+		// uses it.
+
+		byte[] inputBytes = "null action content".getBytes(StandardCharsets.UTF_8);
+		InputStreamData outputData = nullAction.apply("sample.bin", new ByteArrayInputStream(inputBytes));
+
+		byte[] otherBuffer = nullAction.getBufferPool().allocate(FileUtils.BUFFER_ADJUSTMENT);
+		Arrays.fill(otherBuffer, (byte) 'x');
+
+		ByteData outputBytes = FileUtils.read("sample.bin", outputData.stream);
+		Assertions.assertArrayEquals( inputBytes, Arrays.copyOfRange(outputBytes.data, outputBytes.offset, outputBytes.offset + outputBytes.length) );
+	}
+}
@@ -21,15 +21,32 @@ package transformer.test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.eclipse.transformer.TransformDaemon;
 import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.Transformer.BatchResult;
 import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.report.CsvReportWriter;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
 
 class TestCommandLine {
     
@@ -54,6 +71,14 @@ class TestCommandLine {
         String inputFileName = DATA_DIR + "A.java";
         String outputFileName = DATA_DIR + "output_A.java";
         verifyAction(JavaActionImpl.class.getName(), inputFileName, outputFileName);
+
+        // The output must not be padded to the length of the read buffer.
+        byte[] outputBytes = Files.readAllBytes(new File(outputFileName).toPath());
+        for ( byte outputByte : outputBytes ) {
+            assertNotEquals(0, outputByte, "output has a NUL byte");
+        }
+        assertTrue(outputBytes.length < (Files.readAllBytes(new File(inputFileName).toPath()).length * 2),
+            "output length [" + outputBytes.length + "] is too large");
     }
 
     private void verifyAction(
@@ -85,4 +110,250 @@ class TestCommandLine {
 
         options.transform();
         assertTrue((new File(outputFileName)).exists(), "output file not created");            }
+
+    @Test
+    void testWatchIncremental() throws Exception {
+        // Watches do not update the incremental state.
+        Transformer t = new Transformer(System.out, System.err);
+        t.setArgs(new String[] { DATA_DIR, "build/test/watchOutput", "-w", "-in", "build/test/watch.state" });
+        assertEquals(Transformer.PARSE_ERROR_RC, t.run());
+        assertFalse(new File("build/test/watchOutput").exists(), "output was created");
+    }
+
+    @Test
+    void testBatch() throws Exception {
+        String[][] pairs = new String[][] {
+            { DATA_DIR + "MANIFEST.MF", DATA_DIR + "output_MANIFEST.MF" },
+            { DATA_DIR + "A.java", DATA_DIR + "output_A.java" },
+            { DATA_DIR + "missing.txt", DATA_DIR + "output_missing.txt" }
+        };
+
+        Transformer t = new Transformer(System.out, System.err);
+        t.setArgs(new String[] { "-b", "-o", "-th", "2" });
+        t.setParsedArgs();
+
+        TransformOptions options = t.getTransformOptions();
+        assertTrue(options.setRules(), "options.setRules() failed");
+        options.allowOverwrite = true;
+
+        List<BatchResult> results = options.transformBatch(Arrays.asList(pairs), 2);
+        assertEquals(pairs.length, results.size());
+
+        for ( int pairNo = 0; pairNo < 2; pairNo++ ) {
+            BatchResult result = results.get(pairNo);
+            assertEquals(pairs[pairNo][0], result.inputName);
+            assertTrue(result.succeeded(), "batch input failed [ " + result.failure + " ]");
+            assertTrue((new File(pairs[pairNo][1])).exists(), "output file not created");
+        }
+        assertEquals("Manifest Action", results.get(0).actionName);
+
+        assertFalse(results.get(2).succeeded(), "missing batch input did not fail");
+
+        Transformer runner = new Transformer(System.out, System.err);
+        runner.setArgs(new String[] { "-b", "-o", pairs[0][0], pairs[0][1], pairs[1][0], pairs[1][1] });
+        assertEquals(Transformer.SUCCESS_RC, runner.run());
+    }
+
+    @Test
+    void testReport() throws Exception {
+        File reportDir = Files.createTempDirectory("report").toFile();
+        File inputJar = new File(reportDir, "sample.jar");
+        Files.write( inputJar.toPath(),
+            TestTransformerEngine.createJar( TestTransformAgent.readClass(Sample_InjectAPI_Javax.class) ) );
+
+        String classPath = "sample.jar!" + TestTransformerEngine.getClassResourceName();
+
+        File jsonReport = new File(reportDir, "report.json");
+        Transformer jsonRunner = new Transformer(System.out, System.err);
+        jsonRunner.setArgs(new String[] {
+            inputJar.getPath(), new File(reportDir, "output.jar").getPath(),
+            "-rp", jsonReport.getPath() });
+        assertEquals(Transformer.SUCCESS_RC, jsonRunner.run());
+
+        String json = new String( Files.readAllBytes(jsonReport.toPath()), StandardCharsets.UTF_8 );
+        assertTrue(json.startsWith("{"), "JSON report is not an object");
+        assertTrue(json.trim().endsWith("}"), "JSON report is not complete");
+        assertTrue(json.contains(classPath), "JSON report does not have the nested class");
+        assertTrue(json.contains("\"modifiedConstants\""), "JSON report does not have class details");
+        assertTrue(json.contains("\"levels\""), "JSON report does not have level totals");
+        assertTrue(json.contains("\"cache\": \"Signatures\""), "JSON report does not have cache statistics");
+
+        File csvReport = new File(reportDir, "report.csv");
+        Transformer csvRunner = new Transformer(System.out, System.err);
+        csvRunner.setArgs(new String[] {
+            inputJar.getPath(), new File(reportDir, "output.jar").getPath(), "-o",
+            "-rp", csvReport.getPath() });
+        assertEquals(Transformer.SUCCESS_RC, csvRunner.run());
+
+        List<String> lines = Files.readAllLines(csvReport.toPath(), StandardCharsets.UTF_8);
+        assertEquals(CsvReportWriter.HEADER.trim(), lines.get(0));
+        assertTrue(lines.get(1).startsWith("resource,"), "CSV report does not start with resources");
+        assertTrue(lines.get(1).contains(classPath + ",1,CLASS,1,1,"), "CSV report does not have the nested class");
+        assertTrue(lines.get(lines.size() - 1).startsWith("elapsed,"), "CSV report is not complete");
+    }
+
+    @Test
+    void testDaemon() throws Exception {
+        // The daemon accepts only absolute paths.
+        String inputFileName = new File(DATA_DIR + "MANIFEST.MF").getAbsolutePath();
+        String outputFileName = new File(DATA_DIR + "output_MANIFEST.MF").getAbsolutePath();
+
+        Transformer t = new Transformer(System.out, System.err);
+        t.setArgs(new String[] { "-dm", "0" });
+        t.setParsedArgs();
+
+        TransformOptions options = t.getTransformOptions();
+        assertTrue(options.setRules(), "options.setRules() failed");
+
+        TransformDaemon daemon = options.createDaemon(0, 2);
+        daemon.start();
+        Thread serveThread = new Thread(daemon::serve, "transformer-daemon-test");
+        serveThread.start();
+
+        try ( Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+              BufferedReader reader = new BufferedReader(
+                  new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+              PrintWriter writer = new PrintWriter(socket.getOutputStream(), true) ) {
+
+            writer.print("auth\t" + daemon.getToken() + "\n");
+            writer.flush();
+            assertEquals("OK\tauth", reader.readLine());
+
+            writer.print("ping\n");
+            writer.flush();
+            assertEquals("OK\tpong", reader.readLine());
+
+            writer.print("transform\t" + inputFileName + "\t" + outputFileName + "\toverwrite\n");
+            writer.flush();
+            String[] response = reader.readLine().split("\t");
+            assertEquals("OK", response[0]);
+            assertEquals("CHANGED", response[1]);
+            assertEquals(outputFileName, response[2]);
+            assertEquals("Manifest Action", response[3]);
+
+            writer.print("transform\t" + new File(DATA_DIR + "missing.txt").getAbsolutePath() + "\n");
+            writer.flush();
+            assertTrue(reader.readLine().startsWith("FAILED\t"));
+
+            writer.print("transform\t" + DATA_DIR + "MANIFEST.MF\t" + outputFileName + "\toverwrite\n");
+            writer.flush();
+            assertTrue(reader.readLine().startsWith("ERROR\t"));
+
+            writer.print("transform\t" + inputFileName + "\t" + DATA_DIR + "output_MANIFEST.MF\toverwrite\n");
+            writer.flush();
+            assertTrue(reader.readLine().startsWith("ERROR\t"));
+
+            writer.print("unknown\n");
+            writer.flush();
+            assertTrue(reader.readLine().startsWith("ERROR\t"));
+
+            writer.print("shutdown\n");
+            writer.flush();
+            assertEquals("OK\tshutdown", reader.readLine());
+        } finally {
+            daemon.stop();
+            serveThread.join(10000L);
+        }
+        assertFalse(serveThread.isAlive());
+        assertEquals(2, daemon.getRequests());
+    }
+
+    private TransformDaemon startDaemon(List<Thread> serveThreads) throws Exception {
+        Transformer t = new Transformer(System.out, System.err);
+        t.setArgs(new String[] { "-dm", "0" });
+        t.setParsedArgs();
+
+        TransformOptions options = t.getTransformOptions();
+        assertTrue(options.setRules(), "options.setRules() failed");
+
+        TransformDaemon daemon = options.createDaemon(0, 1);
+        daemon.start();
+        Thread serveThread = new Thread(daemon::serve, "transformer-daemon-test");
+        serveThread.start();
+        serveThreads.add(serveThread);
+        return daemon;
+    }
+
+    @Test
+    void testDaemonAuthentication() throws Exception {
+        List<Thread> serveThreads = new ArrayList<Thread>();
+        TransformDaemon daemon = startDaemon(serveThreads);
+        try {
+            // Requests which are not preceded by authentication are rejected,
+            // and the connection is closed.
+            try ( Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+                  BufferedReader reader = new BufferedReader(
+                      new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                  PrintWriter writer = new PrintWriter(socket.getOutputStream(), true) ) {
+                writer.print("shutdown\n");
+                writer.flush();
+                assertEquals("ERROR\tNot authenticated", reader.readLine());
+                assertNull(reader.readLine());
+            }
+
+            try ( Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+                  BufferedReader reader = new BufferedReader(
+                      new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                  PrintWriter writer = new PrintWriter(socket.getOutputStream(), true) ) {
+                writer.print("auth\t" + daemon.getToken().substring(1) + "\n");
+                writer.flush();
+                assertEquals("ERROR\tNot authenticated", reader.readLine());
+                assertNull(reader.readLine());
+            }
+
+            assertEquals(0, daemon.getRequests());
+            assertTrue(daemon.getPort() != -1, "daemon was stopped by an unauthenticated request");
+
+            // The token file is readable only by its owner.
+            File tokenFile = new File("build/test/daemon.token");
+            tokenFile.getParentFile().mkdirs();
+            tokenFile.delete();
+            daemon.writeToken(tokenFile);
+            assertEquals(daemon.getToken(), new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8));
+            if ( tokenFile.toPath().getFileSystem().supportedFileAttributeViews().contains("posix") ) {
+                assertEquals("rw-------",
+                    PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+            }
+
+            // An existing token file is not replaced.
+            assertThrows(FileAlreadyExistsException.class, () -> daemon.writeToken(tokenFile));
+            tokenFile.delete();
+
+        } finally {
+            daemon.stop();
+            serveThreads.get(0).join(10000L);
+        }
+    }
+
+    @Test
+    void testDaemonIdleTimeout() throws Exception {
+        List<Thread> serveThreads = new ArrayList<Thread>();
+        TransformDaemon daemon = startDaemon(serveThreads);
+        daemon.setIdleTimeout(200);
+        try {
+            // The daemon has one thread: An idle connection must not prevent
+            // other connections from being served.
+            try ( Socket idleSocket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+                  BufferedReader idleReader = new BufferedReader(
+                      new InputStreamReader(idleSocket.getInputStream(), StandardCharsets.UTF_8));
+                  Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+                  BufferedReader reader = new BufferedReader(
+                      new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                  PrintWriter writer = new PrintWriter(socket.getOutputStream(), true) ) {
+
+                socket.setSoTimeout(10000);
+                writer.print("auth\t" + daemon.getToken() + "\n");
+                writer.print("ping\n");
+                writer.flush();
+                assertEquals("OK\tauth", reader.readLine());
+                assertEquals("OK\tpong", reader.readLine());
+
+                idleSocket.setSoTimeout(10000);
+                assertNull(idleReader.readLine());
+            }
+        } finally {
+            daemon.stop();
+            serveThreads.get(0).join(10000L);
+        }
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.eclipse.transformer.CompiledRules;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.TransformerEngine;
+import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestCompiledRules {
+	public static final String TEST_DIR = "build/test/compiledRules";
+	public static final String RULES_FILE = TEST_DIR + "/jakarta.rules";
+
+	@BeforeEach
+	public void setUp() {
+		TestTransformDirectory.delete( new File(TEST_DIR) );
+	}
+
+	public static TransformOptions loadRules(String... args) throws Exception {
+		Transformer transformer = new Transformer(System.out, System.err);
+		transformer.setArgs(args);
+		transformer.setParsedArgs();
+
+		TransformOptions options = transformer.getTransformOptions();
+		Assertions.assertTrue( options.setRules() );
+		return options;
+	}
+
+	@Test
+	public void testCompile() throws Exception {
+		Transformer compiler = new Transformer(System.out, System.err);
+		compiler.setArgs( new String[] { "-cr", RULES_FILE } );
+		Assertions.assertEquals( Transformer.SUCCESS_RC, compiler.run() );
+		Assertions.assertTrue( new File(RULES_FILE).isFile() );
+
+		TransformOptions propertyOptions = loadRules();
+		TransformOptions compiledOptions = loadRules("-tc", RULES_FILE);
+
+		Assertions.assertEquals(propertyOptions.packageRenames, compiledOptions.packageRenames);
+		Assertions.assertEquals(propertyOptions.packageVersions, compiledOptions.packageVersions);
+		Assertions.assertEquals(propertyOptions.textExtensions, compiledOptions.textExtensions);
+		Assertions.assertEquals(propertyOptions.getRulesFingerprint(), compiledOptions.getRulesFingerprint());
+
+		Assertions.assertEquals("jakarta/servlet/http", compiledOptions.binaryPackageRenames.get("javax/servlet/http"));
+
+		Assertions.assertEquals(propertyOptions.bundleUpdates.keySet(), compiledOptions.bundleUpdates.keySet());
+		for ( Map.Entry<String, BundleData> updateEntry : propertyOptions.bundleUpdates.entrySet() ) {
+			BundleData expected = updateEntry.getValue();
+			BundleData actual = compiledOptions.bundleUpdates.get( updateEntry.getKey() );
+			Assertions.assertEquals(expected.getSymbolicName(), actual.getSymbolicName());
+			Assertions.assertEquals(expected.getVersion(), actual.getVersion());
+			Assertions.assertEquals(expected.getAddName(), actual.getAddName());
+			Assertions.assertEquals(expected.getName(), actual.getName());
+			Assertions.assertEquals(expected.getAddDescription(), actual.getAddDescription());
+			Assertions.assertEquals(expected.getDescription(), actual.getDescription());
+		}
+	}
+
+	@Test
+	public void testEngine() throws Exception {
+		loadRules().getCompiledRules().write( new File(RULES_FILE) );
+
+		TransformerEngine engine = new TransformerEngine(
+			LoggerImpl.createStandardLogger(),
+			CompiledRules.read( new File(RULES_FILE) ) );
+
+		TransformerEngine.Result result = engine.transform(
+			TestTransformerEngine.getClassResourceName(),
+			TestTransformAgent.readClass(Sample_InjectAPI_Javax.class) );
+		Assertions.assertTrue(result.hasChanges);
+	}
+
+	@Test
+	public void testCorrupt() throws Exception {
+		// A huge count must be rejected before any allocation is made.
+
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.putInt(CompiledRules.MAGIC);
+		buffer.putInt(CompiledRules.VERSION);
+		buffer.putInt(Integer.MAX_VALUE);
+		buffer.flip();
+
+		IOException e = Assertions.assertThrows(IOException.class, () -> CompiledRules.read(buffer));
+		Assertions.assertTrue( e.getMessage().startsWith("Corrupt compiled rules") );
+
+		// A truncated file is rejected.
+
+		File rulesFile = new File(RULES_FILE);
+		loadRules().getCompiledRules().write(rulesFile);
+		byte[] rulesBytes = Files.readAllBytes( rulesFile.toPath() );
+		Files.write( rulesFile.toPath(), Arrays.copyOf(rulesBytes, rulesBytes.length / 2) );
+
+		e = Assertions.assertThrows(IOException.class, () -> CompiledRules.read(rulesFile));
+		Assertions.assertTrue( e.getMessage().startsWith("Corrupt compiled rules") );
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.transformer.TransformerEngine;
+import org.eclipse.transformer.TransformerEngine.Result;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CorpusGenerator;
+import transformer.test.util.CorpusGenerator.Container;
+
+public class TestCorpusGenerator {
+	public static CorpusGenerator createGenerator() {
+		return new CorpusGenerator()
+			.container(Container.EAR)
+			.modules(2)
+			.libraries(2)
+			.entries(120)
+			.classRatio(0.6)
+			.binaryRatio(0.1)
+			.binaryLength(1024);
+	}
+
+	/**
+	 * Read the names of the entries of an archive, including the entries of
+	 * nested archives.  Nested entries are named using the path of the nested
+	 * archive, for example, "app_web0.war!/WEB-INF/web.xml".
+	 */
+	public static void readNames(String prefix, InputStream inputStream, List<String> names) throws IOException {
+		ZipInputStream zipStream = new ZipInputStream(inputStream);
+		ZipEntry entry;
+		while ( (entry = zipStream.getNextEntry()) != null ) {
+			String name = prefix + entry.getName();
+			names.add(name);
+			if ( name.endsWith(".jar") || name.endsWith(".war") ) {
+				readNames(name + "!/", zipStream, names);
+			}
+		}
+	}
+
+	public static byte[] readEntry(byte[] archiveBytes, String entryName) throws IOException {
+		ZipInputStream zipStream = new ZipInputStream( new ByteArrayInputStream(archiveBytes) );
+		ZipEntry entry;
+		while ( (entry = zipStream.getNextEntry()) != null ) {
+			if ( entry.getName().equals(entryName) ) {
+				return TestTransformerEngine.toBytes( FileUtils.read(entryName, zipStream) );
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testLayout() throws IOException {
+		CorpusGenerator generator = createGenerator();
+		byte[] earBytes = generator.generate();
+
+		List<String> names = new ArrayList<String>();
+		readNames( "", new ByteArrayInputStream(earBytes), names );
+
+		Assertions.assertEquals( generator.getWrittenEntries(), names.size() );
+
+		Assertions.assertTrue( names.contains("META-INF/MANIFEST.MF") );
+		Assertions.assertTrue( names.contains("META-INF/application.xml") );
+		Assertions.assertTrue( names.contains("lib/app_lib1.jar!/" + CorpusGenerator.SERVICE_CONFIG) );
+		for ( int moduleNo = 0; moduleNo < 2; moduleNo++ ) {
+			String warName = "app_web" + moduleNo + ".war";
+			Assertions.assertTrue( names.contains(warName) );
+			Assertions.assertTrue( names.contains(warName + "!/WEB-INF/web.xml") );
+			Assertions.assertTrue( names.contains(warName + "!/WEB-INF/lib/app_web" + moduleNo + "_lib1.jar!/META-INF/beans.xml") );
+		}
+
+		// Content entries are spread across the classes folders and libraries
+		// of the wars and the libraries of the ear.
+
+		int classCount = 0;
+		int binaryCount = 0;
+		int textCount = 0;
+		for ( String name : names ) {
+			if ( name.endsWith(".class") ) {
+				classCount++;
+			} else if ( name.endsWith(".png") ) {
+				binaryCount++;
+			} else if ( name.endsWith(".jsp") || (name.endsWith(".properties")) ) {
+				textCount++;
+			}
+		}
+		Assertions.assertEquals( 120, classCount + binaryCount + textCount );
+		Assertions.assertTrue( classCount > 0 );
+		Assertions.assertTrue( binaryCount > 0 );
+		Assertions.assertTrue( textCount > 0 );
+
+		// Generation is repeatable.
+
+		Assertions.assertArrayEquals( earBytes, generator.generate() );
+	}
+
+	@Test
+	public void testTransform() throws Exception {
+		byte[] earBytes = createGenerator().generate();
+
+		TransformerEngine engine = TestTransformerEngine.createEngine();
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		Result result = engine.transform( "app.ear", new ByteArrayInputStream(earBytes), outputStream );
+		Assertions.assertTrue( result.hasChanges );
+
+		byte[] outputBytes = outputStream.toByteArray();
+
+		byte[] manifestBytes = readEntry( outputBytes, "META-INF/MANIFEST.MF" );
+		Assertions.assertNotNull(manifestBytes);
+		String manifest = new String(manifestBytes, StandardCharsets.UTF_8);
+		Assertions.assertTrue( manifest.contains("jakarta.inject") );
+		Assertions.assertFalse( manifest.contains("javax.inject") );
+
+		// No entries are added or removed.
+
+		List<String> inputNames = new ArrayList<String>();
+		readNames( "", new ByteArrayInputStream(earBytes), inputNames );
+		List<String> outputNames = new ArrayList<String>();
+		readNames( "", new ByteArrayInputStream(outputBytes), outputNames );
+		Assertions.assertEquals( inputNames, outputNames );
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformAgent;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_Color;
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestTransformAgent {
+	public static final String CACHE_DIR = "build/test/classCache";
+
+	@BeforeEach
+	public void setUp() {
+		TestTransformDirectory.delete( new File(CACHE_DIR) );
+	}
+
+	public static String getBinaryName(Class<?> testClass) {
+		return testClass.getName().replace('.', '/');
+	}
+
+	public static byte[] readClass(Class<?> testClass) throws IOException {
+		String resourceName = getBinaryName(testClass) + ".class";
+		try ( InputStream inputStream = testClass.getClassLoader().getResourceAsStream(resourceName) ) {
+			ByteData classData = FileUtils.read(resourceName, inputStream); // throws IOException
+			byte[] classBytes = new byte[ classData.length ];
+			System.arraycopy(classData.data, classData.offset, classBytes, 0, classData.length);
+			return classBytes;
+		}
+	}
+
+	public static boolean contains(byte[] bytes, String text) {
+		return new String(bytes, StandardCharsets.ISO_8859_1).contains(text);
+	}
+
+	@Test
+	public void testScreen() throws Exception {
+		TransformAgent agent = TransformAgent.create( TransformAgent.parseArgs(null) );
+
+		Class<?> testClass = Sample_Color.class;
+		Assertions.assertNull( agent.transform( getBinaryName(testClass), readClass(testClass) ) );
+		Assertions.assertEquals(1, agent.getScreened());
+		Assertions.assertEquals(0, agent.getTransformed());
+	}
+
+	public static boolean mayReference(SignatureRuleImpl signatureRule, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		return signatureRule.mayReference(bytes, 0, bytes.length);
+	}
+
+	@Test
+	public void testScreenPackages() throws Exception {
+		Map<String, String> renames = new HashMap<String, String>();
+		renames.put("com.ibm.websphere.javaee.servlet.4.0", "com.ibm.websphere.jakartaee.servlet.5.0");
+		renames.put("javax.servlet", "jakarta.servlet");
+
+		LoggerImpl logger = new LoggerImpl(System.out, !LoggerImpl.IS_TERSE, !LoggerImpl.IS_VERBOSE);
+		SignatureRuleImpl signatureRule = new SignatureRuleImpl(logger, renames, null, null, null);
+
+		// Data which shares only the first segment of a renamed package is
+		// screened.
+		Assertions.assertFalse( mayReference(signatureRule, "Lcom/example/Sample;") );
+		Assertions.assertFalse( mayReference(signatureRule, "com.example.Sample") );
+		Assertions.assertFalse( mayReference(signatureRule, "Ljavax/inject/Inject;") );
+
+		// Renamed packages and their subpackages are not screened.
+		Assertions.assertTrue( mayReference(signatureRule, "Ljavax/servlet/Servlet;") );
+		Assertions.assertTrue( mayReference(signatureRule, "javax.servlet.http.HttpServlet") );
+		Assertions.assertTrue( mayReference(signatureRule, "com.ibm.websphere.javaee.servlet.4.0") );
+		Assertions.assertTrue( mayReference(signatureRule, "xjavax/servlet") );
+		Assertions.assertFalse( mayReference(signatureRule, "javax/servle") );
+	}
+
+	@Test
+	public void testBootstrapLoader() throws Exception {
+		TransformAgent agent = TransformAgent.create( TransformAgent.parseArgs(null) );
+
+		Class<?> testClass = Sample_InjectAPI_Javax.class;
+		Assertions.assertNull(
+			agent.transform( null, getBinaryName(testClass), null, null, readClass(testClass) ) );
+		Assertions.assertEquals(0, agent.getScreened());
+		Assertions.assertEquals(0, agent.getTransformed());
+	}
+
+	@Test
+	public void testTransform() throws Exception {
+		Class<?> testClass = Sample_InjectAPI_Javax.class;
+		String className = getBinaryName(testClass);
+		byte[] classBytes = readClass(testClass);
+		Assertions.assertTrue( contains(classBytes, "javax/inject") );
+
+		String[] args = TransformAgent.parseArgs("-cc," + CACHE_DIR);
+
+		TransformAgent coldAgent = TransformAgent.create(args);
+		byte[] coldBytes = coldAgent.transform(className, classBytes);
+		Assertions.assertNotNull(coldBytes);
+		Assertions.assertFalse( contains(coldBytes, "javax/inject") );
+		Assertions.assertTrue( contains(coldBytes, "jakarta/inject") );
+		Assertions.assertEquals(1, coldAgent.getTransformed());
+		Assertions.assertEquals(0, coldAgent.getCached());
+
+		TransformAgent warmAgent = TransformAgent.create(args);
+		byte[] warmBytes = warmAgent.transform(className, classBytes);
+		Assertions.assertArrayEquals(coldBytes, warmBytes);
+		Assertions.assertEquals(1, warmAgent.getTransformed());
+		Assertions.assertEquals(1, warmAgent.getCached());
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.transformer.TransformClassLoader;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestTransformClassLoader {
+	public static final String TEST_DIR = "build/test/classLoader";
+
+	public static final String JAVAX_SERVICE = "META-INF/services/javax.inject.Provider";
+	public static final String JAKARTA_SERVICE = "META-INF/services/jakarta.inject.Provider";
+
+	public static final String TEST_DATA_PACKAGE = "transformer.test.data.";
+
+	private File classesDir;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		File testDir = new File(TEST_DIR);
+		TestTransformDirectory.delete(testDir);
+
+		classesDir = new File(testDir, "classes");
+
+		Class<?> testClass = Sample_InjectAPI_Javax.class;
+		File classFile = new File( classesDir, TestTransformAgent.getBinaryName(testClass) + ".class" );
+		classFile.getParentFile().mkdirs();
+		Files.write( classFile.toPath(), TestTransformAgent.readClass(testClass) );
+
+		TestTransformDirectory.write( new File(classesDir, JAVAX_SERVICE), "javax.inject.Named\n" );
+	}
+
+	/**
+	 * Parent for the transforming class loader: Hides the untransformed
+	 * test data classes.
+	 */
+	public static class HidingClassLoader extends ClassLoader {
+		public HidingClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+			if ( className.startsWith(TEST_DATA_PACKAGE) ) {
+				throw new ClassNotFoundException(className);
+			}
+			return super.loadClass(className, resolve);
+		}
+	}
+
+	public TransformClassLoader createClassLoader() throws Exception {
+		Transformer transformer = new Transformer(System.out, System.err);
+		transformer.setArgs( new String[0] );
+		transformer.setParsedArgs();
+
+		TransformOptions options = transformer.getTransformOptions();
+		Assertions.assertTrue( options.setRules() );
+
+		return options.createClassLoader(
+			new URL[] { classesDir.toURI().toURL() },
+			new HidingClassLoader( getClass().getClassLoader() ) );
+	}
+
+	public static String read(URL url) throws IOException {
+		try ( InputStream inputStream = url.openStream() ) {
+			ByteData data = FileUtils.read( url.toString(), inputStream );
+			return new String(data.data, data.offset, data.length, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	@Test
+	public void testLoadClass() throws Exception {
+		try ( TransformClassLoader classLoader = createClassLoader() ) {
+			String className = Sample_InjectAPI_Javax.class.getName();
+			Class<?> testClass = classLoader.loadClass(className);
+
+			Assertions.assertSame(classLoader, testClass.getClassLoader());
+			Assertions.assertNotSame(Sample_InjectAPI_Javax.class, testClass);
+			Assertions.assertSame(
+				jakarta.inject.Provider.class,
+				testClass.getConstructors()[0].getParameterTypes()[0] );
+
+			// 'getResource' would answer the untransformed class from the parent.
+			URL classURL = classLoader.findResource( TestTransformAgent.getBinaryName(testClass) + ".class" );
+			String classText = read(classURL);
+			Assertions.assertTrue( classText.contains("jakarta/inject") );
+			Assertions.assertFalse( classText.contains("javax/inject") );
+		}
+	}
+
+	@Test
+	public void testServiceConfig() throws Exception {
+		try ( TransformClassLoader classLoader = createClassLoader() ) {
+			Assertions.assertNull( classLoader.getResource(JAVAX_SERVICE) );
+
+			List<URL> urls = Collections.list( classLoader.getResources(JAKARTA_SERVICE) );
+			Assertions.assertEquals(1, urls.size());
+			Assertions.assertEquals("jakarta.inject.Named\n", read( urls.get(0) ));
+
+			URL url = classLoader.getResource(JAKARTA_SERVICE);
+			Assertions.assertNotNull(url);
+			Assertions.assertEquals("jakarta.inject.Named\n", read(url));
+		}
+	}
+
+	@Test
+	public void testResourceNotRetained() throws Exception {
+		try ( TransformClassLoader classLoader = createClassLoader() ) {
+			URL url = classLoader.getResource(JAKARTA_SERVICE);
+			Assertions.assertEquals("jakarta.inject.Named\n", read(url));
+
+			// Transformed resource bytes are not retained by the class loader:
+			// A later read answers the current resource content.
+
+			TestTransformDirectory.write( new File(classesDir, JAVAX_SERVICE), "javax.inject.Singleton\n" );
+			Assertions.assertEquals("jakarta.inject.Singleton\n", read(url));
+
+			try ( InputStream inputStream = classLoader.getResourceAsStream(JAKARTA_SERVICE) ) {
+				ByteData data = FileUtils.read(JAKARTA_SERVICE, inputStream);
+				Assertions.assertEquals(
+					"jakarta.inject.Singleton\n",
+					new String(data.data, data.offset, data.length, StandardCharsets.ISO_8859_1) );
+			}
+
+			// The length of a connection is the length of its transformed content.
+
+			URLConnection connection = url.openConnection();
+			int length = connection.getContentLength();
+			try ( InputStream inputStream = connection.getInputStream() ) {
+				Assertions.assertEquals( length, FileUtils.read(JAKARTA_SERVICE, inputStream).length );
+			}
+		}
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.transformer.DirectoryWatcher;
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.util.RunManifest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestTransformDirectory {
+	public LoggerImpl createLogger(PrintStream printStream, boolean isTerse, boolean isVerbose) {
+		return new LoggerImpl(printStream, isTerse, isVerbose);
+	}
+
+	public InputBufferImpl createBuffer() {
+		return new InputBufferImpl();
+	}
+
+	public SelectionRuleImpl createSelectionRule(LoggerImpl logger, Set<String> excludes) {
+		return new SelectionRuleImpl( logger, Collections.emptySet(), excludes );
+	}
+
+	public SignatureRuleImpl createSignatureRule(LoggerImpl logger, Map<String, String> usePackageRenames) {
+		return new SignatureRuleImpl( logger, usePackageRenames, null, null, null );
+	}
+
+	//
+
+	public static final String JAVAX_TEXT = "servlet.class=javax.servlet.GenericServlet\n";
+	public static final String JAKARTA_TEXT = "servlet.class=jakarta.servlet.GenericServlet\n";
+
+	public static final String TEST_DIR = "build/test/directory";
+
+	public Map<String, String> getPackageRenames() {
+		Map<String, String> packageRenames = new HashMap<String, String>();
+		packageRenames.put("javax.servlet", "jakarta.servlet");
+		return packageRenames;
+	}
+
+	public Set<String> getExcludes() {
+		Set<String> excludes = new HashSet<String>();
+		excludes.add("*/excluded.properties");
+		return excludes;
+	}
+
+	public DirectoryActionImpl createDirectoryAction(boolean includeNullAction) {
+		return createDirectoryAction( includeNullAction, getExcludes() );
+	}
+
+	public DirectoryActionImpl createDirectoryAction(boolean includeNullAction, Set<String> excludes) {
+		LoggerImpl logger = createLogger( System.out, !LoggerImpl.IS_TERSE, !LoggerImpl.IS_VERBOSE );
+
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(
+			logger,
+			createBuffer(),
+			createSelectionRule( logger, excludes ),
+			createSignatureRule( logger, getPackageRenames() ) );
+
+		Set<String> extensions = new HashSet<String>();
+		extensions.add(".properties");
+
+		directoryAction.addAction( directoryAction.createUsing(
+			(useLogger, useBuffer, useSelectionRule, useSignatureRule) ->
+				new TextActionImpl(useLogger, useBuffer, useSelectionRule, useSignatureRule, extensions) ) );
+		directoryAction.addAction( directoryAction.createUsing(ServiceLoaderConfigActionImpl::new) );
+		if ( includeNullAction ) {
+			directoryAction.addAction( directoryAction.createUsing(NullActionImpl::new) );
+		}
+
+		return directoryAction;
+	}
+
+	protected File inputDir;
+	protected File outputDir;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		File testDir = new File(TEST_DIR);
+		delete(testDir);
+
+		inputDir = new File(testDir, "input");
+		outputDir = new File(testDir, "output");
+
+		write(new File(inputDir, "sample.properties"), JAVAX_TEXT);
+		write(new File(inputDir, "nested/excluded.properties"), JAVAX_TEXT);
+		write(new File(inputDir, "nested/deeper/other.bin"), "other content");
+	}
+
+	protected static void delete(File file) {
+		File[] children = file.listFiles();
+		if ( children != null ) {
+			for ( File child : children ) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	protected static void write(File file, String text) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write( file.toPath(), text.getBytes(StandardCharsets.UTF_8) );
+	}
+
+	protected static String read(File file) throws IOException {
+		return new String( Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8 );
+	}
+
+	protected void verifyOutput() throws IOException {
+		Assertions.assertEquals( JAKARTA_TEXT, read(new File(outputDir, "sample.properties")) );
+		Assertions.assertEquals( JAVAX_TEXT, read(new File(outputDir, "nested/excluded.properties")) );
+		Assertions.assertEquals( "other content", read(new File(outputDir, "nested/deeper/other.bin")) );
+	}
+
+	@Test
+	public void testCopyUnaccepted() throws TransformException, IOException {
+		DirectoryActionImpl directoryAction = createDirectoryAction(false);
+		directoryAction.apply(".", inputDir, outputDir);
+
+		verifyOutput();
+		Assertions.assertEquals( 3, directoryAction.getChanges().getAllResources() );
+		Assertions.assertEquals( 1, directoryAction.getChanges().getAllUnselected() );
+	}
+
+	@Test
+	public void testCopyNull() throws TransformException, IOException {
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+		directoryAction.setCopyThreads(0);
+		directoryAction.apply(".", inputDir, outputDir);
+
+		verifyOutput();
+		Assertions.assertEquals( 3, directoryAction.getChanges().getAllResources() );
+	}
+
+	@Test
+	public void testLinkCopies() throws TransformException, IOException {
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+		directoryAction.setLinkCopies(true);
+		directoryAction.apply(".", inputDir, outputDir);
+		verifyOutput();
+
+		Path excludedInput = new File(inputDir, "nested/excluded.properties").toPath();
+		Path excludedOutput = new File(outputDir, "nested/excluded.properties").toPath();
+		Assertions.assertTrue( Files.isSameFile(excludedInput, excludedOutput) );
+
+		// A transform of a previously linked file must not write through the link.
+
+		DirectoryActionImpl selectAllAction = createDirectoryAction( true, Collections.emptySet() );
+		selectAllAction.apply(".", inputDir, outputDir);
+
+		Assertions.assertEquals( JAVAX_TEXT, read(excludedInput.toFile()) );
+		Assertions.assertEquals( JAKARTA_TEXT, read(excludedOutput.toFile()) );
+	}
+
+	@Test
+	public void testLinkUnchanged() throws TransformException, IOException {
+		File unchangedInput = new File(inputDir, "META-INF/services/com.acme.Service");
+		File changedInput = new File(inputDir, "META-INF/services/com.acme.Other");
+		write(unchangedInput, "com.acme.Impl\n");
+		write(changedInput, "javax.servlet.Impl\n");
+
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+		directoryAction.setLinkCopies(true);
+		directoryAction.apply(".", inputDir, outputDir);
+
+		File unchangedOutput = new File(outputDir, "META-INF/services/com.acme.Service");
+		File changedOutput = new File(outputDir, "META-INF/services/com.acme.Other");
+
+		Assertions.assertTrue( Files.isSameFile(unchangedInput.toPath(), unchangedOutput.toPath()) );
+		Assertions.assertFalse( Files.isSameFile(changedInput.toPath(), changedOutput.toPath()) );
+		Assertions.assertEquals( "jakarta.servlet.Impl", read(changedOutput).trim() );
+		Assertions.assertEquals( "javax.servlet.Impl", read(changedInput).trim() );
+	}
+
+	@Test
+	public void testIncremental() throws TransformException, IOException {
+		File stateFile = new File(TEST_DIR, "state/run.manifest");
+
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+		directoryAction.setIncremental(stateFile, "rules1");
+		directoryAction.apply(".", inputDir, outputDir);
+		verifyOutput();
+
+		RunManifest manifest = RunManifest.read(stateFile);
+		Assertions.assertEquals( "rules1", manifest.getRulesFingerprint() );
+		Assertions.assertEquals( 3, manifest.size() );
+		Assertions.assertNotNull( manifest.get("sample.properties") );
+		Assertions.assertNotNull( manifest.get("nested/deeper/other.bin") );
+
+		// Unchanged inputs with unchanged outputs are skipped.
+
+		directoryAction = createDirectoryAction(true);
+		directoryAction.setIncremental(stateFile, "rules1");
+		directoryAction.apply(".", inputDir, outputDir);
+		Assertions.assertEquals( 3, directoryAction.getChanges().getAllResources() );
+		Assertions.assertEquals( 3, directoryAction.getChanges().getUnchanged(DirectoryActionImpl.INCREMENTAL_SKIP) );
+
+		// An output which was modified is transformed again, even though the
+		// input is unchanged.
+
+		File sampleOutput = new File(outputDir, "sample.properties");
+		write(sampleOutput, "marker");
+
+		directoryAction = createDirectoryAction(true);
+		directoryAction.setIncremental(stateFile, "rules1");
+		directoryAction.apply(".", inputDir, outputDir);
+		Assertions.assertEquals( JAKARTA_TEXT, read(sampleOutput) );
+		Assertions.assertEquals( 2, directoryAction.getChanges().getUnchanged(DirectoryActionImpl.INCREMENTAL_SKIP) );
+
+		// An output which was touched but which has unchanged content is skipped.
+
+		Assertions.assertTrue( sampleOutput.setLastModified( sampleOutput.lastModified() - 60000L ) );
+
+		directoryAction = createDirectoryAction(true);
+		directoryAction.setIncremental(stateFile, "rules1");
+		directoryAction.apply(".", inputDir, outputDir);
+		Assertions.assertEquals( 3, directoryAction.getChanges().getUnchanged(DirectoryActionImpl.INCREMENTAL_SKIP) );
+
+		// Changed inputs are transformed, and outputs of removed inputs are removed.
+
+		File sampleInput = new File(inputDir, "sample.properties");
+		write(sampleInput, JAVAX_TEXT + JAVAX_TEXT);
+		new File(inputDir, "nested/deeper/other.bin").delete();
+
+		directoryAction = createDirectoryAction(true);
+		directoryAction.setIncremental(stateFile, "rules1");
+		directoryAction.apply(".", inputDir, outputDir);
+		Assertions.assertEquals( JAKARTA_TEXT + JAKARTA_TEXT, read(sampleOutput) );
+		Assertions.assertFalse( new File(outputDir, "nested/deeper/other.bin").exists() );
+		Assertions.assertEquals( 2, RunManifest.read(stateFile).size() );
+
+		// Changed rules cause all inputs to be transformed.
+
+		write(sampleOutput, "marker");
+
+		directoryAction = createDirectoryAction(true);
+		directoryAction.setIncremental(stateFile, "rules2");
+		directoryAction.apply(".", inputDir, outputDir);
+		Assertions.assertEquals( JAKARTA_TEXT + JAKARTA_TEXT, read(sampleOutput) );
+		Assertions.assertEquals( "rules2", RunManifest.read(stateFile).getRulesFingerprint() );
+	}
+
+	@Test
+	public void testApplyChanges() throws TransformException, IOException {
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+		directoryAction.apply(".", inputDir, outputDir);
+		verifyOutput();
+
+		write(new File(inputDir, "nested/added.properties"), JAVAX_TEXT);
+		new File(inputDir, "nested/deeper/other.bin").delete();
+
+		directoryAction.applyChanges(
+			inputDir, outputDir,
+			Collections.singleton("nested/added.properties"),
+			Collections.singleton("nested/deeper/other.bin") );
+
+		Assertions.assertEquals( JAKARTA_TEXT, read(new File(outputDir, "nested/added.properties")) );
+		Assertions.assertFalse( new File(outputDir, "nested/deeper/other.bin").exists() );
+		Assertions.assertEquals( 1, directoryAction.getChanges().getAllResources() );
+	}
+
+	@Test
+	public void testOutputWithinInput() throws TransformException, IOException {
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+
+		// The output is within the input after the input path is resolved.
+		File nestedOutput = new File(inputDir, "nested/../output");
+
+		Assertions.assertThrows( TransformException.class, () -> directoryAction.applyChanges(
+			inputDir, nestedOutput,
+			Collections.singleton("sample.properties"),
+			Collections.emptySet() ) );
+		Assertions.assertFalse( nestedOutput.exists() );
+
+		DirectoryWatcher watcher = new DirectoryWatcher(
+			directoryAction.getLogger(), directoryAction, inputDir, nestedOutput);
+		try {
+			Assertions.assertThrows( IOException.class, watcher::start );
+		} finally {
+			watcher.stop();
+		}
+	}
+
+	protected static void waitFor(String description, BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000L;
+		while ( !condition.getAsBoolean() ) {
+			if ( System.currentTimeMillis() > deadline ) {
+				Assertions.fail("Timed out waiting for " + description);
+			}
+			Thread.sleep(10L);
+		}
+	}
+
+	protected static String readQuietly(File file) {
+		try {
+			return ( file.exists() ? read(file) : null );
+		} catch ( IOException e ) {
+			return null;
+		}
+	}
+
+	@Test
+	public void testWatch() throws Exception {
+		DirectoryActionImpl directoryAction = createDirectoryAction(true);
+
+		DirectoryWatcher watcher = new DirectoryWatcher(
+			directoryAction.getLogger(), directoryAction, inputDir, outputDir);
+		watcher.start();
+		directoryAction.apply(".", inputDir, outputDir);
+		verifyOutput();
+
+		Thread watchThread = new Thread(watcher::watch, "transformer-watch-test");
+		watchThread.start();
+
+		try {
+			File addedOutput = new File(outputDir, "created/added.properties");
+			write(new File(inputDir, "created/added.properties"), JAVAX_TEXT);
+			waitFor("created file", () -> JAKARTA_TEXT.equals(readQuietly(addedOutput)) );
+
+			File sampleOutput = new File(outputDir, "sample.properties");
+			write(new File(inputDir, "sample.properties"), JAVAX_TEXT + JAVAX_TEXT);
+			waitFor("modified file", () -> (JAKARTA_TEXT + JAKARTA_TEXT).equals(readQuietly(sampleOutput)) );
+
+			File otherOutput = new File(outputDir, "nested/deeper/other.bin");
+			new File(inputDir, "nested/deeper/other.bin").delete();
+			waitFor("removed file", () -> !otherOutput.exists() );
+
+		} finally {
+			watcher.stop();
+			watchThread.join(10000L);
+		}
+		Assertions.assertFalse( watchThread.isAlive() );
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.transformer.TransformerEngine;
+import org.eclipse.transformer.jfr.ActionEvent;
+import org.eclipse.transformer.jfr.ClassConstantsEvent;
+import org.eclipse.transformer.jfr.ContainerEntryEvent;
+import org.eclipse.transformer.jfr.SignatureCacheMissEvent;
+import org.eclipse.transformer.jfr.TransformEvents;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestTransformEvents {
+	@Test
+	public void testEvents() throws Exception {
+		Assertions.assertTrue( TransformEvents.enable() );
+
+		Path recordingPath = Files.createTempFile("transform", ".jfr");
+		try {
+			try ( Recording recording = new Recording() ) {
+				recording.enable(ActionEvent.NAME);
+				recording.enable(ContainerEntryEvent.NAME);
+				recording.enable(ClassConstantsEvent.NAME);
+				recording.enable(SignatureCacheMissEvent.NAME);
+				recording.start();
+
+				TransformerEngine engine = TestTransformerEngine.createEngine();
+				byte[] jarBytes = TestTransformerEngine.createJar(
+					TestTransformAgent.readClass(Sample_InjectAPI_Javax.class) );
+				engine.transform("sample.jar", new ByteArrayInputStream(jarBytes), new ByteArrayOutputStream());
+
+				recording.stop();
+				recording.dump(recordingPath);
+			}
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+
+			Set<String> eventNames = new HashSet<String>();
+			for ( RecordedEvent event : events ) {
+				String eventName = event.getEventType().getName();
+				eventNames.add(eventName);
+
+				if ( eventName.equals(ContainerEntryEvent.NAME) ) {
+					Assertions.assertEquals("sample.jar", event.getString("containerName"));
+					Assertions.assertEquals(TestTransformerEngine.getClassResourceName(), event.getString("entryName"));
+					Assertions.assertEquals(ContainerEntryEvent.TRANSFORMED, event.getString("disposition"));
+				} else if ( eventName.equals(ActionEvent.NAME) ) {
+					Assertions.assertEquals("CLASS", event.getString("actionType"));
+					Assertions.assertTrue(event.getBoolean("changed"));
+				}
+			}
+
+			Assertions.assertTrue(eventNames.contains(ActionEvent.NAME));
+			Assertions.assertTrue(eventNames.contains(ContainerEntryEvent.NAME));
+			Assertions.assertTrue(eventNames.contains(ClassConstantsEvent.NAME));
+			Assertions.assertTrue(eventNames.contains(SignatureCacheMissEvent.NAME));
+
+		} finally {
+			TransformEvents.disable();
+			Files.delete(recordingPath);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.JspActionImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestTransformJsp {
+	public LoggerImpl createLogger(PrintStream printStream, boolean isTerse, boolean isVerbose) {
+		return new LoggerImpl(printStream, isTerse, isVerbose);
+	}
+
+	public InputBufferImpl createBuffer() {
+		return new InputBufferImpl();
+	}
+
+	public SelectionRuleImpl createSelectionRule(LoggerImpl logger) {
+		return new SelectionRuleImpl( logger, Collections.emptySet(), Collections.emptySet() );
+	}
+
+	public SignatureRuleImpl createSignatureRule(
+		LoggerImpl logger,
+		Map<String, String> usePackageRenames,
+		Map<String, String> directStrings) {
+
+		return new SignatureRuleImpl( logger, usePackageRenames, null, null, directStrings );
+	}
+
+	//
+
+	public static final String JSTL_CORE_URI = "http://java.sun.com/jsp/jstl/core";
+	public static final String JAKARTA_CORE_URI = "jakarta.tags.core";
+
+	protected Map<String, String> packageRenames;
+
+	public Map<String, String> getPackageRenames() {
+		if ( packageRenames == null ) {
+			packageRenames = new HashMap<String, String>();
+			packageRenames.put("javax.servlet", "jakarta.servlet");
+			packageRenames.put("javax.servlet.http", "jakarta.servlet.http");
+			packageRenames.put("javax.servlet.jsp", "jakarta.servlet.jsp");
+		}
+		return packageRenames;
+	}
+
+	public Map<String, String> getDirectStrings() {
+		return Collections.singletonMap(JSTL_CORE_URI, JAKARTA_CORE_URI);
+	}
+
+	protected JspActionImpl jspAction;
+
+	public JspActionImpl getJspAction() {
+		if ( jspAction == null ) {
+			LoggerImpl logger = createLogger( System.out, !LoggerImpl.IS_TERSE, !LoggerImpl.IS_VERBOSE );
+
+			jspAction = new JspActionImpl(
+				logger,
+				createBuffer(),
+				createSelectionRule(logger),
+				createSignatureRule( logger, getPackageRenames(), getDirectStrings() ) );
+		}
+		return jspAction;
+	}
+
+	protected String transform(String inputName, String inputText) throws TransformException {
+		byte[] inputBytes = inputText.getBytes(StandardCharsets.ISO_8859_1);
+		ByteData outputData = getJspAction().apply(inputName, inputBytes, inputBytes.length);
+		if ( outputData == null ) {
+			return inputText;
+		} else {
+			return new String(outputData.data, outputData.offset, outputData.length, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	//
+
+	@Test
+	public void testAccept() {
+		JspActionImpl useAction = getJspAction();
+
+		Assertions.assertTrue( useAction.accept("index.jsp") );
+		Assertions.assertTrue( useAction.accept("WEB-INF/tags/header.TAG") );
+		Assertions.assertTrue( useAction.accept("META-INF/resources/page.jspx") );
+		Assertions.assertFalse( useAction.accept("WEB-INF/web.xml") );
+	}
+
+	@Test
+	public void testPageImports() throws TransformException {
+		String inputText =
+			"<%@ page contentType=\"text/html\" import=\"java.util.*, javax.servlet.http.*,javax.servlet.ServletException\" %>\n" +
+			"<html></html>\n";
+		String expectedText =
+			"<%@ page contentType=\"text/html\" import=\"java.util.*, jakarta.servlet.http.*,jakarta.servlet.ServletException\" %>\n" +
+			"<html></html>\n";
+
+		Assertions.assertEquals( expectedText, transform("index.jsp", inputText) );
+		Assertions.assertEquals( 1, getJspAction().getChanges().getReplacements() );
+	}
+
+	@Test
+	public void testMultiLineDirective() throws TransformException {
+		String inputText =
+			"<%@ page\n" +
+			"    import='javax.servlet.jsp.PageContext,\n" +
+			"            java.util.List' %><% javax.servlet.http.HttpSession s = null; %>";
+		String expectedText =
+			"<%@ page\n" +
+			"    import='jakarta.servlet.jsp.PageContext,\n" +
+			"            java.util.List' %><% jakarta.servlet.http.HttpSession s = null; %>";
+
+		Assertions.assertEquals( expectedText, transform("index.jsp", inputText) );
+	}
+
+	@Test
+	public void testTaglib() throws TransformException {
+		String inputText =
+			"<%@ taglib prefix=\"c\" uri=\"" + JSTL_CORE_URI + "\" %>\n" +
+			"<%@ taglib prefix=\"x\" uri=\"http://example.com/other\" %>\n";
+		String expectedText =
+			"<%@ taglib prefix=\"c\" uri=\"" + JAKARTA_CORE_URI + "\" %>\n" +
+			"<%@ taglib prefix=\"x\" uri=\"http://example.com/other\" %>\n";
+
+		Assertions.assertEquals( expectedText, transform("index.jsp", inputText) );
+	}
+
+	@Test
+	public void testXMLSyntax() throws TransformException {
+		String inputText =
+			"<jsp:root xmlns:jsp=\"http://java.sun.com/JSP/Page\" version=\"2.0\">\n" +
+			"<jsp:directive.page import=\"javax.servlet.http.Cookie\"/>\n" +
+			"<jsp:useBean id=\"b\" class=\"javax.servlet.http.Cookie\"/>\n" +
+			"</jsp:root>\n";
+		String expectedText =
+			"<jsp:root xmlns:jsp=\"http://java.sun.com/JSP/Page\" version=\"2.0\">\n" +
+			"<jsp:directive.page import=\"jakarta.servlet.http.Cookie\"/>\n" +
+			"<jsp:useBean id=\"b\" class=\"jakarta.servlet.http.Cookie\"/>\n" +
+			"</jsp:root>\n";
+
+		Assertions.assertEquals( expectedText, transform("page.jspx", inputText) );
+	}
+
+	@Test
+	public void testDirectiveAcrossReads() throws TransformException {
+		StringBuilder inputBuilder = new StringBuilder();
+		while ( inputBuilder.length() < TextActionImpl.READ_LENGTH - 10 ) {
+			inputBuilder.append("<p>text</p>\n");
+		}
+		String padding = inputBuilder.toString();
+
+		String inputText = padding + "<%@ page import=\"javax.servlet.http.*\" %>\n";
+		String expectedText = padding + "<%@ page import=\"jakarta.servlet.http.*\" %>\n";
+
+		Assertions.assertEquals( expectedText, transform("index.jsp", inputText) );
+	}
+
+	@Test
+	public void testUnterminatedDirective() throws TransformException {
+		String inputText = "<p>javax.servlet.Servlet</p>\n<%@ page import=\"javax.servlet.http.*\"";
+		String expectedText = "<p>jakarta.servlet.Servlet</p>\n<%@ page import=\"jakarta.servlet.http.*\"";
+
+		Assertions.assertEquals( expectedText, transform("index.jsp", inputText) );
+	}
+}
@@ -19,9 +19,12 @@
 
 package transformer.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -37,7 +40,10 @@ import org.eclipse.transformer.action.impl.LoggerImpl;
 import org.eclipse.transformer.action.impl.SelectionRuleImpl;
 import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
 import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class TestTransformServiceConfig {
@@ -208,5 +214,71 @@ public class TestTransformServiceConfig {
 		TestUtils.filter(transformedLines);
 		TestUtils.verify(inputName, expectedLines, transformedLines);
 	}
-	
+
+	protected static byte[] readResource(String resourceName) throws IOException {
+		try ( InputStream inputStream = TestUtils.getResourceStream(resourceName) ) {
+			return TestTransformerEngine.toBytes( FileUtils.read(resourceName, inputStream) );
+		}
+	}
+
+	// Comparing filtered lines does not detect trailing padding in the
+	// transformed output: Compare the exact bytes.
+
+	protected void verifyExactTransform(
+		ServiceLoaderConfigActionImpl action,
+		String inputName,
+		String expectedName) throws IOException, TransformException {
+
+		byte[] transformedBytes;
+		try ( InputStream inputStream = TestUtils.getResourceStream(inputName) ) {
+			InputStreamData transformedData = action.apply(inputName, inputStream);
+			transformedBytes = TestTransformerEngine.toBytes( FileUtils.read(inputName, transformedData.stream) );
+		}
+
+		Assertions.assertArrayEquals(
+			readResource(expectedName), transformedBytes,
+			"Transformed [ " + inputName + " ]" );
+	}
+
+	@Test
+	public void testJakartaTransformExact() throws IOException, TransformException {
+		ServiceLoaderConfigActionImpl jakartaAction = getJakartaServiceAction();
+
+		verifyExactTransform(jakartaAction, JAVAX_OTHER_READER_SERVICE_PATH, JAVAX_OTHER_READER_SERVICE_PATH);
+		verifyExactTransform(jakartaAction, JAVAX_SAMPLE_READER_SERVICE_PATH, JAKARTA_SAMPLE_READER_SERVICE_PATH);
+	}
+
+	@Test
+	public void testJavaxTransformExact() throws IOException, TransformException {
+		ServiceLoaderConfigActionImpl javaxAction = getJavaxServiceAction();
+
+		verifyExactTransform(javaxAction, JAKARTA_OTHER_READER_SERVICE_PATH, JAKARTA_OTHER_READER_SERVICE_PATH);
+		verifyExactTransform(javaxAction, JAKARTA_SAMPLE_READER_SERVICE_PATH, JAVAX_SAMPLE_READER_SERVICE_PATH);
+	}
+
+	@Test
+	public void testBufferTransform() throws IOException, TransformException {
+		ServiceLoaderConfigActionImpl jakartaAction = getJakartaServiceAction();
+
+		String inputName = JAVAX_SAMPLE_READER_SERVICE_PATH;
+
+		ByteData inputData;
+		try ( InputStream inputStream = TestUtils.getResourceStream(inputName) ) {
+			inputData = FileUtils.read(inputName, inputStream);
+		}
+
+		ByteBuffer inputBuffer = ByteBuffer.allocateDirect(inputData.length);
+		inputBuffer.put(inputData.data, inputData.offset, inputData.length);
+		inputBuffer.flip();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		jakartaAction.apply(inputName, inputBuffer, outputStream);
+
+		Assertions.assertArrayEquals( readResource(JAKARTA_SAMPLE_READER_SERVICE_PATH), outputStream.toByteArray() );
+
+		List<String> transformedLines =
+			TestUtils.loadLines( new ByteArrayInputStream(outputStream.toByteArray()) );
+		TestUtils.filter(transformedLines);
+		TestUtils.verify(inputName, JAKARTA_SAMPLE_READER_LINES, transformedLines);
+	}
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.LoggerImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestTransformText {
+	public LoggerImpl createLogger(PrintStream printStream, boolean isTerse, boolean isVerbose) {
+		return new LoggerImpl(printStream, isTerse, isVerbose);
+	}
+
+	public InputBufferImpl createBuffer() {
+		return new InputBufferImpl();
+	}
+
+	public SelectionRuleImpl createSelectionRule(LoggerImpl logger) {
+		return new SelectionRuleImpl( logger, Collections.emptySet(), Collections.emptySet() );
+	}
+
+	public SignatureRuleImpl createSignatureRule(LoggerImpl logger, Map<String, String> usePackageRenames) {
+		return new SignatureRuleImpl( logger, usePackageRenames, null, null, null );
+	}
+
+	//
+
+	public static final String JAVAX_SERVLET = "javax.servlet";
+	public static final String JAKARTA_SERVLET = "jakarta.servlet";
+
+	public static final String JAVAX_TEXT =
+		"servlet.class=javax.servlet.GenericServlet\n" +
+		"other.class=javax.servletx.Other\r\n" +
+		"# javax.servlet.http is not renamed by itself\n" +
+		"last=javax.servlet.Servlet";
+
+	public static final String JAKARTA_TEXT =
+		"servlet.class=jakarta.servlet.GenericServlet\n" +
+		"other.class=javax.servletx.Other\r\n" +
+		"# javax.servlet.http is not renamed by itself\n" +
+		"last=jakarta.servlet.Servlet";
+
+	protected Map<String, String> packageRenames;
+
+	public Map<String, String> getPackageRenames() {
+		if ( packageRenames == null ) {
+			packageRenames = new HashMap<String, String>();
+			packageRenames.put(JAVAX_SERVLET, JAKARTA_SERVLET);
+		}
+		return packageRenames;
+	}
+
+	public Set<String> getExtensions() {
+		Set<String> extensions = new HashSet<String>();
+		extensions.add(".properties");
+		extensions.add(".tld");
+		return extensions;
+	}
+
+	protected TextActionImpl textAction;
+
+	public TextActionImpl getTextAction() {
+		if ( textAction == null ) {
+			LoggerImpl logger = createLogger( System.out, !LoggerImpl.IS_TERSE, !LoggerImpl.IS_VERBOSE );
+
+			textAction = new TextActionImpl(
+				logger,
+				createBuffer(),
+				createSelectionRule(logger),
+				createSignatureRule(logger, getPackageRenames()),
+				getExtensions() );
+		}
+		return textAction;
+	}
+
+	//
+
+	protected byte[] transform(String inputName, byte[] inputBytes) throws TransformException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		getTextAction().apply(
+			inputName,
+			new ByteArrayInputStream(inputBytes), inputBytes.length,
+			outputStream);
+		return outputStream.toByteArray();
+	}
+
+	@Test
+	public void testAccept() {
+		TextActionImpl useAction = getTextAction();
+
+		Assertions.assertTrue( useAction.accept("WEB-INF/classes/beans.properties") );
+		Assertions.assertTrue( useAction.accept("META-INF/TAGS.TLD") );
+		Assertions.assertFalse( useAction.accept("WEB-INF/classes/Sample.class") );
+
+		// Text actions accept by their extensions, not by a single extension.
+		Assertions.assertNull( useAction.getAcceptExtension() );
+	}
+
+	@Test
+	public void testTransform() throws TransformException {
+		byte[] outputBytes = transform( "sample.properties", JAVAX_TEXT.getBytes(StandardCharsets.UTF_8) );
+
+		Assertions.assertEquals( JAKARTA_TEXT, new String(outputBytes, StandardCharsets.UTF_8) );
+		Assertions.assertTrue( getTextAction().hasChanges() );
+		Assertions.assertEquals( 2, getTextAction().getChanges().getReplacements() );
+	}
+
+	@Test
+	public void testUnchanged() throws TransformException {
+		byte[] inputBytes = JAKARTA_TEXT.getBytes(StandardCharsets.UTF_8);
+
+		Assertions.assertNull( getTextAction().apply("sample.properties", inputBytes, inputBytes.length) );
+		Assertions.assertFalse( getTextAction().hasChanges() );
+	}
+
+	@Test
+	public void testNonASCII() throws TransformException {
+		String inputText = "label=\u00e9t\u00e9 \u2603\nservlet=javax.servlet.Servlet\n";
+		String expectedText = "label=\u00e9t\u00e9 \u2603\nservlet=jakarta.servlet.Servlet\n";
+
+		byte[] outputBytes = transform( "sample.properties", inputText.getBytes(StandardCharsets.UTF_8) );
+		Assertions.assertEquals( expectedText, new String(outputBytes, StandardCharsets.UTF_8) );
+	}
+
+	@Test
+	public void testUTF16() throws TransformException {
+		Charset utf16 = StandardCharsets.UTF_16; // Writes a big endian byte order mark.
+
+		byte[] outputBytes = transform( "sample.tld", JAVAX_TEXT.getBytes(utf16) );
+		Assertions.assertEquals( JAKARTA_TEXT, new String(outputBytes, utf16) );
+	}
+
+	@Test
+	public void testBinary() throws TransformException {
+		byte[] inputBytes = JAVAX_TEXT.getBytes(StandardCharsets.UTF_8);
+		inputBytes[5] = 0;
+
+		byte[] outputBytes = transform("sample.properties", inputBytes);
+		Assertions.assertArrayEquals(inputBytes, outputBytes);
+		Assertions.assertFalse( getTextAction().hasChanges() );
+	}
+
+	@Test
+	public void testLongLine() throws TransformException {
+		StringBuilder inputBuilder = new StringBuilder();
+		StringBuilder expectedBuilder = new StringBuilder();
+		while ( inputBuilder.length() < TextActionImpl.MAX_SEGMENT_LENGTH * 4 ) {
+			inputBuilder.append("javax.servlet.Servlet,");
+			expectedBuilder.append("jakarta.servlet.Servlet,");
+		}
+
+		byte[] outputBytes = transform( "sample.properties", inputBuilder.toString().getBytes(StandardCharsets.UTF_8) );
+		Assertions.assertEquals( expectedBuilder.toString(), new String(outputBytes, StandardCharsets.UTF_8) );
+	}
+
+	@Test
+	public void testMappedFile() throws TransformException, IOException {
+		StringBuilder inputBuilder = new StringBuilder();
+		StringBuilder expectedBuilder = new StringBuilder();
+		while ( inputBuilder.length() < ActionImpl.MAPPED_INPUT_THRESHOLD * 2 ) {
+			inputBuilder.append(JAVAX_TEXT).append('\n');
+			expectedBuilder.append(JAKARTA_TEXT).append('\n');
+		}
+
+		File inputFile = new File("build/test/mapped/input.properties");
+		File outputFile = new File("build/test/mapped/output.properties");
+		inputFile.getParentFile().mkdirs();
+
+		Files.write( inputFile.toPath(), inputBuilder.toString().getBytes(StandardCharsets.UTF_8) );
+
+		getTextAction().apply("input.properties", inputFile, outputFile);
+
+		byte[] outputBytes = Files.readAllBytes( outputFile.toPath() );
+		Assertions.assertEquals( expectedBuilder.toString(), new String(outputBytes, StandardCharsets.UTF_8) );
+	}
+
+	@Test
+	public void testDirectBuffer() throws TransformException {
+		byte[] inputBytes = JAVAX_TEXT.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer inputBuffer = ByteBuffer.allocateDirect(inputBytes.length);
+		inputBuffer.put(inputBytes);
+		inputBuffer.flip();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		getTextAction().apply("sample.properties", inputBuffer, outputStream);
+
+		Assertions.assertEquals( JAKARTA_TEXT, new String(outputStream.toByteArray(), StandardCharsets.UTF_8) );
+		Assertions.assertEquals( inputBytes.length, inputBuffer.remaining() );
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformerEngine;
+import org.eclipse.transformer.TransformerEngine.Result;
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.impl.MetricsImpl;
+import org.eclipse.transformer.action.impl.MetricsImpl.Resource;
+import org.eclipse.transformer.action.impl.MetricsImpl.Stats;
+import org.eclipse.transformer.report.TopResources;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.data.Sample_InjectAPI_Javax;
+
+public class TestTransformerEngine {
+	public static final String JAVAX_SERVICE = "META-INF/services/javax.inject.Provider";
+	public static final String JAKARTA_SERVICE = "META-INF/services/jakarta.inject.Provider";
+
+	public static TransformerEngine createEngine() {
+		Map<String, String> renames = new HashMap<String, String>();
+		renames.put("javax.inject", "jakarta.inject");
+		return new TransformerEngine(renames);
+	}
+
+	public static String getClassResourceName() {
+		return TestTransformAgent.getBinaryName(Sample_InjectAPI_Javax.class) + ".class";
+	}
+
+	public static byte[] toBytes(ByteData data) {
+		return Arrays.copyOfRange(data.data, data.offset, data.offset + data.length);
+	}
+
+	@Test
+	public void testClass() throws Exception {
+		TransformerEngine engine = createEngine();
+		byte[] classBytes = TestTransformAgent.readClass(Sample_InjectAPI_Javax.class);
+
+		Result result = engine.transform(getClassResourceName(), classBytes);
+		Assertions.assertTrue(result.hasChanges);
+		Assertions.assertEquals("Class Action", result.actionName);
+		Assertions.assertTrue( TestTransformAgent.contains(toBytes(result.data), "jakarta/inject") );
+		Assertions.assertFalse( TestTransformAgent.contains(toBytes(result.data), "javax/inject") );
+
+		ByteBuffer directBuffer = ByteBuffer.allocateDirect(classBytes.length);
+		directBuffer.put(classBytes).flip();
+		Result bufferResult = engine.transform(getClassResourceName(), directBuffer);
+		Assertions.assertArrayEquals( toBytes(result.data), toBytes(bufferResult.data) );
+		Assertions.assertEquals(classBytes.length, directBuffer.remaining());
+	}
+
+	@Test
+	public void testText() throws Exception {
+		TransformerEngine engine = createEngine();
+
+		byte[] serviceBytes = "javax.inject.Named\n".getBytes(StandardCharsets.UTF_8);
+		Result result = engine.transform(JAVAX_SERVICE, serviceBytes);
+		Assertions.assertTrue(result.hasChanges);
+		Assertions.assertEquals(JAKARTA_SERVICE, result.outputName);
+		Assertions.assertEquals("jakarta.inject.Named\n", new String(toBytes(result.data), StandardCharsets.UTF_8));
+
+		byte[] otherBytes = "other".getBytes(StandardCharsets.UTF_8);
+		Result otherResult = engine.transform("other.bin", otherBytes);
+		Assertions.assertFalse(otherResult.hasChanges);
+		Assertions.assertSame(otherBytes, otherResult.data.data);
+	}
+
+	@Test
+	public void testStreamResources() throws Exception {
+		TransformerEngine engine = createEngine();
+
+		// Resources which are transformed as bytes must be transformed the
+		// same way through the stream API.
+
+		byte[] classBytes = TestTransformAgent.readClass(Sample_InjectAPI_Javax.class);
+		ByteArrayOutputStream classOutput = new ByteArrayOutputStream();
+		Result classResult = engine.transform(getClassResourceName(), new ByteArrayInputStream(classBytes), classOutput);
+		Assertions.assertTrue(classResult.hasChanges);
+		Assertions.assertEquals("Class Action", classResult.actionName);
+		Assertions.assertNull(classResult.data);
+		Assertions.assertArrayEquals(
+			toBytes( engine.transform(getClassResourceName(), classBytes).data ), classOutput.toByteArray() );
+
+		byte[] manifestBytes =
+			"Manifest-Version: 1.0\r\nImport-Package: javax.inject\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream manifestOutput = new ByteArrayOutputStream();
+		Result manifestResult = engine.transform("META-INF/MANIFEST.MF", new ByteArrayInputStream(manifestBytes), manifestOutput);
+		Assertions.assertTrue(manifestResult.hasChanges);
+		String manifestText = new String(manifestOutput.toByteArray(), StandardCharsets.UTF_8);
+		Assertions.assertTrue( manifestText.contains("jakarta.inject") );
+		Assertions.assertFalse( manifestText.contains("javax.inject") );
+
+		// Unchanged resources are written unchanged.
+
+		byte[] otherBytes = "other".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream otherOutput = new ByteArrayOutputStream();
+		Result otherResult = engine.transform("other.bin", new ByteArrayInputStream(otherBytes), otherOutput);
+		Assertions.assertFalse(otherResult.hasChanges);
+		Assertions.assertArrayEquals(otherBytes, otherOutput.toByteArray());
+	}
+
+	public static byte[] createJar(byte[] classBytes) throws Exception {
+		ByteArrayOutputStream jarBytes = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutput = new ZipOutputStream(jarBytes) ) {
+			zipOutput.putNextEntry( new ZipEntry(getClassResourceName()) );
+			zipOutput.write(classBytes);
+			zipOutput.closeEntry();
+		}
+		return jarBytes.toByteArray();
+	}
+
+	@Test
+	public void testArchive() throws Exception {
+		TransformerEngine engine = createEngine();
+		byte[] jarBytes = createJar( TestTransformAgent.readClass(Sample_InjectAPI_Javax.class) );
+
+		ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+		Result result = engine.transform("sample.jar", new ByteArrayInputStream(jarBytes), outputBytes);
+		Assertions.assertTrue(result.hasChanges);
+		Assertions.assertNull(result.data);
+
+		try ( ZipInputStream zipInput = new ZipInputStream( new ByteArrayInputStream(outputBytes.toByteArray()) ) ) {
+			ZipEntry entry = zipInput.getNextEntry();
+			Assertions.assertEquals(getClassResourceName(), entry.getName());
+			ByteData entryData = FileUtils.read(entry.getName(), zipInput);
+			Assertions.assertTrue( TestTransformAgent.contains(toBytes(entryData), "jakarta/inject") );
+		}
+	}
+
+	// Byte based actions are given pooled arrays, which are longer than the
+	// data which was read: Transformed output must have exactly the length
+	// of the transformed data, and must not include padding or the content
+	// of previously read resources.
+
+	public static final String JAVAX_JAVA_NAME = "sample/A.java";
+	public static final String JAVAX_JAVA =
+		"package sample;\n\nimport javax.inject.Inject;\n\npublic class A {\n\t@Inject\n\tpublic Object a;\n}\n";
+	public static final String JAKARTA_JAVA =
+		"package sample;\n\nimport jakarta.inject.Inject;\n\npublic class A {\n\t@Inject\n\tpublic Object a;\n}\n";
+
+	public static final String JAVAX_SERVICE_TEXT = "javax.inject.Named\n";
+	public static final String JAKARTA_SERVICE_TEXT = "jakarta.inject.Named\n";
+
+	/** Create a manifest which is long enough to leave content in a pooled buffer. */
+	public static byte[] createLongManifest() {
+		StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\r\n");
+		for ( int lineNo = 0; lineNo < 500; lineNo++ ) {
+			manifest.append("X-Filler-" + lineNo + ": filler\r\n");
+		}
+		manifest.append("\r\n");
+		return manifest.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testExactArchiveOutput() throws Exception {
+		ByteArrayOutputStream jarBytes = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutput = new ZipOutputStream(jarBytes) ) {
+			zipOutput.putNextEntry( new ZipEntry("META-INF/MANIFEST.MF") );
+			zipOutput.write( createLongManifest() );
+			zipOutput.closeEntry();
+			zipOutput.putNextEntry( new ZipEntry(JAVAX_SERVICE) );
+			zipOutput.write( JAVAX_SERVICE_TEXT.getBytes(StandardCharsets.UTF_8) );
+			zipOutput.closeEntry();
+			zipOutput.putNextEntry( new ZipEntry(JAVAX_JAVA_NAME) );
+			zipOutput.write( JAVAX_JAVA.getBytes(StandardCharsets.UTF_8) );
+			zipOutput.closeEntry();
+		}
+
+		TransformerEngine engine = createEngine();
+		ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+		Result result = engine.transform("sample.jar", new ByteArrayInputStream(jarBytes.toByteArray()), outputBytes);
+		Assertions.assertTrue(result.hasChanges);
+
+		Map<String, byte[]> entries = new HashMap<String, byte[]>();
+		try ( ZipInputStream zipInput = new ZipInputStream( new ByteArrayInputStream(outputBytes.toByteArray()) ) ) {
+			ZipEntry entry;
+			while ( (entry = zipInput.getNextEntry()) != null ) {
+				entries.put( entry.getName(), toBytes(FileUtils.read(entry.getName(), zipInput)) );
+			}
+		}
+
+		Assertions.assertArrayEquals(
+			JAKARTA_SERVICE_TEXT.getBytes(StandardCharsets.UTF_8), entries.get(JAKARTA_SERVICE) );
+		Assertions.assertArrayEquals(
+			JAKARTA_JAVA.getBytes(StandardCharsets.UTF_8), entries.get(JAVAX_JAVA_NAME) );
+	}
+
+	@Test
+	public void testExactDirectoryOutput() throws Exception {
+		File testDir = new File("build/test/exact");
+		TestTransformDirectory.delete(testDir);
+
+		File inputDir = new File(testDir, "input");
+		File outputDir = new File(testDir, "output");
+
+		File manifestFile = new File(inputDir, "META-INF/MANIFEST.MF");
+		manifestFile.getParentFile().mkdirs();
+		Files.write( manifestFile.toPath(), createLongManifest() );
+		TestTransformDirectory.write( new File(inputDir, JAVAX_SERVICE), JAVAX_SERVICE_TEXT );
+		TestTransformDirectory.write( new File(inputDir, JAVAX_JAVA_NAME), JAVAX_JAVA );
+
+		TransformerEngine engine = createEngine();
+		engine.transform(inputDir, outputDir);
+
+		// Directory actions write resources using their input names.
+
+		Assertions.assertArrayEquals(
+			JAKARTA_SERVICE_TEXT.getBytes(StandardCharsets.UTF_8),
+			Files.readAllBytes( new File(outputDir, JAVAX_SERVICE).toPath() ) );
+		Assertions.assertArrayEquals(
+			JAKARTA_JAVA.getBytes(StandardCharsets.UTF_8),
+			Files.readAllBytes( new File(outputDir, JAVAX_JAVA_NAME).toPath() ) );
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		TransformerEngine engine = createEngine();
+		MetricsImpl metrics = new MetricsImpl();
+		engine.setMetrics(metrics);
+
+		byte[] classBytes = TestTransformAgent.readClass(Sample_InjectAPI_Javax.class);
+		byte[] jarBytes = createJar(classBytes);
+
+		ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+		engine.transform("sample.jar", new ByteArrayInputStream(jarBytes), outputBytes);
+
+		List<Stats> allStats = metrics.getStats();
+		Assertions.assertEquals(2, allStats.size());
+
+		Stats jarStats = allStats.get(0);
+		Assertions.assertEquals(ActionType.JAR, jarStats.actionType);
+		Assertions.assertEquals(0, jarStats.level);
+		Assertions.assertEquals(1L, jarStats.getCount());
+		Assertions.assertEquals(1L, jarStats.getChanged());
+		Assertions.assertEquals(outputBytes.size(), jarStats.getOutputLength());
+
+		Stats classStats = allStats.get(1);
+		Assertions.assertEquals(ActionType.CLASS, classStats.actionType);
+		Assertions.assertEquals(1, classStats.level);
+		Assertions.assertEquals(1L, classStats.getCount());
+		Assertions.assertEquals(1L, classStats.getChanged());
+		Assertions.assertEquals(classBytes.length, classStats.getInputLength());
+		Assertions.assertEquals(classStats.getTotalNanos(), classStats.getSelfNanos());
+
+		// The time of the class is included in the total time of the jar, but
+		// not in the self time of the jar.
+		Assertions.assertEquals(
+			jarStats.getTotalNanos(),
+			jarStats.getSelfNanos() + classStats.getTotalNanos());
+
+		ByteArrayOutputStream displayBytes = new ByteArrayOutputStream();
+		metrics.display( new PrintStream(displayBytes, true, "UTF-8") );
+		String display = new String(displayBytes.toByteArray(), StandardCharsets.UTF_8);
+		Assertions.assertTrue( display.contains("1 CLASS") );
+	}
+
+	@Test
+	public void testTopResources() throws Exception {
+		TransformerEngine engine = createEngine();
+		MetricsImpl metrics = new MetricsImpl();
+		TopResources topResources = new TopResources(2);
+		metrics.addListener(topResources);
+		engine.setMetrics(metrics);
+
+		byte[] classBytes = TestTransformAgent.readClass(Sample_InjectAPI_Javax.class);
+		byte[] jarBytes = createJar(classBytes);
+		engine.transform("sample.jar", new ByteArrayInputStream(jarBytes), new ByteArrayOutputStream());
+
+		// The total time of the jar includes the time of its class.
+
+		List<Resource> slowest = topResources.getSlowest();
+		Assertions.assertEquals(2, slowest.size());
+		Assertions.assertEquals("sample.jar", slowest.get(0).path);
+		Assertions.assertEquals("sample.jar!" + getClassResourceName(), slowest.get(1).path);
+
+		List<Resource> largest = topResources.getLargest();
+		Assertions.assertEquals(2, largest.size());
+		for ( Resource resource : largest ) {
+			if ( resource.actionType == ActionType.CLASS ) {
+				Assertions.assertEquals(classBytes.length, resource.inputLength);
+			} else {
+				Assertions.assertEquals(jarBytes.length, resource.inputLength);
+			}
+		}
+
+		// Tracking is bounded to the requested count.
+
+		topResources = new TopResources(3);
+		for ( int resourceNo = 0; resourceNo < 100; resourceNo++ ) {
+			int rank = (resourceNo * 37) % 100; // Not in order.
+			topResources.record( new Resource(
+				"outer.ear!inner.war!r" + rank + ".class", 2, ActionType.CLASS, null,
+				rank, rank, false,
+				1000L - rank, 1000L - rank) );
+		}
+
+		slowest = topResources.getSlowest();
+		Assertions.assertEquals(3, slowest.size());
+		Assertions.assertEquals("outer.ear!inner.war!r0.class", slowest.get(0).path);
+		Assertions.assertEquals("outer.ear!inner.war!r1.class", slowest.get(1).path);
+		Assertions.assertEquals("outer.ear!inner.war!r2.class", slowest.get(2).path);
+
+		largest = topResources.getLargest();
+		Assertions.assertEquals(3, largest.size());
+		Assertions.assertEquals(99L, largest.get(0).inputLength);
+		Assertions.assertEquals(98L, largest.get(1).inputLength);
+		Assertions.assertEquals(97L, largest.get(2).inputLength);
+
+		ByteArrayOutputStream displayBytes = new ByteArrayOutputStream();
+		topResources.display( new PrintStream(displayBytes, true, "UTF-8") );
+		String display = new String(displayBytes.toByteArray(), StandardCharsets.UTF_8);
+		Assertions.assertTrue( display.contains("outer.ear!inner.war!r99.class") );
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		TransformerEngine engine = createEngine();
+		byte[] classBytes = TestTransformAgent.readClass(Sample_InjectAPI_Javax.class);
+		byte[] expectedBytes = toBytes( engine.transform(getClassResourceName(), classBytes).data );
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+			for ( int taskNo = 0; taskNo < 64; taskNo++ ) {
+				futures.add( executor.submit( () -> toBytes( engine.transform(getClassResourceName(), classBytes).data ) ) );
+			}
+			for ( Future<byte[]> future : futures ) {
+				Assertions.assertArrayEquals(expectedBytes, future.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,708 @@
+/*
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package transformer.test.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.util.CountingOutputStream;
+
+import aQute.bnd.classfile.AnnotationInfo;
+import aQute.bnd.classfile.Attribute;
+import aQute.bnd.classfile.ElementValueInfo;
+import aQute.bnd.classfile.FieldInfo;
+import aQute.bnd.classfile.MethodInfo;
+import aQute.bnd.classfile.RuntimeVisibleAnnotationsAttribute;
+import aQute.bnd.classfile.SignatureAttribute;
+import aQute.bnd.classfile.builder.ClassFileBuilder;
+import aQute.bnd.classfile.builder.MutableConstantPool;
+
+/**
+ * Generator of synthetic archives, for use by benchmarks and by stress tests.
+ *
+ * Generated archives are jars, wars, or ears, laid out as applications are
+ * laid out: Wars have classes under 'WEB-INF/classes' and libraries under
+ * 'WEB-INF/lib', and ears have web modules and libraries under 'lib'.  Each
+ * archive has a manifest and the descriptors of its type, and each library
+ * has a service configuration.
+ *
+ * The content entries of a generated archive are classes, text resources, and
+ * binary resources.  Content entries are spread evenly across the locations
+ * which hold content: The root of a jar, the classes folder of each war, and
+ * each library.  Classes are generated using the bnd class file builder, and
+ * reference javax types at a specified ratio.  Generated classes are abstract,
+ * and are not loadable, but are complete class files for transformation.
+ *
+ * Archives are written as streams, including nested archives, which are
+ * written directly into their enclosing archive.  Memory use does not grow
+ * with the size of the generated archive, which allows the generation of
+ * archives which have hundreds of thousands of entries or which are several
+ * gigabytes.
+ *
+ * Generation is repeatable: Content which is not fixed is taken from a random
+ * number generator which uses a specified seed.
+ */
+public class CorpusGenerator {
+	public static final int ACC_SUPER = 0x0020;
+	public static final int JAVA_8_MAJOR_VERSION = 52;
+
+	/** Types which are renamed by the default rules. */
+	public static final String[] JAVAX_TYPES = {
+		"javax/servlet/http/HttpServlet",
+		"javax/servlet/http/HttpServletRequest",
+		"javax/servlet/http/HttpServletResponse",
+		"javax/servlet/ServletContext",
+		"javax/servlet/Filter",
+		"javax/servlet/jsp/JspWriter",
+		"javax/servlet/jsp/tagext/TagSupport",
+		"javax/el/ELContext",
+		"javax/inject/Provider"
+	};
+
+	/** Types which are not renamed. */
+	public static final String[] JAVA_TYPES = {
+		"java/lang/String",
+		"java/lang/Object",
+		"java/util/List",
+		"java/util/Map",
+		"java/io/InputStream",
+		"java/util/concurrent/Executor"
+	};
+
+	public static final String INJECT_ANNOTATION = "Ljavax/inject/Inject;";
+
+	public static final String SERVICE_CONFIG = "META-INF/services/javax.servlet.ServletContainerInitializer";
+
+	public static enum Container {
+		JAR, WAR, EAR;
+
+		public String getExtension() {
+			return "." + name().toLowerCase();
+		}
+	}
+
+	//
+
+	public CorpusGenerator() {
+		// Use the defaults.
+	}
+
+	private Container container = Container.JAR;
+	private int modules = 1;
+	private int libraries = 0;
+
+	private int entries = 100;
+	private double classRatio = 0.8;
+	private double binaryRatio = 0.0;
+
+	private double javaxRatio = 0.5;
+	private int classMembers = 8;
+	private double hugeClassRatio = 0.0;
+	private int hugeClassMembers = 2000;
+
+	private int binaryLength = 32 * 1024;
+
+	private long seed = 0x5eedL;
+
+	/** Set the type of the generated archive.  The default is a jar. */
+	public CorpusGenerator container(Container useContainer) {
+		container = useContainer;
+		return this;
+	}
+
+	/** Set the count of web modules of a generated ear.  The default is one. */
+	public CorpusGenerator modules(int useModules) {
+		modules = useModules;
+		return this;
+	}
+
+	/**
+	 * Set the count of libraries of each war, and of a generated ear.  Libraries
+	 * of a generated jar are nested jars, which are not transformed.  The default
+	 * is no libraries.
+	 */
+	public CorpusGenerator libraries(int useLibraries) {
+		libraries = useLibraries;
+		return this;
+	}
+
+	/** Set the total count of content entries.  The default is 100. */
+	public CorpusGenerator entries(int useEntries) {
+		entries = useEntries;
+		return this;
+	}
+
+	/** Set the ratio of content entries which are classes.  The default is 0.8. */
+	public CorpusGenerator classRatio(double useClassRatio) {
+		classRatio = useClassRatio;
+		return this;
+	}
+
+	/**
+	 * Set the ratio of content entries which are binary resources.  The default
+	 * is none.  Content entries which are neither classes nor binary resources
+	 * are text resources.
+	 */
+	public CorpusGenerator binaryRatio(double useBinaryRatio) {
+		binaryRatio = useBinaryRatio;
+		return this;
+	}
+
+	/** Set the ratio of class members which reference javax types.  The default is 0.5. */
+	public CorpusGenerator javaxRatio(double useJavaxRatio) {
+		javaxRatio = useJavaxRatio;
+		return this;
+	}
+
+	/** Set the count of fields, and of methods, of each class.  The default is 8. */
+	public CorpusGenerator classMembers(int useClassMembers) {
+		classMembers = useClassMembers;
+		return this;
+	}
+
+	/** Set the ratio of classes which are huge.  The default is none. */
+	public CorpusGenerator hugeClassRatio(double useHugeClassRatio) {
+		hugeClassRatio = useHugeClassRatio;
+		return this;
+	}
+
+	/** Set the count of fields, and of methods, of huge classes.  The default is 2000. */
+	public CorpusGenerator hugeClassMembers(int useHugeClassMembers) {
+		hugeClassMembers = useHugeClassMembers;
+		return this;
+	}
+
+	/** Set the length of binary resources.  The default is 32K. */
+	public CorpusGenerator binaryLength(int useBinaryLength) {
+		binaryLength = useBinaryLength;
+		return this;
+	}
+
+	public CorpusGenerator seed(long useSeed) {
+		seed = useSeed;
+		random = new Random(seed);
+		return this;
+	}
+
+	/**
+	 * Set a generation property.  Property names are the names of the
+	 * setters, for example, "entries" or "javaxRatio".
+	 *
+	 * @param name The name of the property.
+	 * @param value The value of the property.
+	 *
+	 * @return This generator.
+	 *
+	 * @throws IllegalArgumentException Thrown if the property is not known, or
+	 *     if the value is not valid.
+	 */
+	public CorpusGenerator set(String name, String value) {
+		switch ( name ) {
+			case "container":
+				return container( Container.valueOf(value.toUpperCase()) );
+			case "modules":
+				return modules( Integer.parseInt(value) );
+			case "libraries":
+				return libraries( Integer.parseInt(value) );
+			case "entries":
+				return entries( Integer.parseInt(value) );
+			case "classRatio":
+				return classRatio( Double.parseDouble(value) );
+			case "binaryRatio":
+				return binaryRatio( Double.parseDouble(value) );
+			case "javaxRatio":
+				return javaxRatio( Double.parseDouble(value) );
+			case "classMembers":
+				return classMembers( Integer.parseInt(value) );
+			case "hugeClassRatio":
+				return hugeClassRatio( Double.parseDouble(value) );
+			case "hugeClassMembers":
+				return hugeClassMembers( Integer.parseInt(value) );
+			case "binaryLength":
+				return binaryLength( Integer.parseInt(value) );
+			case "seed":
+				return seed( Long.parseLong(value) );
+			default:
+				throw new IllegalArgumentException("Unknown property [ " + name + " ]");
+		}
+	}
+
+	public Container getContainer() {
+		return container;
+	}
+
+	//
+
+	/**
+	 * Generator of content which is not fixed.  Reset to the seed by each
+	 * generation.  Classes and binary content which are created outside of
+	 * a generation use the generator as left by the previous generation.
+	 */
+	private Random random = new Random(seed);
+
+	private int remainingEntries;
+	private int remainingLocations;
+
+	private long writtenEntries;
+
+	/**
+	 * Answer the count of entries which were written by the most recent
+	 * generation, including the entries of nested archives, and including
+	 * nested archives.
+	 *
+	 * @return The count of written entries.
+	 */
+	public long getWrittenEntries() {
+		return writtenEntries;
+	}
+
+	/**
+	 * Generate an archive to a file.
+	 *
+	 * @param outputFile The file which is to be written.
+	 *
+	 * @return The length of the generated archive.
+	 *
+	 * @throws IOException Thrown if the archive could not be written.
+	 */
+	public long generate(File outputFile) throws IOException {
+		try ( OutputStream outputStream = new BufferedOutputStream( new FileOutputStream(outputFile), 64 * 1024 ) ) {
+			// 'FileOutputStream' throws IOException
+			return generate(outputStream); // throws IOException
+		}
+	}
+
+	public byte[] generate() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		generate(outputStream); // throws IOException
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Generate an archive to a stream.  The stream is not closed.
+	 *
+	 * @param outputStream The stream to which to write the archive.
+	 *
+	 * @return The length of the generated archive.
+	 *
+	 * @throws IOException Thrown if the archive could not be written.
+	 */
+	public long generate(OutputStream outputStream) throws IOException {
+		random = new Random(seed);
+		writtenEntries = 0L;
+
+		remainingEntries = entries;
+		remainingLocations = getLocationCount();
+
+		CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+		ZipOutputStream zipStream = new ZipOutputStream(countingStream);
+
+		switch ( container ) {
+			case JAR:
+				writeJar(zipStream, "app", true);
+				break;
+			case WAR:
+				writeWar(zipStream, "app");
+				break;
+			case EAR:
+				writeEar(zipStream, "app");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown container [ " + container + " ]");
+		}
+
+		zipStream.finish(); // throws IOException
+		countingStream.flush(); // throws IOException
+		return countingStream.getCount();
+	}
+
+	/**
+	 * Answer the count of locations which hold content.  Nested jars of a
+	 * generated jar do not hold content.
+	 */
+	protected int getLocationCount() {
+		switch ( container ) {
+			case JAR:
+				return 1;
+			case WAR:
+				return 1 + libraries;
+			case EAR:
+				return (modules * (1 + libraries)) + libraries;
+			default:
+				throw new IllegalArgumentException("Unknown container [ " + container + " ]");
+		}
+	}
+
+	/** Answer the count of content entries of the next location. */
+	protected int nextLocationEntries() {
+		int locationEntries = remainingEntries / remainingLocations;
+		remainingEntries -= locationEntries;
+		remainingLocations--;
+		return locationEntries;
+	}
+
+	//
+
+	/**
+	 * Time of generated entries.  A fixed time is used so that generated
+	 * archives do not depend on the time of generation.
+	 */
+	public static final long ENTRY_TIME = 1577836800000L; // 2020-01-01
+
+	protected static ZipEntry createEntry(String name) {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setTime(ENTRY_TIME);
+		return entry;
+	}
+
+	protected void putEntry(ZipOutputStream zipStream, String name, byte[] bytes) throws IOException {
+		zipStream.putNextEntry( createEntry(name) ); // throws IOException
+		zipStream.write(bytes); // throws IOException
+		zipStream.closeEntry(); // throws IOException
+		writtenEntries++;
+	}
+
+	/** Start a nested archive.  The nested archive is written directly to the enclosing archive. */
+	protected ZipOutputStream startNested(ZipOutputStream zipStream, String name) throws IOException {
+		zipStream.putNextEntry( createEntry(name) ); // throws IOException
+		writtenEntries++;
+		return new ZipOutputStream(zipStream);
+	}
+
+	protected void endNested(ZipOutputStream zipStream, ZipOutputStream nestedStream) throws IOException {
+		nestedStream.finish(); // throws IOException
+		zipStream.closeEntry(); // throws IOException
+	}
+
+	protected void writeJar(ZipOutputStream zipStream, String name, boolean isTop) throws IOException {
+		putEntry( zipStream, "META-INF/MANIFEST.MF", createManifest(name) );
+		putEntry( zipStream, "META-INF/beans.xml", createBeansXml() );
+		putEntry( zipStream, SERVICE_CONFIG, createServiceConfig(name) );
+
+		writeContent(zipStream, "", name, nextLocationEntries(), !IS_WEB);
+
+		if ( isTop ) {
+			for ( int libNo = 0; libNo < libraries; libNo++ ) {
+				String libName = name + "_nested" + libNo;
+				ZipOutputStream nestedStream = startNested(zipStream, "lib/" + libName + ".jar");
+				writeNestedJar(nestedStream, libName);
+				endNested(zipStream, nestedStream);
+			}
+		}
+	}
+
+	/** Write a jar which is nested in a jar.  Jars which are nested in jars do not hold content. */
+	protected void writeNestedJar(ZipOutputStream zipStream, String name) throws IOException {
+		putEntry( zipStream, "META-INF/MANIFEST.MF", createManifest(name) );
+		putEntry( zipStream, SERVICE_CONFIG, createServiceConfig(name) );
+	}
+
+	protected void writeWar(ZipOutputStream zipStream, String name) throws IOException {
+		putEntry( zipStream, "META-INF/MANIFEST.MF", createManifest(name) );
+		putEntry( zipStream, "WEB-INF/web.xml", createWebXml(name) );
+		putEntry( zipStream, "WEB-INF/beans.xml", createBeansXml() );
+
+		writeContent(zipStream, "WEB-INF/classes/", name, nextLocationEntries(), IS_WEB);
+
+		for ( int libNo = 0; libNo < libraries; libNo++ ) {
+			String libName = name + "_lib" + libNo;
+			ZipOutputStream nestedStream = startNested(zipStream, "WEB-INF/lib/" + libName + ".jar");
+			writeJar(nestedStream, libName, !IS_TOP);
+			endNested(zipStream, nestedStream);
+		}
+	}
+
+	protected void writeEar(ZipOutputStream zipStream, String name) throws IOException {
+		putEntry( zipStream, "META-INF/MANIFEST.MF", createManifest(name) );
+
+		List<String> webNames = new ArrayList<String>(modules);
+		for ( int moduleNo = 0; moduleNo < modules; moduleNo++ ) {
+			String webName = name + "_web" + moduleNo;
+			webNames.add(webName);
+			ZipOutputStream nestedStream = startNested(zipStream, webName + ".war");
+			writeWar(nestedStream, webName);
+			endNested(zipStream, nestedStream);
+		}
+
+		for ( int libNo = 0; libNo < libraries; libNo++ ) {
+			String libName = name + "_lib" + libNo;
+			ZipOutputStream nestedStream = startNested(zipStream, "lib/" + libName + ".jar");
+			writeJar(nestedStream, libName, !IS_TOP);
+			endNested(zipStream, nestedStream);
+		}
+
+		putEntry( zipStream, "META-INF/application.xml", createApplicationXml(webNames) );
+	}
+
+	public static final boolean IS_WEB = true;
+	public static final boolean IS_TOP = true;
+
+	/**
+	 * Write the content entries of one location.  Classes are placed in ten
+	 * packages.  Text resources are properties files, or, in web modules,
+	 * alternate between properties files and JSP files.
+	 */
+	protected void writeContent(
+		ZipOutputStream zipStream, String classPrefix, String name, int count, boolean isWeb)
+		throws IOException {
+
+		String packagePrefix = "com/example/" + name + "/p";
+
+		for ( int entryNo = 0; entryNo < count; entryNo++ ) {
+			String packageName = packagePrefix + (entryNo % 10);
+
+			double kind = random.nextDouble();
+			if ( kind < classRatio ) {
+				String className = packageName + "/Generated" + entryNo;
+				int members = ( (random.nextDouble() < hugeClassRatio) ? hugeClassMembers : classMembers );
+				putEntry( zipStream, classPrefix + className + ".class", createClass(className, members) );
+
+			} else if ( kind < (classRatio + binaryRatio) ) {
+				putEntry( zipStream, "images/image" + entryNo + ".png", createBinary(binaryLength) );
+
+			} else if ( isWeb && ((entryNo % 2) == 0) ) {
+				putEntry( zipStream, "pages/page" + entryNo + ".jsp", createJsp(entryNo) );
+
+			} else {
+				putEntry( zipStream, classPrefix + packageName + "/messages" + entryNo + ".properties", createProperties(entryNo) );
+			}
+		}
+	}
+
+	//
+
+	protected String selectType() {
+		String[] types = ( (random.nextDouble() < javaxRatio) ? JAVAX_TYPES : JAVA_TYPES );
+		return types[ random.nextInt(types.length) ];
+	}
+
+	/**
+	 * Generate a class.  Classes have fields and abstract methods which reference
+	 * javax types at the javax ratio, generic signatures, and inject annotations.
+	 *
+	 * @param className The binary name of the class.
+	 * @param memberCount The count of fields and of methods of the class.
+	 *
+	 * @return The bytes of the class.
+	 *
+	 * @throws IOException Thrown if the class could not be written.
+	 */
+	public byte[] createClass(String className, int memberCount) throws IOException {
+		ClassFileBuilder builder = new ClassFileBuilder(
+			Modifier.PUBLIC | Modifier.ABSTRACT | ACC_SUPER, JAVA_8_MAJOR_VERSION, 0,
+			className, selectSuperType());
+		if ( random.nextDouble() < javaxRatio ) {
+			builder.interfaces( JAVAX_TYPES[4] );
+		}
+
+		MutableConstantPool constants = builder.constant_pool();
+
+		for ( int memberNo = 0; memberNo < memberCount; memberNo++ ) {
+			String type = selectType();
+			String otherType = selectType();
+
+			Attribute[] fieldAttributes;
+			if ( (memberNo % 4) == 0 ) {
+				fieldAttributes = new Attribute[] {
+					new SignatureAttribute("Ljava/util/List<L" + type + ";>;") };
+			} else {
+				fieldAttributes = new Attribute[0];
+			}
+			builder.fields( new FieldInfo(
+				Modifier.PROTECTED, "field" + memberNo, "L" + type + ";", fieldAttributes) );
+
+			Attribute[] methodAttributes;
+			if ( (memberNo % 3) == 0 ) {
+				methodAttributes = new Attribute[] {
+					new RuntimeVisibleAnnotationsAttribute( new AnnotationInfo[] {
+						new AnnotationInfo(INJECT_ANNOTATION, new ElementValueInfo[0]) } ) };
+			} else {
+				methodAttributes = new Attribute[0];
+			}
+			builder.methods( new MethodInfo(
+				Modifier.PUBLIC | Modifier.ABSTRACT, "method" + memberNo,
+				"(L" + type + ";I)L" + otherType + ";", methodAttributes) );
+
+			// References and strings which are not used by the members, as
+			// would be used by method code.
+
+			if ( (memberNo % 5) == 0 ) {
+				constants.methodrefInfo(type, "invoke" + memberNo, "(L" + otherType + ";)V");
+				constants.stringInfo( type.replace('/', '.') );
+			}
+		}
+
+		ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		try ( DataOutputStream classOutput = new DataOutputStream(classBytes) ) {
+			builder.build().write(classOutput); // throws IOException
+		}
+		return classBytes.toByteArray();
+	}
+
+	protected String selectSuperType() {
+		return ( (random.nextDouble() < javaxRatio) ? JAVAX_TYPES[0] : "java/lang/Object" );
+	}
+
+	/** Generate binary content, which does not compress. */
+	public byte[] createBinary(int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+	protected static byte[] toBytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public static byte[] createManifest(String name) {
+		return toBytes(
+			"Manifest-Version: 1.0\r\n" +
+			"Bundle-ManifestVersion: 2\r\n" +
+			"Bundle-SymbolicName: " + name + "\r\n" +
+			"Bundle-Version: 1.0.0\r\n" +
+			"Import-Package: javax.servlet;version=\"[4.0,5)\",javax.servlet.http;version=\"[4.0,5)\",\r\n" +
+			" javax.inject,javax.el;version=\"[3.0,4)\"\r\n" +
+			"Export-Package: com.example." + name + ".p0;uses:=\"javax.servlet,javax.inject\"\r\n" +
+			"\r\n" );
+	}
+
+	public static byte[] createServiceConfig(String name) {
+		return toBytes(
+			"# Initializers of " + name + "\n" +
+			"com.example." + name + ".p0.Generated0\n" );
+	}
+
+	public static byte[] createBeansXml() {
+		return toBytes(
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<beans xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"2.0\" bean-discovery-mode=\"annotated\">\n" +
+			"</beans>\n" );
+	}
+
+	public static byte[] createWebXml(String name) {
+		return toBytes(
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"4.0\">\n" +
+			"  <servlet>\n" +
+			"    <servlet-name>" + name + "</servlet-name>\n" +
+			"    <servlet-class>com.example." + name + ".p0.Generated0</servlet-class>\n" +
+			"  </servlet>\n" +
+			"  <filter>\n" +
+			"    <filter-name>" + name + "Filter</filter-name>\n" +
+			"    <filter-class>javax.servlet.Filter</filter-class>\n" +
+			"  </filter>\n" +
+			"  <listener>\n" +
+			"    <listener-class>javax.servlet.ServletContextListener</listener-class>\n" +
+			"  </listener>\n" +
+			"</web-app>\n" );
+	}
+
+	public static byte[] createApplicationXml(List<String> webNames) {
+		StringBuilder applicationXml = new StringBuilder();
+		applicationXml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		applicationXml.append("<application xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"8\">\n");
+		for ( String webName : webNames ) {
+			applicationXml.append("  <module><web><web-uri>" + webName + ".war</web-uri>");
+			applicationXml.append("<context-root>/" + webName + "</context-root></web></module>\n");
+		}
+		applicationXml.append("</application>\n");
+		return toBytes( applicationXml.toString() );
+	}
+
+	public static byte[] createJsp(int pageNo) {
+		return toBytes(
+			"<%@ page import=\"javax.servlet.http.HttpServletRequest\" %>\n" +
+			"<%@ taglib prefix=\"c\" uri=\"http://java.sun.com/jsp/jstl/core\" %>\n" +
+			"<html><body>\n" +
+			"<h1>Page " + pageNo + "</h1>\n" +
+			"<% javax.servlet.http.HttpSession session" + pageNo + " = request.getSession(); %>\n" +
+			"</body></html>\n" );
+	}
+
+	public static byte[] createProperties(int entryNo) {
+		return toBytes(
+			"# Messages " + entryNo + "\n" +
+			"servlet.class=javax.servlet.http.HttpServlet\n" +
+			"listener.class=javax.servlet.ServletContextListener\n" +
+			"message." + entryNo + "=Generated message " + entryNo + "\n" );
+	}
+
+	//
+
+	/**
+	 * Generate an archive.  Usage:
+	 *
+	 * <pre>
+	 * CorpusGenerator outputFile [ property=value ]*
+	 * </pre>
+	 *
+	 * Properties are the names of the generator setters, for example:
+	 *
+	 * <pre>
+	 * CorpusGenerator app.ear container=ear modules=4 libraries=10 entries=100000
+	 * </pre>
+	 *
+	 * @param args The output file, followed by generation properties.
+	 *
+	 * @throws IOException Thrown if the archive could not be generated.
+	 */
+	public static void main(String[] args) throws IOException {
+		if ( args.length < 1 ) {
+			System.err.println("Usage: CorpusGenerator outputFile [ property=value ]*");
+			System.exit(1);
+			return;
+		}
+
+		CorpusGenerator generator = new CorpusGenerator();
+		for ( int argNo = 1; argNo < args.length; argNo++ ) {
+			String arg = args[argNo];
+			int equalsOffset = arg.indexOf('=');
+			if ( equalsOffset == -1 ) {
+				System.err.println("Incorrect property [ " + arg + " ]");
+				System.exit(1);
+				return;
+			}
+			generator.set( arg.substring(0, equalsOffset), arg.substring(equalsOffset + 1) );
+		}
+
+		File outputFile = new File(args[0]);
+		long startNanos = System.nanoTime();
+		long length = generator.generate(outputFile); // throws IOException
+		long elapsedMillis = (System.nanoTime() - startNanos) / 1000000L;
+
+		System.out.println(
+			"Generated [ " + outputFile.getAbsolutePath() + " ]" +
+			" Entries [ " + generator.getWrittenEntries() + " ]" +
+			" Length [ " + length + " ]" +
+			" Time [ " + elapsedMillis + " ms ]");
+	}
+}